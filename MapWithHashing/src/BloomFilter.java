@@ -0,0 +1,193 @@
+/**
+ * Bloom filter over the {@code hashCode} values of its elements: a fixed-size
+ * bit array with {@code k} bits set per element, sized for an expected number
+ * of elements and a target false-positive rate. {@code mightContain} never
+ * reports false for an element that was added, and reports true for an
+ * element that was not added with about the target probability as long as no
+ * more than {@code capacity()} elements have been added.
+ *
+ * <p>
+ * Elements cannot be removed. An owner that removes elements just leaves
+ * their bits set, which can only cause extra false positives, and rebuilds the
+ * filter when {@code isFull()} reports that it has seen more elements than it
+ * was sized for.
+ * </p>
+ *
+ * @param <T>
+ *            type of elements
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public final class BloomFilter<T> {
+
+    /**
+     * Number of bits in a word of {@code bits}.
+     */
+    private static final int WORD_BITS = 64;
+
+    /**
+     * log2 of {@code WORD_BITS}.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * ln(2), used in the sizing formulas.
+     */
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * Bit array.
+     */
+    private final long[] bits;
+
+    /**
+     * Number of bits in {@code bits}.
+     */
+    private final long numBits;
+
+    /**
+     * Number of bits set per element.
+     */
+    private final int numHashes;
+
+    /**
+     * Number of elements the filter was sized for.
+     */
+    private final int capacity;
+
+    /**
+     * Number of elements added so far.
+     */
+    private int added;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity
+     *            the expected number of elements
+     * @param falsePositiveRate
+     *            the target false-positive rate at {@code capacity} elements
+     * @requires capacity > 0 and 0 < falsePositiveRate < 1
+     * @ensures [this is empty and sized for capacity elements at
+     *          falsePositiveRate]
+     */
+    public BloomFilter(int capacity, double falsePositiveRate) {
+        assert capacity > 0 : "Violation of: capacity > 0";
+        assert 0 < falsePositiveRate
+                && falsePositiveRate < 1 : ""
+                        + "Violation of: 0 < falsePositiveRate < 1";
+
+        //optimal sizes: m = -n ln(p) / ln(2)^2 bits and k = (m / n) ln(2)
+        long m = (long) Math
+                .ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int words = (int) Math.max(1, (m + WORD_BITS - 1) / WORD_BITS);
+        this.bits = new long[words];
+        this.numBits = (long) words * WORD_BITS;
+        this.numHashes = (int) Math.max(1,
+                Math.round((double) this.numBits / capacity * LN2));
+        this.capacity = capacity;
+        this.added = 0;
+    }
+
+    /**
+     * Scrambles the bits of {@code h} (the MurmurHash3 finalizer), so that
+     * poor {@code hashCode} functions still spread over the whole bit array.
+     *
+     * @param h
+     *            the value to mix
+     * @return the mixed value
+     */
+    private static int mix(int h) {
+        final int c1 = 0x85ebca6b;
+        final int c2 = 0xc2b2ae35;
+        final int s1 = 16;
+        final int s2 = 13;
+        int x = h;
+        x ^= x >>> s1;
+        x *= c1;
+        x ^= x >>> s2;
+        x *= c2;
+        x ^= x >>> s1;
+        return x;
+    }
+
+    /**
+     * Returns the {@code i}-th bit position for an element with hashes
+     * {@code h1} and {@code h2}, by double hashing.
+     *
+     * @param h1
+     *            the first hash of the element
+     * @param h2
+     *            the second hash of the element
+     * @param i
+     *            the index of the bit, 0 <= i < numHashes
+     * @return the bit position
+     */
+    private long position(int h1, int h2, int i) {
+        long combined = (h1 & 0xFFFFFFFFL) + (long) i * (h2 & 0xFFFFFFFFL);
+        return combined % this.numBits;
+    }
+
+    /**
+     * Adds {@code x} to this filter.
+     *
+     * @param x
+     *            the element to add
+     * @ensures this.mightContain(x)
+     */
+    public void add(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int h1 = mix(x.hashCode());
+        int h2 = mix(h1) | 1;
+        for (int i = 0; i < this.numHashes; i++) {
+            long p = this.position(h1, h2, i);
+            this.bits[(int) (p >>> WORD_SHIFT)] |= 1L << p;
+        }
+        this.added++;
+    }
+
+    /**
+     * Reports whether {@code x} may have been added to this filter. A false
+     * result is definite.
+     *
+     * @param x
+     *            the element to look for
+     * @return false if x was certainly never added, true otherwise
+     */
+    public boolean mightContain(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        int h1 = mix(x.hashCode());
+        int h2 = mix(h1) | 1;
+        boolean result = true;
+        int i = 0;
+        while (result && i < this.numHashes) {
+            long p = this.position(h1, h2, i);
+            result = (this.bits[(int) (p >>> WORD_SHIFT)] & (1L << p)) != 0;
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of elements this filter was sized for.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Reports whether more elements have been added than this filter was sized
+     * for, so that its false-positive rate is above the target.
+     *
+     * @return true iff more than capacity() elements have been added
+     */
+    public boolean isFull() {
+        return this.added > this.capacity;
+    }
+
+}
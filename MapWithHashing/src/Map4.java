@@ -26,7 +26,10 @@ import components.map.MapSecondary;
  * $this.size = sum i: integer, pf: PARTIAL_FUNCTION
  *     where (0 <= i  and  i < |$this.hashTable|  and
  *            <pf> = $this.hashTable[i, i+1))
- *   (|pf|)
+ *   (|pf|)  and
+ * [$this.filter is null iff $this.falsePositiveRate = 0]  and
+ * [if $this.filter is not null, every key in $this.hashTable has been
+ *  added to $this.filter]
  * </pre>
  * @correspondence <pre>
  * this = union i: integer, pf: PARTIAL_FUNCTION
@@ -49,6 +52,11 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private static final int DEFAULT_HASH_TABLE_SIZE = 101;
 
+    /**
+     * Initial number of keys the Bloom filter is sized for.
+     */
+    private static final int INITIAL_FILTER_CAPACITY = 64;
+
     /**
      * Buckets for hashing.
      */
@@ -59,6 +67,18 @@ public class Map4<K, V> extends MapSecondary<K, V> {
      */
     private int size;
 
+    /**
+     * Optional Bloom filter of the keys in {@code hashTable}, which lets
+     * {@code hasKey} answer most misses without searching a bucket; null if
+     * filtering is off.
+     */
+    private BloomFilter<K> filter;
+
+    /**
+     * Target false-positive rate of {@code filter}, or 0 if filtering is off.
+     */
+    private double falsePositiveRate;
+
     /**
      * Computes {@code a} mod {@code b} as % should have been defined to work.
      *
@@ -89,6 +109,21 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         return remainder;
     }
 
+    /**
+     * Replaces {@code this.filter} with a new filter of all keys of
+     * {@code this}, sized for twice as many keys, so that the false-positive
+     * rate is back under its target and bits left over from removed keys are
+     * dropped. Called when the filter is full, so over many {@code add}s the
+     * rebuilds cost amortized constant time each.
+     */
+    private void rebuildFilter() {
+        int capacity = Math.max(INITIAL_FILTER_CAPACITY, 2 * this.size);
+        this.filter = new BloomFilter<K>(capacity, this.falsePositiveRate);
+        for (Pair<K, V> p : this) {
+            this.filter.add(p.key());
+        }
+    }
+
     /**
      * Creator of initial representation.
      *
@@ -118,6 +153,10 @@ public class Map4<K, V> extends MapSecondary<K, V> {
             this.hashTable[i] = new Map2<K, V>();
         }
         this.size = 0;
+        if (this.falsePositiveRate > 0) {
+            this.filter = new BloomFilter<K>(INITIAL_FILTER_CAPACITY,
+                    this.falsePositiveRate);
+        }
     }
 
     /*
@@ -145,6 +184,30 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         this.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
+    /**
+     * Constructor resulting in a hash table of size {@code hashTableSize} with
+     * a Bloom filter of the keys in front of it, so that {@code hasKey}
+     * returns false without searching a bucket for all but about
+     * {@code falsePositiveRate} of the keys not in {@code this}. The filter is
+     * rebuilt, twice as large, whenever more keys have been added to it than
+     * it was sized for.
+     *
+     * @param hashTableSize
+     *            size of hash table
+     * @param falsePositiveRate
+     *            target rate of misses that still search a bucket
+     * @requires hashTableSize > 0  and  0 < falsePositiveRate < 1
+     * @ensures this = {}
+     */
+    public Map4(int hashTableSize, double falsePositiveRate) {
+        assert 0 < falsePositiveRate
+                && falsePositiveRate < 1 : ""
+                        + "Violation of: 0 < falsePositiveRate < 1";
+
+        this.falsePositiveRate = falsePositiveRate;
+        this.createNewRep(hashTableSize);
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -179,6 +242,8 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         Map4<K, V> localSource = (Map4<K, V>) source;
         this.hashTable = localSource.hashTable;
         this.size = localSource.size;
+        this.filter = localSource.filter;
+        this.falsePositiveRate = localSource.falsePositiveRate;
         localSource.createNewRep(DEFAULT_HASH_TABLE_SIZE);
     }
 
@@ -197,6 +262,12 @@ public class Map4<K, V> extends MapSecondary<K, V> {
         this.hashTable[bucket].add(key, value);
         //size of the map should go up one
         this.size++;
+        if (this.filter != null) {
+            this.filter.add(key);
+            if (this.filter.isFull()) {
+                this.rebuildFilter();
+            }
+        }
     }
 
     @Override
@@ -246,10 +317,16 @@ public class Map4<K, V> extends MapSecondary<K, V> {
     public final boolean hasKey(K key) {
         assert key != null : "Violation of: key is not null";
 
-        int bucket = mod(key.hashCode(), this.hashTable.length);
-        //should check buckets to see if any of them contain the key,
-        //returns true if one of them has it, and false if none of them have it
-        return this.hashTable[bucket].hasKey(key);
+        //a definite miss in the filter means key is not in any bucket
+        boolean found = false;
+        if (this.filter == null || this.filter.mightContain(key)) {
+            int bucket = mod(key.hashCode(), this.hashTable.length);
+            //should check buckets to see if any of them contain the key,
+            //returns true if one of them has it, and false if none of them
+            //have it
+            found = this.hashTable[bucket].hasKey(key);
+        }
+        return found;
     }
 
     @Override
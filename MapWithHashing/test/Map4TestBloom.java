@@ -0,0 +1,31 @@
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Customized JUnit test fixture for {@code Map4} using non-default constructor
+ * with hash table size 101 and a Bloom filter with false-positive rate 0.01.
+ */
+public class Map4TestBloom extends MapTest {
+
+    /**
+     * Size of hash table to be used in tests.
+     */
+    private static final int TEST_HASH_TABLE_SIZE = 101;
+
+    /**
+     * False-positive rate of the filter to be used in tests.
+     */
+    private static final double TEST_FALSE_POSITIVE_RATE = 0.01;
+
+    @Override
+    protected final Map<String, String> constructorTest() {
+        return new Map4<String, String>(TEST_HASH_TABLE_SIZE,
+                TEST_FALSE_POSITIVE_RATE);
+    }
+
+    @Override
+    protected final Map<String, String> constructorRef() {
+        return new Map1L<String, String>();
+    }
+
+}
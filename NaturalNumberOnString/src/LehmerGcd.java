@@ -0,0 +1,339 @@
+import java.util.Arrays;
+
+/**
+ * Greatest common divisors of base-10<sup>9</sup> limb magnitudes, by
+ * Lehmer's algorithm.
+ *
+ * <p>
+ * Each round of Lehmer's algorithm runs Euclid's algorithm on the top two
+ * limbs of the operands only, in {@code long} arithmetic, for as long as the
+ * quotients are sure to be the same as those of the full operands (Knuth's
+ * two-quotient test) and the cofactors stay below one limb. The steps found
+ * are then applied to the full operands at once, as a 2 x 2 matrix of
+ * one-limb cofactors, in a single linear pass; each round removes about one
+ * limb. When no step can be simulated, which happens when the quotient is
+ * large, a round is one full division instead. Once both operands fit in a
+ * {@code long}, binary GCD finishes the job.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * BASE: integer is 1000000000
+ * VALUE(
+ *   a: string of integer
+ *  ): integer satisfies
+ *  [sum of a[i] * BASE^i for 0 <= i < |a|]
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+final class LehmerGcd {
+
+    /**
+     * Value of one limb place.
+     */
+    private static final long BASE = LimbArithmetic.BASE;
+
+    /**
+     * Index of the cofactor of the larger operand in the new smaller
+     * operand, C, in the result of {@code simulate}.
+     */
+    private static final int C = 2;
+
+    /**
+     * Index of the cofactor of the smaller operand in the new smaller
+     * operand, D, in the result of {@code simulate}.
+     */
+    private static final int D = 3;
+
+    /**
+     * Index of the number of steps in the result of {@code simulate}.
+     */
+    private static final int STEPS = 4;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private LehmerGcd() {
+    }
+
+    /**
+     * Returns the greatest common divisor of two {@code long}s, by binary
+     * GCD: common factors of 2 are set aside, and then the smaller odd
+     * number is repeatedly subtracted from the larger, whose factors of 2
+     * are dropped.
+     *
+     * @param a
+     *            the first number
+     * @param b
+     *            the second number
+     * @return GCD(a, b)
+     * @requires a >= 0 and b >= 0
+     */
+    static long gcd(long a, long b) {
+        long result;
+        if (a == 0) {
+            result = b;
+        } else if (b == 0) {
+            result = a;
+        } else {
+            int shift = Long.numberOfTrailingZeros(a | b);
+            long x = a >> Long.numberOfTrailingZeros(a);
+            long y = b;
+            while (y != 0) {
+                y >>= Long.numberOfTrailingZeros(y);
+                if (x > y) {
+                    long t = x;
+                    x = y;
+                    y = t;
+                }
+                y -= x;
+            }
+            result = x << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Returns limb {@code i} of {@code a}, or 0 past its end.
+     *
+     * @param a
+     *            the magnitude
+     * @param i
+     *            the limb index
+     * @return a[i], or 0 if i >= |a|
+     */
+    private static long limb(int[] a, int i) {
+        long v = 0;
+        if (i < a.length) {
+            v = a[i];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the value of a magnitude of at most two limbs.
+     *
+     * @param a
+     *            the magnitude
+     * @return VALUE(a)
+     * @requires VALUE(a) < BASE^2
+     */
+    private static long toLong(int[] a) {
+        return limb(a, 1) * BASE + limb(a, 0);
+    }
+
+    /**
+     * Returns {@code v} as a magnitude.
+     *
+     * @param v
+     *            the value
+     * @return v in two limbs
+     * @requires 0 <= v < BASE^2
+     */
+    private static int[] fromLong(long v) {
+        return new int[] { (int) (v % BASE), (int) (v / BASE) };
+    }
+
+    /**
+     * Returns x * VALUE(a) + y * VALUE(b), for one-limb signed cofactors
+     * whose combination is known not to be negative.
+     *
+     * @param a
+     *            the first magnitude
+     * @param x
+     *            the first cofactor
+     * @param b
+     *            the second magnitude
+     * @param y
+     *            the second cofactor
+     * @return x * VALUE(a) + y * VALUE(b)
+     * @requires |x| < BASE and |y| < BASE and x * VALUE(a) + y * VALUE(b) >= 0
+     */
+    private static int[] combine(int[] a, long x, int[] b, long y) {
+        int len = Math.max(LimbArithmetic.length(a), LimbArithmetic.length(b));
+        int[] r = new int[len + 1];
+        long carry = 0;
+        for (int i = 0; i < len; i++) {
+            //each product is below BASE^2 in size, so the sum fits a long
+            long v = x * limb(a, i) + y * limb(b, i) + carry;
+            r[i] = (int) Math.floorMod(v, BASE);
+            carry = Math.floorDiv(v, BASE);
+        }
+        assert 0 <= carry && carry < BASE : ""
+                + "Violation of: x * VALUE(a) + y * VALUE(b) >= 0";
+        r[len] = (int) carry;
+        return r;
+    }
+
+    /**
+     * Simulates Euclid's algorithm on the top two limbs of {@code a} and the
+     * limbs of {@code b} at the same places, and returns the steps that are
+     * sure to match the steps on the full operands, as the matrix
+     * {A, B, C, D} with A * a + B * b and C * a + D * b the operands after
+     * them, followed by their number.
+     *
+     * @param a
+     *            the larger operand
+     * @param la
+     *            the number of limbs of a
+     * @param b
+     *            the smaller operand
+     * @return {A, B, C, D, steps}
+     * @requires 2 <= la = LimbArithmetic.length(a) and 0 < VALUE(b) <=
+     *           VALUE(a)
+     * @ensures |A|, |B|, |C|, |D| < BASE
+     */
+    private static long[] simulate(int[] a, int la, int[] b) {
+        long x = limb(a, la - 1) * BASE + limb(a, la - 2);
+        long y = limb(b, la - 1) * BASE + limb(b, la - 2);
+        long p = 1;
+        long q = 0;
+        long r = 0;
+        long s = 1;
+        long steps = 0;
+        boolean going = true;
+        while (going && y + r != 0 && y + s != 0) {
+            //the true quotient lies between these two
+            long quotient = (x + p) / (y + r);
+            going = quotient == (x + q) / (y + s) && quotient < BASE
+                    && Math.abs(p) + quotient * Math.abs(r) < BASE
+                    && Math.abs(q) + quotient * Math.abs(s) < BASE;
+            if (going) {
+                long t = p - quotient * r;
+                p = r;
+                r = t;
+                t = q - quotient * s;
+                q = s;
+                s = t;
+                t = x - quotient * y;
+                x = y;
+                y = t;
+                steps++;
+            }
+        }
+        return new long[] { p, q, r, s, steps };
+    }
+
+    /**
+     * Returns the greatest common divisor of two magnitudes.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return GCD(VALUE(a), VALUE(b)), in a new array
+     */
+    static int[] gcd(int[] a, int[] b) {
+        int[] x = a;
+        int[] y = b;
+        if (LimbArithmetic.compare(x, y) < 0) {
+            x = b;
+            y = a;
+        }
+        int[] result = null;
+        while (result == null) {
+            int lx = LimbArithmetic.length(x);
+            if (LimbArithmetic.length(y) == 0) {
+                //x may be a or b, which the caller still owns
+                result = Arrays.copyOf(x, lx);
+            } else if (lx <= 2) {
+                result = fromLong(gcd(toLong(x), toLong(y)));
+            } else {
+                long[] m = simulate(x, lx, y);
+                if (m[STEPS] == 0) {
+                    int[] rem = LimbArithmetic.divide(x, y)[1];
+                    x = y;
+                    y = rem;
+                } else {
+                    int[] nx = combine(x, m[0], y, m[1]);
+                    y = combine(x, m[C], y, m[D]);
+                    x = nx;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the greatest common divisor g of two magnitudes a and b, with
+     * cofactors x and y such that a * x = g + b * y.
+     *
+     * <p>
+     * Alongside the remainders r[k] of Euclid's algorithm, the cofactors
+     * s[k] with r[k] = s[k] * a mod b are tracked. Their signs alternate,
+     * (-1)^k, so only their magnitudes are kept, and a Lehmer round adds
+     * them with the magnitudes of its matrix entries. At the end, x is the
+     * cofactor of g taken into 1..b/g.
+     * </p>
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return {g, x, y}
+     * @requires VALUE(a) > 0
+     * @ensures <pre>
+     * VALUE(extendedGcd[0]) = GCD(VALUE(a), VALUE(b))  and
+     * VALUE(a) * VALUE(extendedGcd[1]) =
+     *  VALUE(extendedGcd[0]) + VALUE(b) * VALUE(extendedGcd[2])  and
+     * [0 < VALUE(extendedGcd[1]) <= VALUE(b) / VALUE(extendedGcd[0]),
+     *  if VALUE(b) > 0]
+     * </pre>
+     */
+    static int[][] extendedGcd(int[] a, int[] b) {
+        assert LimbArithmetic.length(a) > 0 : "Violation of: VALUE(a) > 0";
+
+        int[][] result;
+        if (LimbArithmetic.length(b) == 0) {
+            result = new int[][] {
+                Arrays.copyOf(a, LimbArithmetic.length(a)), { 1 }, {} };
+        } else {
+            //r[0] = a, r[1] = b, s[0] = 1, s[1] = 0
+            int[] x = a;
+            int[] y = b;
+            int[] sx = { 1 };
+            int[] sy = {};
+            long k = 0;
+            while (LimbArithmetic.length(y) > 0) {
+                int lx = LimbArithmetic.length(x);
+                long[] m = null;
+                if (lx >= 2 && LimbArithmetic.compare(x, y) >= 0) {
+                    m = simulate(x, lx, y);
+                }
+                if (m == null || m[STEPS] == 0) {
+                    int[][] qr = LimbArithmetic.divide(x, y);
+                    int[] s = LimbArithmetic.add(sx,
+                            LimbArithmetic.multiply(qr[0], sy));
+                    x = y;
+                    y = qr[1];
+                    sx = sy;
+                    sy = s;
+                    k++;
+                } else {
+                    int[] nx = combine(x, m[0], y, m[1]);
+                    y = combine(x, m[C], y, m[D]);
+                    x = nx;
+                    int[] ns = combine(sx, Math.abs(m[0]), sy,
+                            Math.abs(m[1]));
+                    sy = combine(sx, Math.abs(m[C]), sy, Math.abs(m[D]));
+                    sx = ns;
+                    k += m[STEPS];
+                }
+            }
+            int[] g = Arrays.copyOf(x, LimbArithmetic.length(x));
+            int[] bound = LimbArithmetic.divide(b, g)[0];
+            int[] cofactor = sx;
+            if (k % 2 != 0) {
+                //s[k] <= 0, and s[k] = 0 only when g = b: take it into
+                //1..b/g
+                cofactor = LimbArithmetic.subtract(bound, sx);
+            }
+            int[] other = LimbArithmetic.divide(LimbArithmetic.subtract(
+                    LimbArithmetic.multiply(a, cofactor), g), b)[0];
+            result = new int[][] { g, cofactor, other };
+        }
+        return result;
+    }
+
+}
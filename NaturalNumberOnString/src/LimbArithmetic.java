@@ -0,0 +1,1327 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Arithmetic on magnitudes held as base-10<sup>9</sup> limbs, least
+ * significant limb first, in a range {@code a[off, off + len)} of an
+ * {@code int} array, as {@code NaturalNumber3} stores them. The in-place
+ * methods make one pass over the limbs and allocate nothing; the others take
+ * whole arrays, which may have zero limbs at the top, and return new ones.
+ *
+ * <p>
+ * Large products run on a fork/join pool: the sub-products of Karatsuba,
+ * Toom-3 and sliced unbalanced multiplication are forked off as separate
+ * tasks once the shorter operand reaches {@code PARALLEL_THRESHOLD} limbs,
+ * and so are the three transforms of the NTT. {@code multiply(a, b)} starts
+ * such a product on the common pool when it is not already running in a
+ * pool.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * BASE: integer is 1000000000
+ * VALUE(
+ *   a: string of integer, off: integer, len: integer
+ *  ): integer satisfies
+ *  [sum of a[off + i] * BASE^i for 0 <= i < len]
+ * IS_LIMBS(
+ *   a: string of integer, off: integer, len: integer
+ *  ): boolean satisfies
+ *  0 <= off  and  0 <= len  and  off + len <= |a|  and
+ *  [all entries of a[off, off + len) are in 0..BASE-1]
+ * VALUE(
+ *   a: string of integer
+ *  ): integer is VALUE(a, 0, |a|)
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+final class LimbArithmetic {
+
+    /**
+     * Value of one limb place.
+     */
+    static final int BASE = 1000000000;
+
+    /**
+     * Decimal digits per limb.
+     */
+    private static final int LIMB_DIGITS = 9;
+
+    /**
+     * Radix of the digits.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Number of limbs of the shorter operand from which {@code multiply}
+     * uses Karatsuba instead of schoolbook multiplication.
+     */
+    static final int KARATSUBA_THRESHOLD = 40;
+
+    /**
+     * Number of limbs of the shorter operand from which {@code multiply}
+     * uses Toom-3 instead of Karatsuba multiplication.
+     */
+    static final int TOOM3_THRESHOLD = 160;
+
+    /**
+     * Number of limbs of the shorter operand from which {@code multiply}
+     * uses the number-theoretic transform instead of Toom-3 multiplication.
+     */
+    static final int NTT_THRESHOLD = 1500;
+
+    /**
+     * Number of limbs of the divisor from which {@code divide} uses
+     * Burnikel-Ziegler instead of schoolbook division; also the size of the
+     * blocks at which the recursion stops.
+     */
+    static final int BURNIKEL_ZIEGLER_THRESHOLD = 150;
+
+    /**
+     * Number of limbs by which the dividend must be longer than the divisor
+     * for {@code divide} to use Burnikel-Ziegler division.
+     */
+    static final int BURNIKEL_ZIEGLER_OFFSET = 40;
+
+    /**
+     * Number of limbs of the shorter operand from which the sub-products of
+     * {@code multiply} are forked off to run in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 2000;
+
+    /**
+     * The magnitude 1.
+     */
+    private static final int[] ONE = { 1 };
+
+    /**
+     * A product of two magnitudes, as a task for a fork/join pool.
+     */
+    private static final class Product extends RecursiveTask<int[]> {
+
+        /**
+         * Serialization version, as RecursiveTask is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first factor.
+         */
+        private final int[] a;
+
+        /**
+         * The second factor.
+         */
+        private final int[] b;
+
+        /**
+         * The Karatsuba threshold.
+         */
+        private final int karatsuba;
+
+        /**
+         * The Toom-3 threshold.
+         */
+        private final int toom3;
+
+        /**
+         * The NTT threshold.
+         */
+        private final int ntt;
+
+        /**
+         * Constructor from factors and thresholds.
+         *
+         * @param a
+         *            the first factor
+         * @param b
+         *            the second factor
+         * @param karatsuba
+         *            the Karatsuba threshold
+         * @param toom3
+         *            the Toom-3 threshold
+         * @param ntt
+         *            the NTT threshold
+         */
+        Product(int[] a, int[] b, int karatsuba, int toom3, int ntt) {
+            this.a = a;
+            this.b = b;
+            this.karatsuba = karatsuba;
+            this.toom3 = toom3;
+            this.ntt = ntt;
+        }
+
+        @Override
+        protected int[] compute() {
+            return multiply(this.a, this.b, this.karatsuba, this.toom3,
+                    this.ntt);
+        }
+
+    }
+
+    /**
+     * Magnitude with a sign, for the intermediate values of Toom-3, which
+     * can be negative.
+     */
+    private static final class Signed {
+
+        /**
+         * Magnitude, as an array of limbs.
+         */
+        private final int[] mag;
+
+        /**
+         * Whether the value is below zero.
+         */
+        private final boolean negative;
+
+        /**
+         * Constructor from magnitude and sign.
+         *
+         * @param mag
+         *            the magnitude
+         * @param negative
+         *            whether the value is below zero
+         */
+        Signed(int[] mag, boolean negative) {
+            this.mag = mag;
+            this.negative = negative && length(mag) > 0;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private LimbArithmetic() {
+    }
+
+    /**
+     * Compares two magnitudes, first by number of limbs.
+     *
+     * @param a
+     *            the array holding the first magnitude
+     * @param aOff
+     *            index of its least significant limb
+     * @param aLen
+     *            its number of limbs
+     * @param b
+     *            the array holding the second magnitude
+     * @param bOff
+     *            index of its least significant limb
+     * @param bLen
+     *            its number of limbs
+     * @return negative, zero or positive as VALUE(a, aOff, aLen) is less than,
+     *         equal to, or greater than VALUE(b, bOff, bLen)
+     * @requires <pre>
+     * IS_LIMBS(a, aOff, aLen)  and  IS_LIMBS(b, bOff, bLen)  and
+     * [neither magnitude has a zero most significant limb]
+     * </pre>
+     */
+    static int compare(int[] a, int aOff, int aLen, int[] b, int bOff,
+            int bLen) {
+        int result = Integer.compare(aLen, bLen);
+        int i = aLen - 1;
+        while (result == 0 && i >= 0) {
+            result = Integer.compare(a[aOff + i], b[bOff + i]);
+            i--;
+        }
+        return result;
+    }
+
+    /**
+     * Adds the second magnitude to the first, in place.
+     *
+     * @param a
+     *            the array holding the first magnitude
+     * @param aOff
+     *            index of its least significant limb
+     * @param aLen
+     *            its number of limbs
+     * @param b
+     *            the array holding the second magnitude
+     * @param bOff
+     *            index of its least significant limb
+     * @param bLen
+     *            its number of limbs
+     * @return the carry out of the top limb, 0 or 1
+     * @updates a
+     * @requires <pre>
+     * IS_LIMBS(a, aOff, aLen)  and  IS_LIMBS(b, bOff, bLen)  and  bLen <= aLen
+     * </pre>
+     * @ensures <pre>
+     * VALUE(a, aOff, aLen) + addInPlace * BASE^aLen =
+     *  VALUE(#a, aOff, aLen) + VALUE(b, bOff, bLen)
+     * </pre>
+     */
+    static int addInPlace(int[] a, int aOff, int aLen, int[] b, int bOff,
+            int bLen) {
+        assert bLen <= aLen : "Violation of: bLen <= aLen";
+
+        int carry = 0;
+        int i = 0;
+        while (i < bLen) {
+            int v = a[aOff + i] + b[bOff + i] + carry;
+            if (v >= BASE) {
+                v -= BASE;
+                carry = 1;
+            } else {
+                carry = 0;
+            }
+            a[aOff + i] = v;
+            i++;
+        }
+        //ripple the carry through the rest of a
+        while (carry > 0 && i < aLen) {
+            if (a[aOff + i] == BASE - 1) {
+                a[aOff + i] = 0;
+            } else {
+                a[aOff + i]++;
+                carry = 0;
+            }
+            i++;
+        }
+        return carry;
+    }
+
+    /**
+     * Subtracts the second magnitude from the first, in place.
+     *
+     * @param a
+     *            the array holding the first magnitude
+     * @param aOff
+     *            index of its least significant limb
+     * @param aLen
+     *            its number of limbs
+     * @param b
+     *            the array holding the second magnitude
+     * @param bOff
+     *            index of its least significant limb
+     * @param bLen
+     *            its number of limbs
+     * @updates a
+     * @requires <pre>
+     * IS_LIMBS(a, aOff, aLen)  and  IS_LIMBS(b, bOff, bLen)  and
+     * bLen <= aLen  and  VALUE(b, bOff, bLen) <= VALUE(a, aOff, aLen)
+     * </pre>
+     * @ensures <pre>
+     * VALUE(a, aOff, aLen) = VALUE(#a, aOff, aLen) - VALUE(b, bOff, bLen)
+     * </pre>
+     */
+    static void subtractInPlace(int[] a, int aOff, int aLen, int[] b,
+            int bOff, int bLen) {
+        assert bLen <= aLen : "Violation of: bLen <= aLen";
+
+        int borrow = 0;
+        int i = 0;
+        while (i < bLen) {
+            int v = a[aOff + i] - b[bOff + i] - borrow;
+            if (v < 0) {
+                v += BASE;
+                borrow = 1;
+            } else {
+                borrow = 0;
+            }
+            a[aOff + i] = v;
+            i++;
+        }
+        //ripple the borrow through the rest of a
+        while (borrow > 0) {
+            assert i < aLen : "Violation of: VALUE(b) <= VALUE(a)";
+            if (a[aOff + i] == 0) {
+                a[aOff + i] = BASE - 1;
+            } else {
+                a[aOff + i]--;
+                borrow = 0;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Multiplies a magnitude by a small factor and adds a small value, in
+     * place.
+     *
+     * @param a
+     *            the array holding the magnitude
+     * @param off
+     *            index of its least significant limb
+     * @param len
+     *            its number of limbs
+     * @param m
+     *            the factor
+     * @param add
+     *            the value to add
+     * @return the carry out of the top limb
+     * @updates a
+     * @requires IS_LIMBS(a, off, len) and 0 <= m <= BASE and 0 <= add < BASE
+     * @ensures <pre>
+     * VALUE(a, off, len) + multiplySmallInPlace * BASE^len =
+     *  VALUE(#a, off, len) * m + add
+     * </pre>
+     */
+    static int multiplySmallInPlace(int[] a, int off, int len, int m,
+            int add) {
+        long carry = add;
+        for (int i = 0; i < len; i++) {
+            long v = a[off + i] * (long) m + carry;
+            a[off + i] = (int) (v % BASE);
+            carry = v / BASE;
+        }
+        return (int) carry;
+    }
+
+    /**
+     * Returns the number of limbs of {@code a} without its zero most
+     * significant limbs.
+     *
+     * @param a
+     *            the magnitude
+     * @return the length of a without leading zero limbs
+     */
+    static int length(int[] a) {
+        int len = a.length;
+        while (len > 0 && a[len - 1] == 0) {
+            len--;
+        }
+        return len;
+    }
+
+    /**
+     * Returns limbs {@code [lo, hi)} of {@code a} as a new magnitude, where
+     * limbs past the end of {@code a} are zero.
+     *
+     * @param a
+     *            the magnitude
+     * @param lo
+     *            the index of the first limb
+     * @param hi
+     *            one past the index of the last limb
+     * @return VALUE(a, lo, hi - lo), with limbs past |a| taken as 0
+     * @requires 0 <= lo <= hi
+     */
+    private static int[] part(int[] a, int lo, int hi) {
+        int[] p = new int[Math.max(0, Math.min(hi, a.length) - lo)];
+        if (p.length > 0) {
+            System.arraycopy(a, lo, p, 0, p.length);
+        }
+        return p;
+    }
+
+    /**
+     * Returns the sum of two magnitudes.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return VALUE(a) + VALUE(b)
+     */
+    static int[] add(int[] a, int[] b) {
+        int[] big = a;
+        int[] small = b;
+        if (length(a) < length(b)) {
+            big = b;
+            small = a;
+        }
+        int bigLen = length(big);
+        int[] sum = new int[bigLen + 1];
+        System.arraycopy(big, 0, sum, 0, bigLen);
+        sum[bigLen] = addInPlace(sum, 0, bigLen, small, 0, length(small));
+        return sum;
+    }
+
+    /**
+     * Returns the difference of two magnitudes.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return VALUE(a) - VALUE(b)
+     * @requires VALUE(b) <= VALUE(a)
+     */
+    static int[] subtract(int[] a, int[] b) {
+        int aLen = length(a);
+        int[] diff = new int[aLen];
+        System.arraycopy(a, 0, diff, 0, aLen);
+        subtractInPlace(diff, 0, aLen, b, 0, length(b));
+        return diff;
+    }
+
+    /**
+     * Adds magnitude {@code x}, shifted up by {@code shift} limbs, into
+     * {@code r}.
+     *
+     * @param r
+     *            the magnitude added to
+     * @param x
+     *            the magnitude to add
+     * @param shift
+     *            the number of limbs to shift x by
+     * @updates r
+     * @requires [VALUE(r) + VALUE(x) * BASE^shift < BASE^|r|]
+     * @ensures VALUE(r) = VALUE(#r) + VALUE(x) * BASE^shift
+     */
+    private static void addShifted(int[] r, int[] x, int shift) {
+        int xLen = length(x);
+        if (xLen > 0) {
+            int carry = addInPlace(r, shift, r.length - shift, x, 0, xLen);
+            assert carry == 0 : "Violation of: the sum fits in r";
+        }
+    }
+
+    /**
+     * Returns the product of two magnitudes by schoolbook multiplication.
+     *
+     * @param a
+     *            the first magnitude
+     * @param aLen
+     *            the number of limbs of a to use
+     * @param b
+     *            the second magnitude
+     * @param bLen
+     *            the number of limbs of b to use
+     * @return VALUE(a, 0, aLen) * VALUE(b, 0, bLen), in aLen + bLen limbs
+     */
+    private static int[] schoolbook(int[] a, int aLen, int[] b, int bLen) {
+        int[] r = new int[aLen + bLen];
+        for (int i = 0; i < aLen; i++) {
+            long ai = a[i];
+            if (ai != 0) {
+                long carry = 0;
+                for (int j = 0; j < bLen; j++) {
+                    long v = ai * b[j] + r[i + j] + carry;
+                    r[i + j] = (int) (v % BASE);
+                    carry = v / BASE;
+                }
+                r[i + bLen] = (int) carry;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns the products xs[i] * ys[i]. When running in a fork/join pool
+     * and the operands are large, all but the first are forked off as
+     * separate tasks, and the current thread computes the first.
+     *
+     * @param xs
+     *            the first factors
+     * @param ys
+     *            the second factors
+     * @param size
+     *            the length of the shorter operand of the enclosing product
+     * @param karatsuba
+     *            the Karatsuba threshold
+     * @param toom3
+     *            the Toom-3 threshold
+     * @param ntt
+     *            the NTT threshold
+     * @return the products, in order
+     * @requires |xs| = |ys| > 0
+     */
+    private static int[][] multiplyAll(int[][] xs, int[][] ys, int size,
+            int karatsuba, int toom3, int ntt) {
+        int[][] r = new int[xs.length][];
+        if (size >= PARALLEL_THRESHOLD && ForkJoinTask.inForkJoinPool()) {
+            Product[] tasks = new Product[xs.length];
+            for (int i = 1; i < xs.length; i++) {
+                tasks[i] = new Product(xs[i], ys[i], karatsuba, toom3, ntt);
+                tasks[i].fork();
+            }
+            r[0] = multiply(xs[0], ys[0], karatsuba, toom3, ntt);
+            //join the most recently forked first, as it is the likeliest to
+            //be still in this worker's own queue
+            for (int i = xs.length - 1; i > 0; i--) {
+                r[i] = tasks[i].join();
+            }
+        } else {
+            for (int i = 0; i < xs.length; i++) {
+                r[i] = multiply(xs[i], ys[i], karatsuba, toom3, ntt);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Returns the product of two magnitudes by Karatsuba multiplication, one
+     * level of it: three half-size products instead of four.
+     *
+     * @param a
+     *            the first magnitude
+     * @param aLen
+     *            the number of limbs of a
+     * @param b
+     *            the second magnitude
+     * @param bLen
+     *            the number of limbs of b
+     * @param karatsuba
+     *            the Karatsuba threshold for the sub-products
+     * @param toom3
+     *            the Toom-3 threshold for the sub-products
+     * @param ntt
+     *            the NTT threshold for the sub-products
+     * @return VALUE(a) * VALUE(b), in aLen + bLen limbs
+     * @requires aLen = length(a) and bLen = length(b) and
+     *           [the operands are within a factor of two in length]
+     */
+    private static int[] karatsuba(int[] a, int aLen, int[] b, int bLen,
+            int karatsuba, int toom3, int ntt) {
+        //a = a1 * BASE^h + a0 and b = b1 * BASE^h + b0
+        int h = (Math.max(aLen, bLen) + 1) / 2;
+        int[] a0 = part(a, 0, h);
+        int[] a1 = part(a, h, aLen);
+        int[] b0 = part(b, 0, h);
+        int[] b1 = part(b, h, bLen);
+        //(a0 + a1)(b0 + b1) - z0 - z2 = a0 b1 + a1 b0
+        int[][] z = multiplyAll(new int[][] { a0, a1, add(a0, a1) },
+                new int[][] { b0, b1, add(b0, b1) }, Math.min(aLen, bLen),
+                karatsuba, toom3, ntt);
+        int[] z0 = z[0];
+        int[] z2 = z[1];
+        int[] z1 = z[2];
+        int z1Len = length(z1);
+        subtractInPlace(z1, 0, z1Len, z0, 0, length(z0));
+        subtractInPlace(z1, 0, z1Len, z2, 0, length(z2));
+        int[] r = new int[aLen + bLen];
+        addShifted(r, z0, 0);
+        addShifted(r, z1, h);
+        addShifted(r, z2, 2 * h);
+        return r;
+    }
+
+    /**
+     * Returns the sum of two signed values.
+     *
+     * @param x
+     *            the first value
+     * @param y
+     *            the second value
+     * @return x + y
+     */
+    private static Signed add(Signed x, Signed y) {
+        Signed result;
+        if (x.negative == y.negative) {
+            result = new Signed(add(x.mag, y.mag), x.negative);
+        } else if (compare(x.mag, 0, length(x.mag), y.mag, 0,
+                length(y.mag)) >= 0) {
+            result = new Signed(subtract(x.mag, y.mag), x.negative);
+        } else {
+            result = new Signed(subtract(y.mag, x.mag), y.negative);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the difference of two signed values.
+     *
+     * @param x
+     *            the first value
+     * @param y
+     *            the second value
+     * @return x - y
+     */
+    private static Signed subtract(Signed x, Signed y) {
+        return add(x, new Signed(y.mag, !y.negative));
+    }
+
+    /**
+     * Returns a signed value multiplied by a small factor.
+     *
+     * @param x
+     *            the value
+     * @param m
+     *            the factor
+     * @return x * m
+     * @requires 0 <= m <= BASE
+     */
+    private static Signed multiplySmall(Signed x, int m) {
+        int len = length(x.mag);
+        int[] p = new int[len + 1];
+        System.arraycopy(x.mag, 0, p, 0, len);
+        p[len] = multiplySmallInPlace(p, 0, len, m, 0);
+        return new Signed(p, x.negative);
+    }
+
+    /**
+     * Returns a signed value divided by a small divisor that divides it
+     * exactly.
+     *
+     * @param x
+     *            the value
+     * @param d
+     *            the divisor
+     * @return x / d
+     * @requires 0 < d <= BASE and [d divides x]
+     */
+    private static Signed divideExact(Signed x, int d) {
+        int len = length(x.mag);
+        int[] q = new int[len];
+        long rem = 0;
+        for (int i = len - 1; i >= 0; i--) {
+            long v = rem * BASE + x.mag[i];
+            q[i] = (int) (v / d);
+            rem = v % d;
+        }
+        assert rem == 0 : "Violation of: d divides x";
+        return new Signed(q, x.negative);
+    }
+
+    /**
+     * Returns the product of two magnitudes by Toom-3 multiplication, one
+     * level of it: each operand is split in three, and five third-size
+     * products (at 0, 1, -1, -2 and infinity) are interpolated with the
+     * sequence of Bodrato, which needs only exact divisions by 2 and 3.
+     *
+     * @param a
+     *            the first magnitude
+     * @param aLen
+     *            the number of limbs of a
+     * @param b
+     *            the second magnitude
+     * @param bLen
+     *            the number of limbs of b
+     * @param karatsuba
+     *            the Karatsuba threshold for the sub-products
+     * @param toom3
+     *            the Toom-3 threshold for the sub-products
+     * @param ntt
+     *            the NTT threshold for the sub-products
+     * @return VALUE(a) * VALUE(b), in aLen + bLen limbs
+     * @requires aLen = length(a) and bLen = length(b) and
+     *           [the operands are within a factor of two in length]
+     */
+    private static int[] toom3(int[] a, int aLen, int[] b, int bLen,
+            int karatsuba, int toom3, int ntt) {
+        final int three = 3;
+        //a = a2 x^2 + a1 x + a0 and b likewise, where x = BASE^k
+        int k = (Math.max(aLen, bLen) + 2) / three;
+        Signed[] va = evaluate(part(a, 0, k), part(a, k, 2 * k),
+                part(a, 2 * k, aLen));
+        Signed[] vb = evaluate(part(b, 0, k), part(b, k, 2 * k),
+                part(b, 2 * k, bLen));
+        int[][] xs = new int[va.length][];
+        int[][] ys = new int[vb.length][];
+        for (int i = 0; i < va.length; i++) {
+            xs[i] = va[i].mag;
+            ys[i] = vb[i].mag;
+        }
+        int[][] products = multiplyAll(xs, ys, Math.min(aLen, bLen),
+                karatsuba, toom3, ntt);
+        Signed[] v = new Signed[va.length];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = new Signed(products[i], va[i].negative != vb[i].negative);
+        }
+        //interpolate v(0), v(1), v(-1), v(-2), v(inf) into coefficients
+        Signed r0 = v[0];
+        Signed r4 = v[4];
+        Signed r3 = divideExact(subtract(v[3], v[1]), three);
+        Signed r1 = divideExact(subtract(v[1], v[2]), 2);
+        Signed r2 = subtract(v[2], v[0]);
+        r3 = add(divideExact(subtract(r2, r3), 2), multiplySmall(r4, 2));
+        r2 = subtract(add(r2, r1), r4);
+        r1 = subtract(r1, r3);
+        //the coefficients of a product of naturals are naturals
+        assert !r1.negative && !r2.negative
+                && !r3.negative : "Violation of: coefficients >= 0";
+        int[] r = new int[aLen + bLen];
+        addShifted(r, r0.mag, 0);
+        addShifted(r, r1.mag, k);
+        addShifted(r, r2.mag, 2 * k);
+        addShifted(r, r3.mag, three * k);
+        addShifted(r, r4.mag, 2 * 2 * k);
+        return r;
+    }
+
+    /**
+     * Evaluates the polynomial p2 x^2 + p1 x + p0 at 0, 1, -1, -2 and
+     * infinity.
+     *
+     * @param p0
+     *            the constant coefficient
+     * @param p1
+     *            the linear coefficient
+     * @param p2
+     *            the quadratic coefficient
+     * @return the values at 0, 1, -1, -2 and infinity, in that order
+     */
+    private static Signed[] evaluate(int[] p0, int[] p1, int[] p2) {
+        final int points = 5;
+        Signed s0 = new Signed(p0, false);
+        Signed s1 = new Signed(p1, false);
+        Signed s2 = new Signed(p2, false);
+        Signed[] v = new Signed[points];
+        Signed even = add(s0, s2);
+        v[0] = s0;
+        v[1] = add(even, s1);
+        v[2] = subtract(even, s1);
+        //p(-2) = 2 (p(-1) + p2) - p0
+        v[3] = subtract(multiplySmall(add(v[2], s2), 2), s0);
+        v[4] = s2;
+        return v;
+    }
+
+    /**
+     * Returns the product of two magnitudes, picking schoolbook, Karatsuba,
+     * Toom-3 or number-theoretic transform multiplication by the length of
+     * the shorter operand. Operands of very different lengths are multiplied
+     * a slice of the longer one at a time, so each sub-product is balanced.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @param karatsuba
+     *            the length of the shorter operand from which Karatsuba is
+     *            used
+     * @param toom3
+     *            the length of the shorter operand from which Toom-3 is used
+     * @param ntt
+     *            the length of the shorter operand from which the
+     *            number-theoretic transform is used
+     * @return VALUE(a) * VALUE(b), in length(a) + length(b) limbs
+     * @requires 2 <= karatsuba <= toom3 and 1 <= ntt
+     */
+    static int[] multiply(int[] a, int[] b, int karatsuba, int toom3,
+            int ntt) {
+        int aLen = length(a);
+        int bLen = length(b);
+        int[] big = a;
+        int[] small = b;
+        if (aLen < bLen) {
+            big = b;
+            small = a;
+            aLen = bLen;
+            bLen = length(a);
+        }
+        int[] r;
+        if (bLen < karatsuba) {
+            r = schoolbook(big, aLen, small, bLen);
+        } else if (2 * bLen <= aLen) {
+            //unbalanced: one balanced product per slice of the longer operand
+            int slices = (aLen + bLen - 1) / bLen;
+            int[][] xs = new int[slices][];
+            int[][] ys = new int[slices][];
+            for (int i = 0; i < slices; i++) {
+                xs[i] = part(big, i * bLen, Math.min((i + 1) * bLen, aLen));
+                ys[i] = small;
+            }
+            int[][] products = multiplyAll(xs, ys, bLen, karatsuba, toom3,
+                    ntt);
+            r = new int[aLen + bLen];
+            for (int i = 0; i < slices; i++) {
+                addShifted(r, products[i], i * bLen);
+            }
+        } else if (bLen >= ntt && aLen
+                + bLen <= NumberTheoreticTransform.MAX_LENGTH) {
+            r = NumberTheoreticTransform.multiply(big, aLen, small, bLen);
+        } else if (bLen < toom3) {
+            r = karatsuba(big, aLen, small, bLen, karatsuba, toom3, ntt);
+        } else {
+            r = toom3(big, aLen, small, bLen, karatsuba, toom3, ntt);
+        }
+        return r;
+    }
+
+    /**
+     * Returns the product of two magnitudes, with the default thresholds. A
+     * large product is run on the common fork/join pool, unless the caller
+     * is already in a pool.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return VALUE(a) * VALUE(b), in length(a) + length(b) limbs
+     */
+    static int[] multiply(int[] a, int[] b) {
+        int[] r;
+        if (Math.min(length(a), length(b)) >= PARALLEL_THRESHOLD
+                && !ForkJoinTask.inForkJoinPool()) {
+            r = ForkJoinPool.commonPool().invoke(new Product(a, b,
+                    KARATSUBA_THRESHOLD, TOOM3_THRESHOLD, NTT_THRESHOLD));
+        } else {
+            r = multiply(a, b, KARATSUBA_THRESHOLD, TOOM3_THRESHOLD,
+                    NTT_THRESHOLD);
+        }
+        return r;
+    }
+
+    /**
+     * Compares two magnitudes.
+     *
+     * @param a
+     *            the first magnitude
+     * @param b
+     *            the second magnitude
+     * @return negative, zero or positive as VALUE(a) is less than, equal to,
+     *         or greater than VALUE(b)
+     */
+    static int compare(int[] a, int[] b) {
+        return compare(a, 0, length(a), b, 0, length(b));
+    }
+
+    /**
+     * Returns {@code hi} * BASE^{@code n} + {@code lo}.
+     *
+     * @param hi
+     *            the high part
+     * @param lo
+     *            the low part
+     * @param n
+     *            the number of limbs of the low part
+     * @return VALUE(hi) * BASE^n + VALUE(lo)
+     * @requires VALUE(lo) < BASE^n
+     */
+    private static int[] concat(int[] hi, int[] lo, int n) {
+        int hiLen = length(hi);
+        int[] r = new int[n + hiLen];
+        System.arraycopy(lo, 0, r, 0, length(lo));
+        System.arraycopy(hi, 0, r, n, hiLen);
+        return r;
+    }
+
+    /**
+     * Divides a magnitude by a one-limb divisor.
+     *
+     * @param a
+     *            the dividend
+     * @param d
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires 0 < d < BASE
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divideSmall[0]) * d + VALUE(divideSmall[1])  and
+     * VALUE(divideSmall[1]) < d
+     * </pre>
+     */
+    static int[][] divideSmall(int[] a, int d) {
+        int len = length(a);
+        int[] q = new int[len];
+        long rem = 0;
+        for (int i = len - 1; i >= 0; i--) {
+            long v = rem * BASE + a[i];
+            q[i] = (int) (v / d);
+            rem = v % d;
+        }
+        return new int[][] { q, { (int) rem } };
+    }
+
+    /**
+     * Divides one magnitude by another by schoolbook long division (Knuth's
+     * algorithm D): each quotient limb is estimated from the top two limbs of
+     * the remainder and the top limb of the divisor, which is first scaled up
+     * to at least BASE / 2 so that the estimate is off by at most 2.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires VALUE(b) > 0
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divideSchoolbook[0]) * VALUE(b) +
+     *  VALUE(divideSchoolbook[1])  and
+     * VALUE(divideSchoolbook[1]) < VALUE(b)
+     * </pre>
+     */
+    private static int[][] divideSchoolbook(int[] a, int[] b) {
+        int n = length(b);
+        int m = length(a);
+        assert n > 0 : "Violation of: VALUE(b) > 0";
+
+        int[][] qr;
+        if (m < n) {
+            qr = new int[][] { new int[0], part(a, 0, m) };
+        } else if (n == 1) {
+            qr = divideSmall(a, b[0]);
+        } else {
+            //scale both so the top limb of the divisor is at least BASE / 2
+            int f = (int) (BASE / (b[n - 1] + 1L));
+            int[] v = part(b, 0, n);
+            multiplySmallInPlace(v, 0, n, f, 0);
+            int[] u = new int[m + 1];
+            System.arraycopy(a, 0, u, 0, m);
+            u[m] = multiplySmallInPlace(u, 0, m, f, 0);
+            long vTop = v[n - 1];
+            long vNext = v[n - 2];
+            int[] q = new int[m - n + 1];
+            for (int j = m - n; j >= 0; j--) {
+                //estimate the quotient limb, then correct it down
+                long num = u[j + n] * (long) BASE + u[j + n - 1];
+                long qHat = num / vTop;
+                long rHat = num % vTop;
+                while (qHat >= BASE
+                        || qHat * vNext > rHat * BASE + u[j + n - 2]) {
+                    qHat--;
+                    rHat += vTop;
+                }
+                //u[j, j + n] -= qHat * v
+                long carry = 0;
+                int borrow = 0;
+                for (int i = 0; i < n; i++) {
+                    long p = qHat * v[i] + carry;
+                    carry = p / BASE;
+                    long diff = u[i + j] - p % BASE - borrow;
+                    if (diff < 0) {
+                        diff += BASE;
+                        borrow = 1;
+                    } else {
+                        borrow = 0;
+                    }
+                    u[i + j] = (int) diff;
+                }
+                long top = u[j + n] - carry - borrow;
+                if (top < 0) {
+                    //qHat was still one too large: add v back
+                    qHat--;
+                    top += addInPlace(u, j, n, v, 0, n);
+                }
+                u[j + n] = (int) top;
+                q[j] = (int) qHat;
+            }
+            int[][] scaled = divideSmall(part(u, 0, n), f);
+            assert length(scaled[1]) == 0 : "Violation of: f divides u";
+            qr = new int[][] { q, scaled[0] };
+        }
+        return qr;
+    }
+
+    /**
+     * Divides a 2n-limb magnitude by an n-limb one, by Burnikel-Ziegler:
+     * two 3-by-2 block divisions, each of which recurses on half the size.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @param n
+     *            the number of limbs of b
+     * @return {quotient, remainder}
+     * @requires <pre>
+     * |b| = n  and  b[n - 1] >= BASE / 2  and  VALUE(a) < VALUE(b) * BASE^n
+     * </pre>
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divide2n1n[0]) * VALUE(b) + VALUE(divide2n1n[1])  and
+     * VALUE(divide2n1n[1]) < VALUE(b)
+     * </pre>
+     */
+    private static int[][] divide2n1n(int[] a, int[] b, int n) {
+        int[][] qr;
+        if (n % 2 != 0 || n < BURNIKEL_ZIEGLER_THRESHOLD) {
+            qr = divideSchoolbook(a, b);
+        } else {
+            //a = [a1 a2 a3 a4] in blocks of h limbs
+            int h = n / 2;
+            int[][] qr1 = divide3n2n(part(a, h, 2 * n), b, h);
+            int[][] qr2 = divide3n2n(concat(qr1[1], part(a, 0, h), h), b, h);
+            qr = new int[][] { concat(qr1[0], qr2[0], h), qr2[1] };
+        }
+        return qr;
+    }
+
+    /**
+     * Divides a 3h-limb magnitude by a 2h-limb one: the quotient is estimated
+     * by dividing the top 2h limbs by the top h limbs of the divisor, then
+     * corrected down at most twice.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @param h
+     *            half the number of limbs of b
+     * @return {quotient, remainder}
+     * @requires <pre>
+     * |b| = 2h  and  b[2h - 1] >= BASE / 2  and
+     * VALUE(a) < VALUE(b) * BASE^h
+     * </pre>
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divide3n2n[0]) * VALUE(b) + VALUE(divide3n2n[1])  and
+     * VALUE(divide3n2n[1]) < VALUE(b)
+     * </pre>
+     */
+    private static int[][] divide3n2n(int[] a, int[] b, int h) {
+        final int three = 3;
+        int[] b1 = part(b, h, 2 * h);
+        int[] b2 = part(b, 0, h);
+        int[] a12 = part(a, h, three * h);
+        int[] q;
+        int[] r1;
+        if (compare(part(a, 2 * h, three * h), b1) < 0) {
+            int[][] qr = divide2n1n(a12, b1, h);
+            q = qr[0];
+            r1 = qr[1];
+        } else {
+            //the top of a equals b1: the quotient is BASE^h - 1
+            q = new int[h];
+            Arrays.fill(q, BASE - 1);
+            r1 = add(subtract(a12, concat(b1, new int[0], h)), b1);
+        }
+        int[] d = multiply(q, b2);
+        int[] x = concat(r1, part(a, 0, h), h);
+        while (compare(x, d) < 0) {
+            x = add(x, b);
+            q = subtract(q, ONE);
+        }
+        return new int[][] { q, subtract(x, d) };
+    }
+
+    /**
+     * Divides one magnitude by another by Burnikel-Ziegler: both are scaled
+     * so the divisor fills a block of n = j * 2^k limbs with its top limb at
+     * least BASE / 2, and the dividend is divided one n-limb block at a time
+     * by {@code divide2n1n}.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires length(b) > 0
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divideBurnikelZiegler[0]) * VALUE(b) +
+     *  VALUE(divideBurnikelZiegler[1])  and
+     * VALUE(divideBurnikelZiegler[1]) < VALUE(b)
+     * </pre>
+     */
+    private static int[][] divideBurnikelZiegler(int[] a, int[] b) {
+        int r = length(b);
+        //smallest power of two m with r / m < BURNIKEL_ZIEGLER_THRESHOLD
+        int m = Integer.highestOneBit(r / BURNIKEL_ZIEGLER_THRESHOLD) * 2;
+        int j = (r + m - 1) / m;
+        int n = j * m;
+        int shift = n - r;
+        int f = (int) (BASE / (b[r - 1] + 1L));
+        int[] bn = new int[n];
+        System.arraycopy(b, 0, bn, shift, r);
+        multiplySmallInPlace(bn, shift, r, f, 0);
+        int aLen = length(a);
+        int[] an = new int[aLen + shift + 1];
+        System.arraycopy(a, 0, an, shift, aLen);
+        an[aLen + shift] = multiplySmallInPlace(an, shift, aLen, f, 0);
+        //t blocks, the top one of which is below BASE^(n-1) <= bn
+        int t = Math.max(2, (length(an) + n) / n);
+        int[] z = part(an, (t - 2) * n, t * n);
+        int[] q = new int[(t - 1) * n];
+        int[] rem = z;
+        for (int i = t - 2; i >= 0; i--) {
+            int[][] qr = divide2n1n(z, bn, n);
+            System.arraycopy(qr[0], 0, q, i * n, length(qr[0]));
+            rem = qr[1];
+            if (i > 0) {
+                z = concat(rem, part(an, (i - 1) * n, i * n), n);
+            }
+        }
+        //undo the scaling of the remainder
+        int[][] scaled = divideSmall(part(rem, shift, Math.max(shift,
+                length(rem))), f);
+        assert length(scaled[1]) == 0 : "Violation of: f divides rem";
+        return new int[][] { q, scaled[0] };
+    }
+
+    /**
+     * Divides one magnitude by another, with schoolbook division for short
+     * divisors or quotients and Burnikel-Ziegler division otherwise.
+     *
+     * @param a
+     *            the dividend
+     * @param b
+     *            the divisor
+     * @return {quotient, remainder}
+     * @requires VALUE(b) > 0
+     * @ensures <pre>
+     * VALUE(a) = VALUE(divide[0]) * VALUE(b) + VALUE(divide[1])  and
+     * VALUE(divide[1]) < VALUE(b)
+     * </pre>
+     */
+    static int[][] divide(int[] a, int[] b) {
+        int bLen = length(b);
+        assert bLen > 0 : "Violation of: VALUE(b) > 0";
+
+        int[][] qr;
+        if (bLen < BURNIKEL_ZIEGLER_THRESHOLD
+                || length(a) - bLen < BURNIKEL_ZIEGLER_OFFSET) {
+            qr = divideSchoolbook(a, b);
+        } else {
+            qr = divideBurnikelZiegler(a, b);
+        }
+        return qr;
+    }
+
+    /**
+     * Returns {@code a} to the power {@code p}, by binary exponentiation from
+     * the most significant bit of p down: one squaring per bit, and one more
+     * product per 1 bit.
+     *
+     * @param a
+     *            the magnitude
+     * @param p
+     *            the exponent
+     * @return VALUE(a)^p
+     * @requires p >= 0
+     */
+    static int[] power(int[] a, int p) {
+        int[] result = { 1 };
+        if (p > 0) {
+            result = a;
+            for (int bit = Integer.highestOneBit(p) >> 1; bit > 0; bit >>= 1) {
+                result = multiply(result, result);
+                if ((p & bit) != 0) {
+                    result = multiply(result, a);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code a} to the power {@code p}, or null as soon as a partial
+     * power is seen to exceed {@code bound}. Each partial power is a power
+     * of a no greater than a^p, so none is computed past the size of bound.
+     *
+     * @param a
+     *            the magnitude
+     * @param p
+     *            the exponent
+     * @param bound
+     *            the bound
+     * @return VALUE(a)^p, or null if VALUE(a)^p > VALUE(bound)
+     * @requires p >= 1
+     */
+    private static int[] powerAtMost(int[] a, int p, int[] bound) {
+        int aLen = length(a);
+        int boundLen = length(bound);
+        int[] result = a;
+        int bit = Integer.highestOneBit(p) >> 1;
+        while (result != null && bit > 0) {
+            //a product of lengths x and y has at least x + y - 1 limbs
+            int len = length(result);
+            if (2 * len - 1 > boundLen) {
+                result = null;
+            } else {
+                result = multiply(result, result);
+                if ((p & bit) != 0) {
+                    if (aLen > 0 && length(result) + aLen - 1 > boundLen) {
+                        result = null;
+                    } else {
+                        result = multiply(result, a);
+                    }
+                }
+            }
+            if (result != null && compare(result, bound) > 0) {
+                result = null;
+            }
+            bit >>= 1;
+        }
+        if (result != null && compare(result, bound) > 0) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code v} as a magnitude.
+     *
+     * @param v
+     *            the value
+     * @return v in two limbs
+     * @requires 0 <= v < BASE^2
+     */
+    private static int[] fromLong(long v) {
+        return new int[] { (int) (v % BASE), (int) (v / BASE) };
+    }
+
+    /**
+     * Returns the r-th root of a magnitude whose root is below BASE^2, by
+     * bisection in a narrow window around a floating-point estimate.
+     *
+     * @param a
+     *            the magnitude
+     * @param r
+     *            the root
+     * @return [the r-th root of VALUE(a), rounded down]
+     * @requires r >= 2 and VALUE(a) < BASE^(2r)
+     */
+    private static int[] rootSmall(int[] a, int r) {
+        final long limit = (long) BASE * BASE;
+        final double margin = 1e-9;
+        //estimate from the top three limbs
+        int len = length(a);
+        double estimate = 0;
+        if (len > 0) {
+            double top = a[len - 1];
+            for (int i = 2; i <= Math.min(len, 3); i++) {
+                top = top * BASE + a[len - i];
+            }
+            double digits = Math.log10(top)
+                    + (double) (len - Math.min(len, 3)) * LIMB_DIGITS;
+            estimate = Math.pow(RADIX, digits / r);
+        }
+        long lo = Math.min(limit - 1,
+                Math.max(0, (long) (estimate * (1 - margin)) - 1));
+        long hi = Math.min(limit, (long) (estimate * (1 + margin)) + 2);
+        //keep lo^r <= VALUE(a) < hi^r, in case the estimate was off
+        if (lo > 0 && powerAtMost(fromLong(lo), r, a) == null) {
+            lo = 0;
+        }
+        if (hi < limit && powerAtMost(fromLong(hi), r, a) != null) {
+            hi = limit;
+        }
+        while (hi - lo > 1) {
+            long mid = lo + (hi - lo) / 2;
+            if (powerAtMost(fromLong(mid), r, a) != null) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return fromLong(lo);
+    }
+
+    /**
+     * Returns the r-th root of a magnitude, rounded down. The root of the
+     * top half or so of a is found first, recursively, and gives the top
+     * half of the digits of the root; Newton's iteration
+     * x' = ((r - 1) x + a / x^(r-1)) / r, started above the root, then
+     * fixes the rest, usually in one step. Each level costs a few full-size
+     * products and divisions, and the levels shrink geometrically.
+     *
+     * @param a
+     *            the magnitude
+     * @param r
+     *            the root
+     * @return [the r-th root of VALUE(a), rounded down]
+     * @requires r >= 2
+     */
+    static int[] root(int[] a, int r) {
+        int len = length(a);
+        int[] x;
+        if (len < 2 * r) {
+            x = rootSmall(a, r);
+        } else {
+            //number of low limbs of the root to leave to Newton's iteration:
+            //a little under half, so that one step is nearly always enough
+            int k = Math.max(1, (len / r - 1) / 2);
+            //r <= len / 2 < BASE, so r fits in one limb
+            int[] top = root(part(a, r * k, len), r);
+            //(top + 1) * BASE^k is above the root of a
+            x = concat(add(top, ONE), new int[0], k);
+            boolean above = true;
+            while (above) {
+                //each step is at least the root and, while x is above the
+                //root, below x; a power check is cheaper than one more step
+                x = add(multiply(x, new int[] { r - 1 }),
+                        divide(a, power(x, r - 1))[0]);
+                x = divideSmall(x, r)[0];
+                above = powerAtMost(x, r, a) == null;
+            }
+        }
+        return x;
+    }
+
+}
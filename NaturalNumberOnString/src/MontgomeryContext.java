@@ -0,0 +1,581 @@
+import java.util.Arrays;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Arithmetic modulo a fixed {@code NaturalNumber} m, for repeated modular
+ * multiplication and exponentiation on numbers of a few thousand bits.
+ *
+ * <p>
+ * Residues are kept as n-limb base-10<sup>9</sup> magnitudes in Montgomery
+ * form: x is held as x * R mod m, where R = 10<sup>9n</sup> and n is the
+ * number of limbs of m. The product of two such residues is reduced by
+ * Montgomery's method, which adds a multiple of m that clears the low limb
+ * instead of dividing by m, so {@code modPow} does no division after its
+ * setup. The products work in scratch arrays owned by the context, and the
+ * inner loops allocate nothing. Exponents are scanned with a sliding window
+ * of up to six bits over a table of odd powers.
+ * </p>
+ *
+ * <p>
+ * Montgomery reduction needs m to be coprime to R, that is not divisible by
+ * 2 or 5. For any other m, the context falls back to multiplying and then
+ * dividing by m, with the same exponentiation.
+ * </p>
+ *
+ * <p>
+ * A context is not safe for use by more than one thread at a time, since
+ * its scratch arrays are shared by all its operations.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * BASE: integer is 1000000000
+ * VALUE(
+ *   a: string of integer
+ *  ): integer satisfies
+ *  [sum of a[i] * BASE^i for 0 <= i < |a|]
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+public final class MontgomeryContext {
+
+    /**
+     * Value of one limb place.
+     */
+    private static final long BASE = LimbArithmetic.BASE;
+
+    /**
+     * Exponent lengths, in bits, above which each next window width is used;
+     * a window of w bits is used for exponents of more than
+     * WINDOW_THRESHOLDS[w - 2] bits.
+     */
+    private static final int[] WINDOW_THRESHOLDS = { 7, 25, 81, 241, 673 };
+
+    /**
+     * Bits per word of the binary form of an exponent.
+     */
+    private static final int WORD_BITS = 30;
+
+    /**
+     * The modulus, in exactly n limbs.
+     */
+    private final int[] modulus;
+
+    /**
+     * Whether Montgomery reduction is used, that is whether m is coprime to
+     * BASE.
+     */
+    private final boolean montgomery;
+
+    /**
+     * -m^(-1) mod BASE, when montgomery.
+     */
+    private final long inverse;
+
+    /**
+     * R^2 mod m, which takes a residue into Montgomery form, when
+     * montgomery.
+     */
+    private final int[] rSquared;
+
+    /**
+     * The residue 1, in n limbs.
+     */
+    private final int[] one;
+
+    /**
+     * Scratch for one Montgomery product, n + 1 limbs.
+     */
+    private final long[] product;
+
+    /**
+     * Scratch for the running result of an exponentiation.
+     */
+    private final int[] accumulator;
+
+    /**
+     * Scratch for an operand.
+     */
+    private final int[] operand;
+
+    /**
+     * Odd powers of the base of an exponentiation, x^(2k+1) in entry k; grown
+     * as needed and then reused.
+     */
+    private int[][] table;
+
+    /**
+     * Constructor.
+     *
+     * @param m
+     *            the modulus
+     * @requires m > 0
+     * @ensures this.modulus = m
+     */
+    public MontgomeryContext(NaturalNumber m) {
+        assert m != null : "Violation of: m is not null";
+        assert !m.isZero() : "Violation of: m > 0";
+
+        int[] mag = NaturalNumber3.limbsOf(m);
+        int n = LimbArithmetic.length(mag);
+        this.modulus = Arrays.copyOf(mag, n);
+        this.montgomery = gcd(this.modulus[0], BASE) == 1;
+        this.one = new int[n];
+        this.one[0] = 1;
+        this.product = new long[n + 1];
+        this.accumulator = new int[n];
+        this.operand = new int[n];
+        this.table = new int[1][n];
+        if (this.montgomery) {
+            this.inverse = BASE - inverseModBase(this.modulus[0]);
+            int[] r2 = new int[2 * n + 1];
+            r2[2 * n] = 1;
+            this.rSquared = new int[n];
+            copyInto(LimbArithmetic.divide(r2, this.modulus)[1],
+                    this.rSquared);
+        } else {
+            this.inverse = 0;
+            this.rSquared = null;
+        }
+        if (n == 1 && this.modulus[0] == 1) {
+            //everything is 0 modulo 1
+            this.one[0] = 0;
+        }
+    }
+
+    /**
+     * Returns the greatest common divisor of {@code a} and {@code b}.
+     *
+     * @param a
+     *            the first number
+     * @param b
+     *            the second number
+     * @return gcd(a, b)
+     * @requires a >= 0 and b >= 0
+     */
+    private static long gcd(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long r = x % y;
+            x = y;
+            y = r;
+        }
+        return x;
+    }
+
+    /**
+     * Returns the inverse of {@code a} modulo BASE, by the extended Euclidean
+     * algorithm.
+     *
+     * @param a
+     *            the number
+     * @return a^(-1) mod BASE
+     * @requires 0 < a < BASE and a is coprime to BASE
+     * @ensures 0 < inverseModBase < BASE and
+     *          a * inverseModBase mod BASE = 1
+     */
+    private static long inverseModBase(long a) {
+        long r0 = BASE;
+        long r1 = a;
+        long s0 = 0;
+        long s1 = 1;
+        while (r1 != 0) {
+            long q = r0 / r1;
+            long r = r0 - q * r1;
+            r0 = r1;
+            r1 = r;
+            long s = s0 - q * s1;
+            s0 = s1;
+            s1 = s;
+        }
+        return (s0 % BASE + BASE) % BASE;
+    }
+
+    /**
+     * Copies magnitude {@code src} into {@code dest}, padding with zero
+     * limbs.
+     *
+     * @param src
+     *            the magnitude
+     * @param dest
+     *            the array to fill
+     * @updates dest
+     * @requires LimbArithmetic.length(src) <= |dest|
+     * @ensures VALUE(dest) = VALUE(src) and |dest| = |#dest|
+     */
+    private static void copyInto(int[] src, int[] dest) {
+        int len = LimbArithmetic.length(src);
+        System.arraycopy(src, 0, dest, 0, len);
+        Arrays.fill(dest, len, dest.length, 0);
+    }
+
+    /**
+     * Puts {@code x mod m} into {@code dest}.
+     *
+     * @param x
+     *            the number
+     * @param dest
+     *            the n-limb array to fill
+     * @updates dest
+     * @ensures VALUE(dest) = x mod m
+     */
+    private void load(NaturalNumber x, int[] dest) {
+        int[] mag = NaturalNumber3.limbsOf(x);
+        if (LimbArithmetic.compare(mag, this.modulus) >= 0) {
+            mag = LimbArithmetic.divide(mag, this.modulus)[1];
+        }
+        copyInto(mag, dest);
+    }
+
+    /**
+     * Sets {@code x} to the residue in {@code src}.
+     *
+     * @param src
+     *            the residue
+     * @param x
+     *            the number
+     * @replaces x
+     * @ensures x = VALUE(src)
+     */
+    private static void store(int[] src, NaturalNumber x) {
+        NaturalNumber3.setLimbs(x,
+                Arrays.copyOf(src, LimbArithmetic.length(src)));
+    }
+
+    /**
+     * Puts the product of residues {@code a} and {@code b} into {@code out}:
+     * a * b * R^(-1) mod m when montgomery, else a * b mod m. Any two or all
+     * three of the arrays may be the same.
+     *
+     * @param a
+     *            the first residue
+     * @param b
+     *            the second residue
+     * @param out
+     *            the n-limb array for the result
+     * @updates out
+     * @requires VALUE(a) < m and VALUE(b) < m
+     * @ensures <pre>
+     * VALUE(out) = [VALUE(a) * VALUE(b) * R^(-1) mod m, if montgomery,
+     *  else VALUE(a) * VALUE(b) mod m]
+     * </pre>
+     */
+    private void multiplyResidues(int[] a, int[] b, int[] out) {
+        if (this.montgomery) {
+            this.montgomeryMultiply(a, b, out);
+        } else {
+            copyInto(LimbArithmetic.divide(LimbArithmetic.multiply(a, b),
+                    this.modulus)[1], out);
+        }
+    }
+
+    /**
+     * Puts a * b * R^(-1) mod m into {@code out}, by finely integrated
+     * operand scanning: for each limb of a, that limb times b and a multiple
+     * of m that clears the low limb are added in one pass, and the low limb
+     * dropped.
+     *
+     * @param a
+     *            the first residue
+     * @param b
+     *            the second residue
+     * @param out
+     *            the n-limb array for the result
+     * @updates out
+     * @requires montgomery and VALUE(a) < m and VALUE(b) < m
+     * @ensures VALUE(out) = VALUE(a) * VALUE(b) * R^(-1) mod m
+     */
+    private void montgomeryMultiply(int[] a, int[] b, int[] out) {
+        int[] m = this.modulus;
+        long[] t = this.product;
+        int n = m.length;
+        Arrays.fill(t, 0);
+        for (int i = 0; i < n; i++) {
+            //t = (t + a[i] * b + u * m) / BASE, where u makes the low limb
+            //0; each limb is below 2 * BASE^2 + BASE, which fits a long
+            long ai = a[i];
+            long v = t[0] + ai * b[0];
+            long u = v % BASE * this.inverse % BASE;
+            long carry = (v + u * m[0]) / BASE;
+            for (int j = 1; j < n; j++) {
+                v = t[j] + ai * b[j] + u * m[j] + carry;
+                t[j - 1] = v % BASE;
+                carry = v / BASE;
+            }
+            v = t[n] + carry;
+            t[n - 1] = v % BASE;
+            t[n] = v / BASE;
+        }
+        //now t < 2m
+        boolean atLeastM = t[n] != 0;
+        int k = n - 1;
+        while (!atLeastM && k >= 0 && t[k] == m[k]) {
+            k--;
+        }
+        atLeastM = atLeastM || k < 0 || t[k] > m[k];
+        long borrow = 0;
+        for (int j = 0; j < n; j++) {
+            long v = t[j];
+            if (atLeastM) {
+                v -= m[j] + borrow;
+                borrow = 0;
+                if (v < 0) {
+                    v += BASE;
+                    borrow = 1;
+                }
+            }
+            out[j] = (int) v;
+        }
+    }
+
+    /**
+     * Puts {@code x} into Montgomery form in place.
+     *
+     * @param x
+     *            the residue
+     * @updates x
+     * @ensures VALUE(x) = VALUE(#x) * R mod m, if montgomery
+     */
+    private void enter(int[] x) {
+        if (this.montgomery) {
+            this.montgomeryMultiply(x, this.rSquared, x);
+        }
+    }
+
+    /**
+     * Takes {@code x} out of Montgomery form in place.
+     *
+     * @param x
+     *            the residue
+     * @updates x
+     * @ensures VALUE(x) = VALUE(#x) * R^(-1) mod m, if montgomery
+     */
+    private void leave(int[] x) {
+        if (this.montgomery) {
+            this.montgomeryMultiply(x, this.one, x);
+        }
+    }
+
+    /**
+     * Returns the binary form of a magnitude, in 30-bit words, least
+     * significant first.
+     *
+     * @param a
+     *            the magnitude
+     * @return the words of VALUE(a) in base 2^30
+     */
+    private static int[] toBinary(int[] a) {
+        int[] rest = Arrays.copyOf(a, LimbArithmetic.length(a));
+        int len = rest.length;
+        //a base-10^9 limb is just under 2^30, so there are at most len words
+        int[] words = new int[len];
+        int count = 0;
+        while (len > 0) {
+            long rem = 0;
+            for (int i = len - 1; i >= 0; i--) {
+                long v = rem * BASE + rest[i];
+                rest[i] = (int) (v >>> WORD_BITS);
+                rem = v & ((1L << WORD_BITS) - 1);
+            }
+            words[count] = (int) rem;
+            count++;
+            while (len > 0 && rest[len - 1] == 0) {
+                len--;
+            }
+        }
+        return Arrays.copyOf(words, count);
+    }
+
+    /**
+     * Reports bit {@code i} of the binary form {@code words}.
+     *
+     * @param words
+     *            the 30-bit words
+     * @param i
+     *            the bit index
+     * @return whether bit i is 1
+     * @requires 0 <= i < 30 * |words|
+     */
+    private static boolean bit(int[] words, int i) {
+        return (words[i / WORD_BITS] >>> (i % WORD_BITS) & 1) != 0;
+    }
+
+    /**
+     * Returns the modulus.
+     *
+     * @return m
+     * @ensures modulus = this.modulus
+     */
+    public NaturalNumber modulus() {
+        NaturalNumber m = new NaturalNumber3();
+        store(this.modulus, m);
+        return m;
+    }
+
+    /**
+     * Reduces {@code x} modulo m.
+     *
+     * @param x
+     *            the number
+     * @updates x
+     * @ensures x = #x mod this.modulus
+     */
+    public void reduce(NaturalNumber x) {
+        assert x != null : "Violation of: x is not null";
+
+        this.load(x, this.accumulator);
+        store(this.accumulator, x);
+    }
+
+    /**
+     * Adds {@code y} to {@code x} modulo m.
+     *
+     * @param x
+     *            the number to add to
+     * @param y
+     *            the number to add
+     * @updates x
+     * @ensures x = (#x + y) mod this.modulus
+     */
+    public void add(NaturalNumber x, NaturalNumber y) {
+        assert x != null : "Violation of: x is not null";
+        assert y != null : "Violation of: y is not null";
+
+        this.load(x, this.accumulator);
+        this.load(y, this.operand);
+        int[] sum = LimbArithmetic.add(this.accumulator, this.operand);
+        if (LimbArithmetic.compare(sum, this.modulus) >= 0) {
+            sum = LimbArithmetic.subtract(sum, this.modulus);
+        }
+        store(sum, x);
+    }
+
+    /**
+     * Subtracts {@code y} from {@code x} modulo m.
+     *
+     * @param x
+     *            the number to subtract from
+     * @param y
+     *            the number to subtract
+     * @updates x
+     * @ensures x = (#x - y) mod this.modulus, taken in 0..this.modulus-1
+     */
+    public void subtract(NaturalNumber x, NaturalNumber y) {
+        assert x != null : "Violation of: x is not null";
+        assert y != null : "Violation of: y is not null";
+
+        this.load(x, this.accumulator);
+        this.load(y, this.operand);
+        int[] diff = this.accumulator;
+        if (LimbArithmetic.compare(diff, this.operand) < 0) {
+            diff = LimbArithmetic.add(diff, this.modulus);
+        }
+        store(LimbArithmetic.subtract(diff, this.operand), x);
+    }
+
+    /**
+     * Multiplies {@code x} by {@code y} modulo m.
+     *
+     * @param x
+     *            the number to multiply
+     * @param y
+     *            the factor
+     * @updates x
+     * @ensures x = (#x * y) mod this.modulus
+     */
+    public void multiply(NaturalNumber x, NaturalNumber y) {
+        assert x != null : "Violation of: x is not null";
+        assert y != null : "Violation of: y is not null";
+
+        this.load(x, this.accumulator);
+        this.load(y, this.operand);
+        //one factor in Montgomery form and one not gives the plain product
+        this.enter(this.accumulator);
+        this.multiplyResidues(this.accumulator, this.operand,
+                this.accumulator);
+        store(this.accumulator, x);
+    }
+
+    /**
+     * Raises {@code x} to the power {@code e} modulo m.
+     *
+     * @param x
+     *            the base
+     * @param e
+     *            the exponent
+     * @updates x
+     * @ensures x = #x^e mod this.modulus
+     */
+    public void modPow(NaturalNumber x, NaturalNumber e) {
+        assert x != null : "Violation of: x is not null";
+        assert e != null : "Violation of: e is not null";
+
+        int[] words = toBinary(NaturalNumber3.limbsOf(e));
+        int bits = 0;
+        if (words.length > 0) {
+            bits = (words.length - 1) * WORD_BITS + Integer.SIZE
+                    - Integer.numberOfLeadingZeros(words[words.length - 1]);
+        }
+        int[] acc = this.accumulator;
+        if (bits == 0) {
+            System.arraycopy(this.one, 0, acc, 0, acc.length);
+        } else {
+            int window = 1;
+            while (window <= WINDOW_THRESHOLDS.length
+                    && bits > WINDOW_THRESHOLDS[window - 1]) {
+                window++;
+            }
+            //table[k] = x^(2k+1), in Montgomery form
+            int size = 1 << (window - 1);
+            if (this.table.length < size) {
+                this.table = new int[size][this.modulus.length];
+            }
+            int[][] powers = this.table;
+            this.load(x, powers[0]);
+            this.enter(powers[0]);
+            if (size > 1) {
+                this.multiplyResidues(powers[0], powers[0], this.operand);
+                for (int k = 1; k < size; k++) {
+                    this.multiplyResidues(powers[k - 1], this.operand,
+                            powers[k]);
+                }
+            }
+            //left to right: square once per bit, and multiply once per
+            //window, which starts and ends with a 1 bit
+            boolean started = false;
+            int i = bits - 1;
+            while (i >= 0) {
+                if (!bit(words, i)) {
+                    this.multiplyResidues(acc, acc, acc);
+                    i--;
+                } else {
+                    int j = Math.max(i - window + 1, 0);
+                    while (!bit(words, j)) {
+                        j++;
+                    }
+                    int value = 0;
+                    for (int k = i; k >= j; k--) {
+                        value = 2 * value + (bit(words, k) ? 1 : 0);
+                        if (started) {
+                            this.multiplyResidues(acc, acc, acc);
+                        }
+                    }
+                    if (started) {
+                        this.multiplyResidues(acc, powers[value / 2], acc);
+                    } else {
+                        System.arraycopy(powers[value / 2], 0, acc, 0,
+                                acc.length);
+                        started = true;
+                    }
+                    i = j - 1;
+                }
+            }
+            this.leave(acc);
+        }
+        store(acc, x);
+    }
+
+}
@@ -1,17 +1,57 @@
+import java.io.IOException;
+import java.io.Writer;
+
 import components.naturalnumber.NaturalNumber;
 import components.naturalnumber.NaturalNumberSecondary;
 
 /**
- * {@code NaturalNumber} represented as a {@code String} with implementations of
- * primary methods.
+ * {@code NaturalNumber} represented as an array of base-10<sup>9</sup> limbs
+ * with implementations of primary methods.
+ *
+ * <p>
+ * Each {@code int} limb holds nine decimal digits, least significant limb
+ * first, so a number takes about 4/9 of a byte per digit. The last few
+ * decimal digits are kept apart from the limbs in a {@code long} "tail", so
+ * {@code multiplyBy10} and {@code divideBy10} only touch the tail, except
+ * once every nine digits when a full limb moves between the tail and the
+ * limbs. The limbs sit at the end of their array with free slots in front,
+ * so that move takes amortized constant time too, and building or taking
+ * apart an n-digit number one digit at a time costs O(n) in all.
+ * </p>
+ *
+ * <p>
+ * A number below 10<sup>18</sup> is normally held in the tail alone, with no
+ * limbs, and arithmetic on such numbers is done on {@code long} values with
+ * no allocation. A result that outgrows the tail moves to the limbs, and a
+ * result that fits back in the tail moves back.
+ * </p>
  *
+ * @mathdefinitions <pre>
+ * LIMB_BASE: integer is 1000000000
+ * TAIL_MAX_DIGITS: integer is 18
+ * DIGITS(
+ *   n: integer
+ *  ): integer satisfies
+ *  [number of digits in the ordinary depiction of n, or 0 if n = 0]
+ * LIMBS_VALUE(
+ *   a: string of integer, lo: integer, len: integer
+ *  ): integer satisfies
+ *  [sum of a[lo + i] * LIMB_BASE^i for 0 <= i < len]
+ * </pre>
  * @convention <pre>
- * [all characters of $this.rep are '0' through '9']  and
- * [$this.rep does not start with '0']
+ * 0 <= $this.offset  and  0 <= $this.length  and
+ * $this.offset + $this.length <= |$this.limbs|  and
+ * [all entries of $this.limbs[$this.offset, $this.offset + $this.length)
+ *  are in 0..LIMB_BASE-1]  and
+ * [if $this.length > 0 then
+ *  $this.limbs[$this.offset + $this.length - 1] /= 0]  and
+ * 0 <= $this.tailDigits <= TAIL_MAX_DIGITS  and
+ * 0 <= $this.tail < 10^$this.tailDigits  and
+ * [if $this.length = 0 then $this.tailDigits = DIGITS($this.tail)]
  * </pre>
  * @correspondence <pre>
- * this = [if $this.rep = "" then 0
- *         else the decimal number whose ordinary depiction is $this.rep]
+ * this = LIMBS_VALUE($this.limbs, $this.offset, $this.length) *
+ *        10^$this.tailDigits + $this.tail
  * </pre>
  *
  * @author Yanqing Xu, Shafin Alam
@@ -24,18 +64,546 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
      */
 
     /**
-     * Representation of {@code this}.
+     * Value of one limb place.
+     */
+    private static final int LIMB_BASE = 1000000000;
+
+    /**
+     * Number of decimal digits in one limb.
+     */
+    private static final int LIMB_DIGITS = 9;
+
+    /**
+     * Maximum number of decimal digits in the tail; 10^18 still fits in a
+     * {@code long} after one more {@code multiplyBy10}.
+     */
+    private static final int TAIL_MAX_DIGITS = 18;
+
+    /**
+     * Minimum number of free slots made in front of the limbs when the array
+     * grows.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Powers of ten that fit in a {@code long}: POWERS_OF_TEN[i] = 10^i.
+     */
+    private static final long[] POWERS_OF_TEN = new long[TAIL_MAX_DIGITS
+            + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * RADIX;
+        }
+    }
+
+    /**
+     * Least number that is not held in the tail alone, 10^18.
+     */
+    private static final long INLINE_LIMIT = POWERS_OF_TEN[TAIL_MAX_DIGITS];
+
+    /**
+     * Size of the character buffer used by {@code writeTo}.
+     */
+    private static final int WRITE_BUFFER_SIZE = 4096;
+
+    /**
+     * Shared empty limb array, so that small numbers allocate no array.
+     */
+    private static final int[] NO_LIMBS = {};
+
+    /**
+     * Limbs of {@code this} above the tail, least significant first, stored
+     * in {@code limbs[offset, offset + length)}.
+     */
+    private int[] limbs;
+
+    /**
+     * Index of the least significant limb.
      */
-    private String rep;
+    private int offset;
+
+    /**
+     * Number of limbs in use.
+     */
+    private int length;
+
+    /**
+     * Lowest {@code tailDigits} decimal digits of {@code this}.
+     */
+    private long tail;
+
+    /**
+     * Number of decimal digits held in {@code tail}.
+     */
+    private int tailDigits;
 
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
 
-        //Creates new String representation of NaturalNumber
-        this.rep = "";
+        //Creates new empty rep, which represents 0
+        this.limbs = NO_LIMBS;
+        this.offset = 0;
+        this.length = 0;
+        this.tail = 0;
+        this.tailDigits = 0;
+
+    }
+
+    /**
+     * Returns the number of decimal digits of {@code v}.
+     *
+     * @param v
+     *            the number
+     * @return DIGITS(v)
+     * @requires v >= 0
+     */
+    private static int digitCount(long v) {
+        int d = 0;
+        long rest = v;
+        while (rest > 0) {
+            rest /= RADIX;
+            d++;
+        }
+        return d;
+    }
+
+    /**
+     * Adds {@code v} as the new least significant limb. When there is no free
+     * slot in front, the limbs move to a new array with as many free slots in
+     * front as there are limbs, so over many calls each takes amortized
+     * constant time.
+     *
+     * @param v
+     *            the new limb
+     * @updates this.limbs, this.offset, this.length
+     * @requires 0 <= v < LIMB_BASE and [v /= 0 or this.length > 0]
+     * @ensures <pre>
+     * LIMBS_VALUE(this.limbs, this.offset, this.length) =
+     *  LIMBS_VALUE(#this.limbs, #this.offset, #this.length) * LIMB_BASE + v
+     * </pre>
+     */
+    private void prependLimb(int v) {
+        if (this.offset == 0 && this.length < this.limbs.length) {
+            //the free slots are all at the top: move the limbs up to them
+            int top = this.limbs.length - this.length;
+            System.arraycopy(this.limbs, 0, this.limbs, top, this.length);
+            this.offset = top;
+        } else if (this.offset == 0) {
+            int slack = Math.max(this.length, INITIAL_CAPACITY);
+            int[] bigger = new int[slack + this.length];
+            System.arraycopy(this.limbs, 0, bigger, slack, this.length);
+            this.limbs = bigger;
+            this.offset = slack;
+        }
+        this.offset--;
+        this.limbs[this.offset] = v;
+        this.length++;
+    }
+
+    /**
+     * Adds {@code v} as the new most significant limb, growing the array
+     * (keeping the free slots in front) if there is no room at the end.
+     *
+     * @param v
+     *            the new limb
+     * @updates this.limbs, this.length
+     * @requires 0 < v < LIMB_BASE
+     * @ensures <pre>
+     * LIMBS_VALUE(this.limbs, this.offset, this.length) =
+     *  LIMBS_VALUE(#this.limbs, #this.offset, #this.length) +
+     *  v * LIMB_BASE^#this.length
+     * </pre>
+     */
+    private void appendLimb(int v) {
+        this.ensureLimbCapacity(this.length + 1);
+        this.limbs[this.offset + this.length] = v;
+        this.length++;
+    }
+
+    /**
+     * Makes sure there is room for at least {@code capacity} limbs from
+     * {@code this.offset} on. If the array is large enough, the limbs move
+     * down into the free slots in front, as few as needed; otherwise the
+     * array at least doubles.
+     *
+     * @param capacity
+     *            the number of limbs needed
+     * @updates this.limbs, this.offset
+     * @ensures this.offset + capacity <= |this.limbs|
+     */
+    private void ensureLimbCapacity(int capacity) {
+        if (this.offset + capacity > this.limbs.length
+                && capacity <= this.limbs.length) {
+            int bottom = this.limbs.length - capacity;
+            System.arraycopy(this.limbs, this.offset, this.limbs, bottom,
+                    this.length);
+            this.offset = bottom;
+        } else if (this.offset + capacity > this.limbs.length) {
+            int[] bigger = new int[Math.max(this.offset + capacity,
+                    2 * this.limbs.length)];
+            System.arraycopy(this.limbs, this.offset, bigger, this.offset,
+                    this.length);
+            this.limbs = bigger;
+        }
+    }
+
+    /**
+     * Drops zero limbs from the top.
+     *
+     * @updates this.length
+     * @ensures <pre>
+     * [this.length is the least length that keeps the value of the limbs]
+     * </pre>
+     */
+    private void trim() {
+        while (this.length > 0
+                && this.limbs[this.offset + this.length - 1] == 0) {
+            this.length--;
+        }
+    }
+
+    /**
+     * Moves all the digits of the tail into the limbs, so that whole-number
+     * arithmetic can work on the limbs alone. The limbs are multiplied by
+     * 10^(tailDigits mod 9) in place and the rest of the tail becomes zero,
+     * one or two new least significant limbs.
+     *
+     * @updates this
+     * @ensures this.tail = 0 and this.tailDigits = 0
+     */
+    private void normalize() {
+        if (this.tailDigits > 0) {
+            long t = this.tail;
+            this.tail = 0;
+            if (this.length == 0) {
+                //with no limbs, the tail is the whole value; it goes at the
+                //top of the array, so that any capacity is kept as free
+                //slots in front
+                this.offset = Math.max(0, this.limbs.length - 2);
+                this.ensureLimbCapacity(2);
+                this.limbs[this.offset] = (int) (t % LIMB_BASE);
+                this.limbs[this.offset + 1] = (int) (t / LIMB_BASE);
+                this.length = 2;
+                this.trim();
+            } else {
+                //t = high * 10^(9q) + low, where high < 10^r
+                int q = this.tailDigits / LIMB_DIGITS;
+                int r = this.tailDigits % LIMB_DIGITS;
+                long low = t % POWERS_OF_TEN[LIMB_DIGITS * q];
+                int high = (int) (t / POWERS_OF_TEN[LIMB_DIGITS * q]);
+                int carry = LimbArithmetic.multiplySmallInPlace(this.limbs,
+                        this.offset, this.length, (int) POWERS_OF_TEN[r],
+                        high);
+                if (carry > 0) {
+                    this.appendLimb(carry);
+                }
+                if (q == 2) {
+                    this.prependLimb((int) (low / LIMB_BASE));
+                }
+                if (q >= 1) {
+                    this.prependLimb((int) (low % LIMB_BASE));
+                }
+            }
+            this.tailDigits = 0;
+        }
+    }
+
+    /**
+     * Returns the limbs of {@code this}, after {@code normalize}, as a
+     * magnitude that starts at index 0.
+     *
+     * @return the limbs of this
+     * @updates this
+     * @ensures <pre>
+     * this.tailDigits = 0  and  LIMBS_VALUE(magnitude, 0, |magnitude|) = this
+     * </pre>
+     */
+    private int[] magnitude() {
+        int[] mag;
+        if (this.length == 0) {
+            //a number in the tail alone stays there
+            mag = this.inlineLimbs();
+        } else {
+            this.normalize();
+            mag = this.limbs;
+            if (this.offset != 0 || this.length != this.limbs.length) {
+                mag = new int[this.length];
+                System.arraycopy(this.limbs, this.offset, mag, 0,
+                        this.length);
+            }
+        }
+        return mag;
+    }
+
+    /**
+     * Returns the value of {@code this}, which is held in the tail alone, as
+     * a new two-limb magnitude.
+     *
+     * @return the limbs of this
+     * @requires this.length = 0
+     * @ensures LIMBS_VALUE(inlineLimbs, 0, 2) = this
+     */
+    private int[] inlineLimbs() {
+        return new int[] { (int) (this.tail % LIMB_BASE),
+            (int) (this.tail / LIMB_BASE) };
+    }
+
+    /**
+     * Reports whether {@code this} is below 10^18, so that its value fits in
+     * a {@code long} and can be held in the tail alone.
+     *
+     * @return true iff this < INLINE_LIMIT
+     */
+    private boolean fitsInline() {
+        return this.decimalDigits() <= TAIL_MAX_DIGITS;
+    }
+
+    /**
+     * Returns the value of {@code this} as a {@code long}.
+     *
+     * @return this
+     * @requires this < INLINE_LIMIT
+     * @ensures inlineValue = this
+     */
+    private long inlineValue() {
+        long v = this.tail;
+        if (this.length > 0) {
+            //at most two limbs, since this < 10^18
+            long high = this.limbs[this.offset];
+            if (this.length > 1) {
+                high += (long) this.limbs[this.offset + 1] * LIMB_BASE;
+            }
+            v += high * POWERS_OF_TEN[this.tailDigits];
+        }
+        return v;
+    }
+
+    /**
+     * Sets {@code this} to {@code v}, held in the tail alone. The limb array
+     * is kept, so that its space can be used again if the number grows.
+     *
+     * @param v
+     *            the value
+     * @replaces this
+     * @requires 0 <= v < INLINE_LIMIT
+     * @ensures this = v and this.length = 0
+     */
+    private void setInline(long v) {
+        this.length = 0;
+        this.tail = v;
+        this.tailDigits = digitCount(v);
+    }
+
+    /**
+     * Moves the value of {@code this} into the tail if it has at most two
+     * limbs, which means it is below 10^18.
+     *
+     * @updates this
+     * @requires this.tailDigits = 0
+     * @ensures this = #this and [this.length = 0 if this < LIMB_BASE^2]
+     */
+    private void demote() {
+        if (this.length <= 2) {
+            this.setInline(this.inlineValue());
+        }
+    }
+
+    /**
+     * Adds {@code v} to the limbs of {@code this}, one limb-sized piece at a
+     * time, allocating only if the limbs grow past the array.
+     *
+     * @param v
+     *            the value to add
+     * @updates this
+     * @requires this.tailDigits = 0 and v >= 0
+     * @ensures this = #this + v and [this.length = 0 if this < LIMB_BASE^2]
+     */
+    private void addToLimbs(long v) {
+        long carry = v;
+        for (int i = 0; carry > 0; i++) {
+            if (i == this.length) {
+                this.appendLimb(0);
+            }
+            long sum = this.limbs[this.offset + i] + carry % LIMB_BASE;
+            this.limbs[this.offset + i] = (int) (sum % LIMB_BASE);
+            carry = carry / LIMB_BASE + sum / LIMB_BASE;
+        }
+        this.demote();
+    }
+
+    /**
+     * Subtracts {@code v} from the limbs of {@code this}, one limb-sized
+     * piece at a time.
+     *
+     * @param v
+     *            the value to subtract
+     * @updates this
+     * @requires this.tailDigits = 0 and 0 <= v <= this
+     * @ensures this = #this - v and [this.length = 0 if this < LIMB_BASE^2]
+     */
+    private void subtractFromLimbs(long v) {
+        long borrow = v;
+        for (int i = 0; borrow > 0; i++) {
+            long diff = this.limbs[this.offset + i] - borrow % LIMB_BASE;
+            borrow /= LIMB_BASE;
+            if (diff < 0) {
+                diff += LIMB_BASE;
+                borrow++;
+            }
+            this.limbs[this.offset + i] = (int) diff;
+        }
+        this.trim();
+        this.demote();
+    }
+
+    /**
+     * Sets {@code this} to the value of magnitude {@code mag}, which then
+     * belongs to {@code this}.
+     *
+     * @param mag
+     *            the magnitude
+     * @replaces this
+     * @ensures this = LIMBS_VALUE(mag, 0, |mag|)
+     */
+    private void setMagnitude(int[] mag) {
+        this.limbs = mag;
+        this.offset = 0;
+        this.length = mag.length;
+        this.tail = 0;
+        this.tailDigits = 0;
+        this.trim();
+        this.demote();
+    }
+
+    /**
+     * Returns the number of decimal digits of {@code this}.
+     *
+     * @return DIGITS(this)
+     */
+    private int decimalDigits() {
+        int d = this.tailDigits;
+        if (this.length > 0) {
+            int top = this.limbs[this.offset + this.length - 1];
+            d += (this.length - 1) * LIMB_DIGITS + digitCount(top);
+        }
+        return d;
+    }
+
+    /**
+     * Writes the decimal digits of {@code v} into {@code dest}, padded with
+     * leading zeros to {@code width} characters.
+     *
+     * @param dest
+     *            the character array
+     * @param pos
+     *            index of the first character to write
+     * @param v
+     *            the value
+     * @param width
+     *            the number of characters to write
+     * @updates dest
+     * @requires 0 <= v < 10^width and pos + width <= |dest|
+     * @ensures <pre>
+     * dest[pos, pos + width) = [v depicted in width digits]  and
+     * [all other entries of dest are unchanged]
+     * </pre>
+     */
+    private static void render(char[] dest, int pos, long v, int width) {
+        long rest = v;
+        for (int i = pos + width - 1; i >= pos; i--) {
+            dest[i] = (char) ('0' + rest % RADIX);
+            rest /= RADIX;
+        }
+    }
+
+    /**
+     * Returns {@code n} itself if it is a {@code NaturalNumber3}, or else a
+     * new {@code NaturalNumber3} with the same value.
+     *
+     * @param n
+     *            the number
+     * @return a NaturalNumber3 equal to n
+     * @ensures asNaturalNumber3 = n
+     */
+    private static NaturalNumber3 asNaturalNumber3(NaturalNumber n) {
+        NaturalNumber3 m;
+        if (n instanceof NaturalNumber3) {
+            m = (NaturalNumber3) n;
+        } else {
+            m = new NaturalNumber3(n);
+        }
+        return m;
+    }
+
+    /**
+     * Returns the limbs of {@code n}, for the other classes of this package.
+     * The array may be the one held by n, so it must not be changed.
+     *
+     * @param n
+     *            the number
+     * @return the magnitude of n
+     * @ensures LIMBS_VALUE(limbsOf, 0, |limbsOf|) = n
+     */
+    static int[] limbsOf(NaturalNumber n) {
+        return asNaturalNumber3(n).magnitude();
+    }
 
+    /**
+     * Sets {@code n} to the value of magnitude {@code mag}, for the other
+     * classes of this package. The array then belongs to n.
+     *
+     * @param n
+     *            the number
+     * @param mag
+     *            the magnitude
+     * @replaces n
+     * @ensures n = LIMBS_VALUE(mag, 0, |mag|)
+     */
+    static void setLimbs(NaturalNumber n, int[] mag) {
+        if (n instanceof NaturalNumber3) {
+            ((NaturalNumber3) n).setMagnitude(mag);
+        } else {
+            NaturalNumber3 m = new NaturalNumber3();
+            m.setMagnitude(mag);
+            n.copyFrom(m);
+        }
+    }
+
+    /**
+     * Sets {@code this} to the number whose decimal depiction is {@code s},
+     * nine digits per limb starting from the right.
+     *
+     * @param s
+     *            the decimal depiction
+     * @replaces this
+     * @requires there exists n: NATURAL (s = TO_STRING(n))
+     * @ensures s = TO_STRING(this)
+     */
+    private void parse(String s) {
+        this.createNewRep();
+        if (s.length() <= TAIL_MAX_DIGITS) {
+            //short numbers fit in the tail alone
+            this.tail = Long.parseLong(s);
+            this.tailDigits = digitCount(this.tail);
+        } else {
+            int n = (s.length() + LIMB_DIGITS - 1) / LIMB_DIGITS;
+            this.limbs = new int[n];
+            int end = s.length();
+            for (int i = 0; i < n; i++) {
+                int start = Math.max(0, end - LIMB_DIGITS);
+                int v = 0;
+                for (int j = start; j < end; j++) {
+                    v = v * RADIX + (s.charAt(j) - '0');
+                }
+                this.limbs[i] = v;
+                end = start;
+            }
+            this.length = n;
+        }
     }
 
     /*
@@ -47,7 +615,7 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
      */
     public NaturalNumber3() {
 
-        //Creates new naturalNumber from empty String
+        //Creates new naturalNumber with no limbs
         this.createNewRep();
     }
 
@@ -60,13 +628,10 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
     public NaturalNumber3(int i) {
         assert i >= 0 : "Violation of: i >= 0";
 
-        //Creates new NaturalNumber from int
+        //Creates new NaturalNumber from int, which fits in the tail
         this.createNewRep();
-        if (i == 0) {
-            this.rep = "";
-        } else {
-            this.rep = Integer.toString(i);
-        }
+        this.tail = i;
+        this.tailDigits = digitCount(i);
     }
 
     /**
@@ -81,12 +646,7 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
                 + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
 
         // Creates new NaturalNumber from String
-        this.createNewRep();
-        if (s.equals("0")) {
-            this.rep = "";
-        } else {
-            this.rep = s;
-        }
+        this.parse(s);
     }
 
     /**
@@ -99,11 +659,19 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
         assert n != null : "Violation of: n is not null";
 
         // Creates new NaturalNumber from existing NaturalNumber
-        this.createNewRep();
-        if (n.isZero()) {
-            this.rep = "";
+        if (n instanceof NaturalNumber3) {
+            //copy the limbs directly
+            NaturalNumber3 m = (NaturalNumber3) n;
+            this.createNewRep();
+            if (m.length > 0) {
+                this.limbs = new int[m.length];
+                System.arraycopy(m.limbs, m.offset, this.limbs, 0, m.length);
+                this.length = m.length;
+            }
+            this.tail = m.tail;
+            this.tailDigits = m.tailDigits;
         } else {
-            this.rep = n.toString();
+            this.parse(n.toString());
         }
     }
 
@@ -137,7 +705,11 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
          * execution in that case.
          */
         NaturalNumber3 localSource = (NaturalNumber3) source;
-        this.rep = localSource.rep;
+        this.limbs = localSource.limbs;
+        this.offset = localSource.offset;
+        this.length = localSource.length;
+        this.tail = localSource.tail;
+        this.tailDigits = localSource.tailDigits;
         localSource.createNewRep();
     }
 
@@ -150,35 +722,42 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
         assert 0 <= k : "Violation of: 0 <= k";
         assert k < RADIX : "Violation of: k < 10";
 
-//            Should just append the digit at the end of the
-//            String representation, making it equal to x 10+k
-        String strK = String.valueOf(k);
-        this.rep = this.rep + strK;
+        //0 * 10 + 0 is still 0, with no digits
+        if (k > 0 || this.tail > 0 || this.length > 0) {
+            if (this.tailDigits == TAIL_MAX_DIGITS) {
+                //the tail is full: its high nine digits become a limb
+                int high = (int) (this.tail / LIMB_BASE);
+                this.tail %= LIMB_BASE;
+                this.tailDigits -= LIMB_DIGITS;
+                this.prependLimb(high);
+            }
+            //append k to the end of the tail
+            this.tail = this.tail * RADIX + k;
+            this.tailDigits++;
+        }
 
     }
 
     @Override
     public final int divideBy10() {
 
-        // k is int that gets returned
-        int k = 0;
-        //Check if this has a digit
-        if (this.rep.length() > 0) {
-            //assign remainder to char at end of string representation
-            char s = this.rep.charAt(this.rep.length() - 1);
-            //Check if it is a single digit
-            if (this.rep.length() > 1) {
-                //if it is a double digit or larger, it should remove last digit
-                this.rep = this.rep.substring(0, this.rep.length() - 1);
+        if (this.tailDigits == 0 && this.length > 0) {
+            //the tail is empty: the least significant limb becomes the tail
+            this.tail = this.limbs[this.offset];
+            this.offset++;
+            this.length--;
+            if (this.length > 0) {
+                this.tailDigits = LIMB_DIGITS;
             } else {
-                //if it is a single digit it should be come 0, or empty string
-                this.rep = "";
+                this.tailDigits = digitCount(this.tail);
             }
-            //should get the numeric value of the last digit
-            k = Character.getNumericValue(s);
-        } else {
-            //k becomes 0 if the string representation was empty
-            k = 0;
+        }
+        // k is the last digit of the tail, or 0 if this is 0
+        int k = 0;
+        if (this.tailDigits > 0) {
+            k = (int) (this.tail % RADIX);
+            this.tail /= RADIX;
+            this.tailDigits--;
         }
         return k;
 
@@ -187,8 +766,565 @@ public class NaturalNumber3 extends NaturalNumberSecondary {
     @Override
     public final boolean isZero() {
 
-        // Checks if NaturalNumber String representation is length of 0
-        return this.rep.length() == 0;
+        // Checks if NaturalNumber has no limbs and a zero tail
+        return this.length == 0 && this.tail == 0;
+    }
+
+    /*
+     * Secondary methods ------------------------------------------------------
+     */
+
+    @Override
+    public final String toString() {
+        String result = "0";
+        if (!this.isZero()) {
+            //every limb is nine decimal digits, so no division is needed
+            char[] digits = new char[this.decimalDigits()];
+            int pos = 0;
+            for (int i = this.length - 1; i >= 0; i--) {
+                int width = LIMB_DIGITS;
+                if (i == this.length - 1) {
+                    width = digitCount(this.limbs[this.offset + i]);
+                }
+                render(digits, pos, this.limbs[this.offset + i], width);
+                pos += width;
+            }
+            render(digits, pos, this.tail, this.tailDigits);
+            result = new String(digits);
+        }
+        return result;
+    }
+
+    @Override
+    public final void setFromInt(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+
+        this.setInline(i);
+    }
+
+    @Override
+    public final boolean canConvertToInt() {
+        return this.fitsInline() && this.inlineValue() <= Integer.MAX_VALUE;
+    }
+
+    @Override
+    public final int toInt() {
+        assert this.canConvertToInt() : ""
+                + "Violation of: this <= Integer.MAX_VALUE";
+
+        return (int) this.inlineValue();
+    }
+
+    @Override
+    public final void copyFrom(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        if (m != this) {
+            if (m.length == 0) {
+                this.setInline(m.tail);
+            } else {
+                //copy into the limb array of this if it is big enough
+                if (this.limbs.length < m.length) {
+                    this.limbs = new int[m.length];
+                }
+                System.arraycopy(m.limbs, m.offset, this.limbs, 0, m.length);
+                this.offset = 0;
+                this.length = m.length;
+                this.tail = m.tail;
+                this.tailDigits = m.tailDigits;
+            }
+        }
+    }
+
+    @Override
+    public final void add(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        long sum = INLINE_LIMIT;
+        if (this.fitsInline() && m.fitsInline()) {
+            //cannot overflow, as both are below 10^18
+            sum = this.inlineValue() + m.inlineValue();
+        }
+        if (sum < INLINE_LIMIT) {
+            this.setInline(sum);
+        } else {
+            this.normalize();
+            if (m.length == 0) {
+                //n is in its tail alone
+                this.addToLimbs(m.tail);
+            } else {
+                //add the limbs of n into the limbs of this, one pass with
+                //carries
+                m.normalize();
+                int len = Math.max(this.length, m.length);
+                this.ensureLimbCapacity(len + 1);
+                for (int i = this.length; i < len; i++) {
+                    this.limbs[this.offset + i] = 0;
+                }
+                this.length = len;
+                int carry = LimbArithmetic.addInPlace(this.limbs,
+                        this.offset, len, m.limbs, m.offset, m.length);
+                if (carry > 0) {
+                    this.appendLimb(carry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public final void subtract(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert this.compareTo(n) >= 0 : "Violation of: this >= n";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        if (this.fitsInline()) {
+            //then n <= this fits too
+            this.setInline(this.inlineValue() - m.inlineValue());
+        } else {
+            this.normalize();
+            if (m.length == 0) {
+                //n is in its tail alone
+                this.subtractFromLimbs(m.tail);
+            } else {
+                //subtract the limbs of n from the limbs of this, one pass
+                //with borrows
+                m.normalize();
+                LimbArithmetic.subtractInPlace(this.limbs, this.offset,
+                        this.length, m.limbs, m.offset, m.length);
+                this.trim();
+                this.demote();
+            }
+        }
+    }
+
+    @Override
+    public final int compareTo(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        //a number with more digits is larger; only equal lengths need the
+        //limbs compared
+        NaturalNumber3 m = asNaturalNumber3(n);
+        int result;
+        if (this.fitsInline() && m.fitsInline()) {
+            result = Long.compare(this.inlineValue(), m.inlineValue());
+        } else {
+            result = Integer.compare(this.decimalDigits(), m.decimalDigits());
+        }
+        if (result == 0 && !this.fitsInline()) {
+            //equal lengths of more than 18 digits: both have limbs
+            this.normalize();
+            m.normalize();
+            result = LimbArithmetic.compare(this.limbs, this.offset,
+                    this.length, m.limbs, m.offset, m.length);
+        }
+        return result;
+    }
+
+    @Override
+    public final void multiply(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        long product = -1;
+        if (this.fitsInline() && m.fitsInline()) {
+            long a = this.inlineValue();
+            long b = m.inlineValue();
+            if (b == 0 || a <= (INLINE_LIMIT - 1) / b) {
+                product = a * b;
+            }
+        }
+        if (product >= 0) {
+            this.setInline(product);
+        } else {
+            //schoolbook, Karatsuba, Toom-3 or NTT, by the size of the
+            //operands
+            int[] a = this.magnitude();
+            int[] b = a;
+            if (m != this) {
+                b = m.magnitude();
+            }
+            this.setMagnitude(LimbArithmetic.multiply(a, b));
+        }
+    }
+
+    @Override
+    public final NaturalNumber divide(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+        assert !n.isZero() : "Violation of: n > 0";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        NaturalNumber3 remainder = (NaturalNumber3) this.newInstance();
+        if (this.fitsInline() && m.fitsInline()) {
+            long a = this.inlineValue();
+            long b = m.inlineValue();
+            remainder.setInline(a % b);
+            this.setInline(a / b);
+        } else {
+            //schoolbook or Burnikel-Ziegler, with the quotient and remainder
+            //coming out of the same pass
+            int[] a = this.magnitude();
+            int[] b = a;
+            if (m != this) {
+                b = m.magnitude();
+            }
+            int[][] qr = LimbArithmetic.divide(a, b);
+            remainder.setMagnitude(qr[1]);
+            this.setMagnitude(qr[0]);
+        }
+        return remainder;
+    }
+
+    @Override
+    public final void power(int p) {
+        assert p >= 0 : "Violation of: p >= 0";
+
+        //binary exponentiation: about log p squarings of the fast multiply
+        this.setMagnitude(LimbArithmetic.power(this.magnitude(), p));
+    }
+
+    @Override
+    public final void root(int r) {
+        assert r >= 2 : "Violation of: r >= 2";
+
+        //Newton's iteration, with the fast multiply and divide
+        this.setMagnitude(LimbArithmetic.root(this.magnitude(), r));
+    }
+
+    @Override
+    public final void increment() {
+        if (this.length == 0 && this.tail < INLINE_LIMIT - 1) {
+            //the result still fits in the tail alone
+            this.tail++;
+            this.tailDigits = digitCount(this.tail);
+        } else if (this.tailDigits > 0
+                && this.tail < POWERS_OF_TEN[this.tailDigits] - 1) {
+            //no carry out of the tail
+            this.tail++;
+        } else {
+            //carry through the limbs
+            this.normalize();
+            int i = 0;
+            while (i < this.length
+                    && this.limbs[this.offset + i] == LIMB_BASE - 1) {
+                this.limbs[this.offset + i] = 0;
+                i++;
+            }
+            if (i < this.length) {
+                this.limbs[this.offset + i]++;
+            } else {
+                this.appendLimb(1);
+            }
+        }
+    }
+
+    @Override
+    public final void decrement() {
+        assert !this.isZero() : "Violation of: this > 0";
+
+        if (this.tail > 0) {
+            //no borrow out of the tail
+            this.tail--;
+            if (this.length == 0) {
+                this.tailDigits = digitCount(this.tail);
+            }
+        } else {
+            //borrow through the limbs
+            this.normalize();
+            int i = 0;
+            while (this.limbs[this.offset + i] == 0) {
+                this.limbs[this.offset + i] = LIMB_BASE - 1;
+                i++;
+            }
+            this.limbs[this.offset + i]--;
+            this.trim();
+            this.demote();
+        }
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Writes the decimal depiction of {@code this} to {@code out}, a few
+     * thousand digits at a time, so that numbers with millions of digits can
+     * be printed without building the whole string first.
+     *
+     * @param out
+     *            the writer
+     * @throws IOException
+     *             if out throws it
+     * @updates out
+     * @ensures out.content = #out.content * TO_STRING(this)
+     */
+    public final void writeTo(Writer out) throws IOException {
+        assert out != null : "Violation of: out is not null";
+
+        if (this.isZero()) {
+            out.write('0');
+        } else {
+            char[] buffer = new char[WRITE_BUFFER_SIZE];
+            int used = 0;
+            for (int i = this.length - 1; i >= 0; i--) {
+                if (used + LIMB_DIGITS > buffer.length) {
+                    out.write(buffer, 0, used);
+                    used = 0;
+                }
+                int width = LIMB_DIGITS;
+                if (i == this.length - 1) {
+                    width = digitCount(this.limbs[this.offset + i]);
+                }
+                render(buffer, used, this.limbs[this.offset + i], width);
+                used += width;
+            }
+            if (used + this.tailDigits > buffer.length) {
+                out.write(buffer, 0, used);
+                used = 0;
+            }
+            render(buffer, used, this.tail, this.tailDigits);
+            used += this.tailDigits;
+            out.write(buffer, 0, used);
+        }
+    }
+
+    /**
+     * Makes room for {@code this} to grow to {@code digits} digits without
+     * allocating, so that a loop that builds up a number in place does not
+     * have to grow it a step at a time. The limbs are put at the top of an
+     * array of that many limbs, so the room is free slots in front of them,
+     * where {@code multiplyBy10} and {@code shiftDecimal} add limbs; when
+     * {@code add}, {@code addInPlace} or {@code multiplyInPlace} carry into
+     * a new limb at the top, the limbs move down into the free slots.
+     *
+     * @param digits
+     *            the number of digits to make room for
+     * @requires digits >= 0
+     * @ensures this = #this
+     */
+    public final void ensureCapacity(int digits) {
+        assert digits >= 0 : "Violation of: digits >= 0";
+
+        int capacity = digits / LIMB_DIGITS + 1;
+        int[] room = this.limbs;
+        if (room.length < capacity) {
+            room = new int[capacity];
+        }
+        int top = room.length - this.length;
+        System.arraycopy(this.limbs, this.offset, room, top, this.length);
+        this.limbs = room;
+        this.offset = top;
+    }
+
+    /**
+     * Adds {@code v} to {@code this}, with no allocation unless the limbs
+     * outgrow their array.
+     *
+     * @param v
+     *            the value to add
+     * @updates this
+     * @requires v >= 0
+     * @ensures this = #this + v
+     */
+    public final void addInPlace(long v) {
+        assert v >= 0 : "Violation of: v >= 0";
+
+        if (this.length == 0 && v < INLINE_LIMIT - this.tail) {
+            this.setInline(this.tail + v);
+        } else if (this.length > 0 && this.tailDigits > 0
+                && v < POWERS_OF_TEN[this.tailDigits] - this.tail) {
+            //no carry out of the tail
+            this.tail += v;
+        } else {
+            this.normalize();
+            this.addToLimbs(v);
+        }
+    }
+
+    /**
+     * Multiplies {@code this} by {@code m}, with no allocation unless the
+     * limbs outgrow their array.
+     *
+     * @param m
+     *            the factor
+     * @updates this
+     * @requires m >= 0
+     * @ensures this = #this * m
+     */
+    public final void multiplyInPlace(int m) {
+        assert m >= 0 : "Violation of: m >= 0";
+
+        if (m == 0) {
+            this.setInline(0);
+        } else if (this.length == 0 && this.tail <= (INLINE_LIMIT - 1) / m) {
+            this.setInline(this.tail * m);
+        } else {
+            //a limb times m is below 2^31 * 10^9, so the sum fits a long
+            this.normalize();
+            long carry = 0;
+            for (int i = 0; i < this.length; i++) {
+                long v = (long) this.limbs[this.offset + i] * m + carry;
+                this.limbs[this.offset + i] = (int) (v % LIMB_BASE);
+                carry = v / LIMB_BASE;
+            }
+            while (carry > 0) {
+                this.appendLimb((int) (carry % LIMB_BASE));
+                carry /= LIMB_BASE;
+            }
+            this.demote();
+        }
+    }
+
+    /**
+     * Shifts {@code this} by {@code places} decimal places: multiplies it by
+     * 10^places if places is positive, and divides it by 10^(-places),
+     * rounding down, if negative. Whole limbs are added or dropped at the
+     * bottom, and the remaining digits go through the tail, so the cost does
+     * not depend on the length of {@code this}.
+     *
+     * @param places
+     *            the number of places to shift left, or right if negative
+     * @updates this
+     * @ensures <pre>
+     * this = [#this * 10^places, if places >= 0, or else
+     *  #this / 10^(-places) rounded down]
+     * </pre>
+     */
+    public final void shiftDecimal(int places) {
+        if (places > 0 && !this.isZero()) {
+            if (this.length == 0
+                    && places <= TAIL_MAX_DIGITS - this.tailDigits) {
+                this.setInline(this.tail * POWERS_OF_TEN[places]);
+            } else {
+                this.normalize();
+                for (int i = 0; i < places / LIMB_DIGITS; i++) {
+                    this.prependLimb(0);
+                }
+                //a tail of zeros
+                this.tailDigits = places % LIMB_DIGITS;
+            }
+        } else if (places < 0) {
+            long drop = -(long) places;
+            if (drop >= this.decimalDigits()) {
+                this.setInline(0);
+            } else {
+                if (drop <= this.tailDigits) {
+                    this.tail /= POWERS_OF_TEN[(int) drop];
+                    this.tailDigits -= (int) drop;
+                } else {
+                    int rest = (int) drop - this.tailDigits;
+                    this.tail = 0;
+                    this.tailDigits = 0;
+                    this.offset += rest / LIMB_DIGITS;
+                    this.length -= rest / LIMB_DIGITS;
+                    int split = rest % LIMB_DIGITS;
+                    if (split > 0) {
+                        //the top digits of the lowest limb become the tail
+                        this.tail = this.limbs[this.offset]
+                                / POWERS_OF_TEN[split];
+                        this.tailDigits = LIMB_DIGITS - split;
+                        this.offset++;
+                        this.length--;
+                    }
+                }
+                if (this.length == 0) {
+                    this.tailDigits = digitCount(this.tail);
+                } else if (this.tailDigits == 0) {
+                    this.demote();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces {@code this} by the greatest common divisor of {@code this}
+     * and {@code n}, by Lehmer's algorithm.
+     *
+     * @param n
+     *            the other number
+     * @updates this
+     * @ensures this = [greatest common divisor of #this and n]
+     */
+    public final void gcd(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        NaturalNumber3 m = asNaturalNumber3(n);
+        if (this.fitsInline() && m.fitsInline()) {
+            this.setInline(LehmerGcd.gcd(this.inlineValue(), m.inlineValue()));
+        } else {
+            int[] a = this.magnitude();
+            int[] b = a;
+            if (m != this) {
+                b = m.magnitude();
+            }
+            this.setMagnitude(LehmerGcd.gcd(a, b));
+        }
+    }
+
+    /**
+     * Replaces {@code this} by the least common multiple of {@code this} and
+     * {@code n}.
+     *
+     * @param n
+     *            the other number
+     * @updates this
+     * @ensures <pre>
+     * this = [least common multiple of #this and n, or 0 if #this = 0 or
+     *  n = 0]
+     * </pre>
+     */
+    public final void lcm(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        if (n.isZero()) {
+            this.setInline(0);
+        } else if (!this.isZero()) {
+            int[] a = this.magnitude();
+            int[] b = NaturalNumber3.limbsOf(n);
+            int[] g = LehmerGcd.gcd(a, b);
+            this.setMagnitude(LimbArithmetic
+                    .multiply(LimbArithmetic.divide(a, g)[0], b));
+        }
+    }
+
+    /**
+     * Replaces {@code this} by the greatest common divisor g of
+     * {@code this} and {@code n}, and {@code x} and {@code y} by cofactors
+     * with {@code #this * x = g + n * y}; so when g = 1, x is the inverse of
+     * {@code #this} modulo {@code n}.
+     *
+     * @param n
+     *            the other number
+     * @param x
+     *            the cofactor of this
+     * @param y
+     *            the cofactor of n
+     * @updates this
+     * @replaces x, y
+     * @requires this > 0 and [this, x and y are three different objects]
+     * @ensures <pre>
+     * this = [greatest common divisor of #this and n]  and
+     * #this * x = this + n * y  and
+     * [0 < x <= n / this, if n > 0]
+     * </pre>
+     */
+    public final void extendedGcd(NaturalNumber n, NaturalNumber x,
+            NaturalNumber y) {
+        assert n != null : "Violation of: n is not null";
+        assert x != null : "Violation of: x is not null";
+        assert y != null : "Violation of: y is not null";
+        assert x != this : "Violation of: x is not this";
+        assert y != this : "Violation of: y is not this";
+        assert x != y : "Violation of: x is not y";
+        assert !this.isZero() : "Violation of: this > 0";
+
+        int[] a = this.magnitude();
+        int[] b = NaturalNumber3.limbsOf(n);
+        int[][] gxy = LehmerGcd.extendedGcd(a, b);
+        this.setMagnitude(gxy[0]);
+        setLimbs(x, gxy[1]);
+        setLimbs(y, gxy[2]);
     }
 
 }
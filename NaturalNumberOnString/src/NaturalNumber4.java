@@ -0,0 +1,300 @@
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as packed binary-coded decimal with
+ * implementations of primary methods.
+ *
+ * <p>
+ * The digits are kept most significant first, as in the ordinary depiction
+ * of the number, two to a byte: the even-numbered digit in the high nibble
+ * and the odd-numbered digit in the low nibble. That is half a byte per
+ * digit, half of what a compact {@code String} of the same digits takes,
+ * with no object besides the array. {@code multiplyBy10} and
+ * {@code divideBy10} only write or clear the nibble just past or at the end
+ * of the digits, so they take amortized constant time. The array is sized
+ * to fit the digits exactly when a number is constructed, and grows by half
+ * when {@code multiplyBy10} runs out of room.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * NIBBLE(
+ *   a: string of integer, i: integer
+ *  ): integer satisfies
+ *  [if i is even then the high four bits of a[i / 2]
+ *   else the low four bits of a[i / 2]]
+ * </pre>
+ * @convention <pre>
+ * 0 <= $this.length <= 2 * |$this.digits|  and
+ * [NIBBLE($this.digits, i) is in 0..9 for 0 <= i < $this.length]  and
+ * [NIBBLE($this.digits, i) = 0 for $this.length <= i < 2 * |$this.digits|]
+ *  and
+ * [if $this.length > 0 then NIBBLE($this.digits, 0) /= 0]
+ * </pre>
+ * @correspondence <pre>
+ * this = [if $this.length = 0 then 0
+ *         else the decimal number whose ordinary depiction is
+ *         NIBBLE($this.digits, 0) * NIBBLE($this.digits, 1) * ... *
+ *         NIBBLE($this.digits, $this.length - 1)]
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+public class NaturalNumber4 extends NaturalNumberSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of bits in one nibble.
+     */
+    private static final int NIBBLE_BITS = 4;
+
+    /**
+     * Mask of the low nibble of a byte.
+     */
+    private static final int LOW_NIBBLE = 0x0F;
+
+    /**
+     * Mask of the high nibble of a byte.
+     */
+    private static final int HIGH_NIBBLE = 0xF0;
+
+    /**
+     * Number of bytes a new empty representation has room for.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Packed digits of {@code this}.
+     */
+    private byte[] digits;
+
+    /**
+     * Number of digits of {@code this}.
+     */
+    private int length;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        //Creates new empty digit array for NaturalNumber
+        this.digits = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+
+    }
+
+    /**
+     * Returns digit {@code i} of {@code this}, counting from the most
+     * significant.
+     *
+     * @param i
+     *            the index of the digit
+     * @return NIBBLE($this.digits, i)
+     * @requires 0 <= i < $this.length
+     */
+    private int digitAt(int i) {
+        int b = this.digits[i / 2] & (HIGH_NIBBLE | LOW_NIBBLE);
+        int d = b & LOW_NIBBLE;
+        if (i % 2 == 0) {
+            d = b >> NIBBLE_BITS;
+        }
+        return d;
+    }
+
+    /**
+     * Sets {@code this} to the value with ordinary depiction {@code s}, in
+     * an array with no room to spare.
+     *
+     * @param s
+     *            the ordinary depiction
+     * @replaces this
+     * @requires s = TO_STRING(this) for some NATURAL this
+     */
+    private void pack(String s) {
+        if (s.equals("0")) {
+            this.createNewRep();
+        } else {
+            this.length = s.length();
+            this.digits = new byte[(this.length + 1) / 2];
+            for (int i = 0; i < this.length; i++) {
+                int d = s.charAt(i) - '0';
+                if (i % 2 == 0) {
+                    d <<= NIBBLE_BITS;
+                }
+                this.digits[i / 2] |= (byte) d;
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumber4() {
+
+        //Creates new NaturalNumber with no digits
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     */
+    public NaturalNumber4(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+
+        //Creates new NaturalNumber from the digits of the int
+        this.pack(Integer.toString(i));
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     */
+    public NaturalNumber4(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert s.matches("0|[1-9]\\d*") : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+
+        //Creates new NaturalNumber by packing the characters of the String
+        this.pack(s);
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumber4(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        if (n instanceof NaturalNumber4) {
+            //the digits are already packed; copy just the bytes in use
+            NaturalNumber4 m = (NaturalNumber4) n;
+            this.length = m.length;
+            this.digits = new byte[Math.max(1, (m.length + 1) / 2)];
+            System.arraycopy(m.digits, 0, this.digits, 0,
+                    (m.length + 1) / 2);
+        } else {
+            this.pack(n.toString());
+        }
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumber4 : ""
+                + "Violation of: source is of dynamic type NaturalNumber4";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        NaturalNumber4 localSource = (NaturalNumber4) source;
+        this.digits = localSource.digits;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+
+        //a zero gets no leading zero digit
+        if (this.length > 0 || k > 0) {
+            if (this.length / 2 == this.digits.length) {
+                byte[] grown = new byte[this.digits.length
+                        + this.digits.length / 2 + 1];
+                System.arraycopy(this.digits, 0, grown, 0,
+                        this.digits.length);
+                this.digits = grown;
+            }
+            //the nibble past the end is zero, so k can be or-ed in
+            int d = k;
+            if (this.length % 2 == 0) {
+                d <<= NIBBLE_BITS;
+            }
+            this.digits[this.length / 2] |= (byte) d;
+            this.length++;
+        }
+    }
+
+    @Override
+    public final int divideBy10() {
+        int k = 0;
+        if (this.length > 0) {
+            this.length--;
+            k = this.digitAt(this.length);
+            //clear the nibble of the digit taken off
+            int keep = HIGH_NIBBLE;
+            if (this.length % 2 == 0) {
+                keep = 0;
+            }
+            this.digits[this.length / 2] &= (byte) keep;
+        }
+        return k;
+    }
+
+    @Override
+    public final boolean isZero() {
+
+        //Checks if NaturalNumber has no digits
+        return this.length == 0;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    @Override
+    public final String toString() {
+        String result = "0";
+        if (this.length > 0) {
+            //the digits are already in order, one nibble each
+            char[] chars = new char[this.length];
+            for (int i = 0; i < this.length; i++) {
+                chars[i] = (char) ('0' + this.digitAt(i));
+            }
+            result = new String(chars);
+        }
+        return result;
+    }
+
+}
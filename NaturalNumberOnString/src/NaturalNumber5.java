@@ -0,0 +1,984 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumberSecondary;
+
+/**
+ * {@code NaturalNumber} represented as base-10<sup>9</sup> limbs in a
+ * memory-mapped temporary file, with implementations of primary methods.
+ *
+ * <p>
+ * The limbs are laid out as in {@code NaturalNumber3}: least significant
+ * first, with free slots in front, and the last few decimal digits apart in
+ * a "tail", so that {@code multiplyBy10} and {@code divideBy10} take
+ * amortized constant time. The limbs live in a temporary file, mapped into
+ * memory with {@code FileChannel.map} one fixed-size segment at a time as
+ * the number grows, so a number can be far larger than the heap: only the
+ * pages in use are resident, and the operating system writes them back to
+ * the file when memory is short.
+ * </p>
+ *
+ * <p>
+ * A number below 10<sup>18</sup> is normally held in the tail alone, and
+ * takes no file at all: {@code add}, {@code compareTo} and
+ * {@code multiplyInPlace} work on such numbers as {@code long}s, and only
+ * make a file when a result outgrows the tail. On larger numbers they make
+ * one pass over the mapped limbs, in order, with no recursion and no copy
+ * on the heap. {@code checkpoint} writes the number to a file, straight from
+ * the mapped file, and {@code restore} reads it back.
+ * </p>
+ *
+ * <p>
+ * The file of a number is open until the number is closed, cleared or
+ * transferred from, which deletes it; a {@code NaturalNumber5} is
+ * {@code AutoCloseable}, so it can be used in a try-with-resources
+ * statement. The file of a number that is dropped without that, such as the
+ * temporaries that the secondary methods inherited from
+ * {@code NaturalNumberSecondary} make with {@code newInstance} and discard,
+ * is closed only once the number has been garbage collected. Code that
+ * makes many large numbers should close the ones it is done with, and
+ * should not rely on the inherited methods for them, or it can run out of
+ * file descriptors or address space before the collector runs.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * LIMB_BASE: integer is 1000000000
+ * INLINE_MAX_DIGITS: integer is 18
+ * DIGITS(
+ *   n: integer
+ *  ): integer satisfies
+ *  [number of digits in the ordinary depiction of n, or 0 if n = 0]
+ * LIMBS_VALUE(
+ *   f: string of integer, lo: integer, len: integer
+ *  ): integer satisfies
+ *  [sum of f[lo + i] * LIMB_BASE^i for 0 <= i < len]
+ * </pre>
+ * @convention <pre>
+ * 0 <= $this.offset  and  0 <= $this.length  and
+ * [$this.storage.file holds at least $this.offset + $this.length limbs]  and
+ * [all of $this.storage.file[$this.offset, $this.offset + $this.length)
+ *  are in 0..LIMB_BASE-1]  and
+ * [if $this.length > 0 then
+ *  $this.storage.file[$this.offset + $this.length - 1] /= 0]  and
+ * 0 <= $this.tailDigits <= INLINE_MAX_DIGITS  and
+ * [if $this.length > 0 then $this.tailDigits < LIMB_DIGITS]  and
+ * 0 <= $this.tail < 10^$this.tailDigits  and
+ * [if $this.length = 0 then $this.tailDigits = DIGITS($this.tail)]
+ * </pre>
+ * @correspondence <pre>
+ * this = LIMBS_VALUE($this.storage.file, $this.offset, $this.length) *
+ *        10^$this.tailDigits + $this.tail
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+public class NaturalNumber5 extends NaturalNumberSecondary
+        implements AutoCloseable {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Value of one limb place.
+     */
+    private static final int LIMB_BASE = 1000000000;
+
+    /**
+     * Number of decimal digits in one limb.
+     */
+    private static final int LIMB_DIGITS = 9;
+
+    /**
+     * Number of bytes in one limb.
+     */
+    private static final int LIMB_BYTES = Integer.BYTES;
+
+    /**
+     * Log base 2 of the number of limbs in one mapped segment.
+     */
+    private static final int SEGMENT_SHIFT = 20;
+
+    /**
+     * Number of limbs in one mapped segment (4 MB).
+     */
+    private static final int SEGMENT_LIMBS = 1 << SEGMENT_SHIFT;
+
+    /**
+     * Number of free slots in front of the limbs when they first move to make
+     * room there.
+     */
+    private static final int INITIAL_SLACK = 4;
+
+    /**
+     * Number of bytes before the limbs in a checkpoint file: the number of
+     * limbs, the tail and the number of digits of the tail.
+     */
+    private static final int HEADER_BYTES = Long.BYTES + Long.BYTES
+            + Integer.BYTES;
+
+    /**
+     * Maximum number of decimal digits in the tail of a number with no
+     * limbs; 10^18 still fits in a {@code long} after one more
+     * {@code multiplyBy10}.
+     */
+    private static final int INLINE_MAX_DIGITS = 18;
+
+    /**
+     * Powers of ten that fit in a {@code long}: POWERS_OF_TEN[i] = 10^i.
+     */
+    private static final long[] POWERS_OF_TEN = new long[INLINE_MAX_DIGITS
+            + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= INLINE_MAX_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * RADIX;
+        }
+    }
+
+    /**
+     * Smallest value that does not fit in the tail of a number with no limbs.
+     */
+    private static final long INLINE_LIMIT = POWERS_OF_TEN[INLINE_MAX_DIGITS];
+
+    /**
+     * Closes the files of numbers that were garbage collected without being
+     * closed.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The temporary file of the limbs of a number, with its mappings. When
+     * the storage is no longer reachable, {@code CLEANER} closes the file,
+     * which deletes it.
+     */
+    private static final class Storage {
+
+        /**
+         * The file.
+         */
+        private final FileChannel file;
+
+        /**
+         * The mapped segments of the file; entry s maps limbs
+         * [s * SEGMENT_LIMBS, (s + 1) * SEGMENT_LIMBS), or is null if not
+         * mapped yet.
+         */
+        private MappedByteBuffer[] segments;
+
+        /**
+         * Closes the file, at most once.
+         */
+        private final Cleaner.Cleanable cleanable;
+
+        /**
+         * Constructor.
+         *
+         * @param file
+         *            the file, which then belongs to this storage
+         */
+        Storage(FileChannel file) {
+            this.file = file;
+            this.segments = new MappedByteBuffer[1];
+            this.cleanable = CLEANER.register(this, new Closer(file));
+        }
+
+    }
+
+    /**
+     * Action that closes a file. It refers to the file only, not to its
+     * {@code Storage}, so that the storage can become unreachable.
+     */
+    private static final class Closer implements Runnable {
+
+        /**
+         * The file to close.
+         */
+        private final FileChannel file;
+
+        /**
+         * Constructor.
+         *
+         * @param file
+         *            the file to close
+         */
+        Closer(FileChannel file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * The file of the limbs, or null if none has been made yet.
+     */
+    private Storage storage;
+
+    /**
+     * Index in the file of the least significant limb.
+     */
+    private long offset;
+
+    /**
+     * Number of limbs in use.
+     */
+    private long length;
+
+    /**
+     * The last tailDigits decimal digits of {@code this}.
+     */
+    private long tail;
+
+    /**
+     * Number of decimal digits in the tail.
+     */
+    private int tailDigits;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        //Creates new NaturalNumber with no limbs, and no file
+        this.storage = null;
+        this.offset = 0;
+        this.length = 0;
+        this.tail = 0;
+        this.tailDigits = 0;
+
+    }
+
+    /**
+     * Closes the file of the limbs, if any, which deletes it, and resets
+     * {@code this} to zero.
+     *
+     * @clears this
+     */
+    private void release() {
+        if (this.storage != null) {
+            this.storage.cleanable.clean();
+        }
+        this.createNewRep();
+    }
+
+    /**
+     * Returns the number of digits of {@code v}.
+     *
+     * @param v
+     *            the value
+     * @return DIGITS(v)
+     * @requires v >= 0
+     */
+    private static int digitCount(long v) {
+        int d = 0;
+        long rest = v;
+        while (rest > 0) {
+            rest /= RADIX;
+            d++;
+        }
+        return d;
+    }
+
+    /**
+     * Makes sure limbs [0, capacity) of the file are mapped, making the file
+     * first if there is none.
+     *
+     * @param capacity
+     *            the number of limbs needed
+     * @updates this.storage
+     * @ensures [limbs [0, capacity) of this.storage.file are mapped]
+     */
+    private void ensureMapped(long capacity) {
+        try {
+            if (this.storage == null) {
+                Path path = Files.createTempFile("naturalnumber", ".limbs");
+                this.storage = new Storage(FileChannel.open(path,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE));
+            }
+            Storage st = this.storage;
+            int count = (int) ((capacity + SEGMENT_LIMBS - 1) >> SEGMENT_SHIFT);
+            if (count > st.segments.length) {
+                MappedByteBuffer[] more = new MappedByteBuffer[Math.max(count,
+                        2 * st.segments.length)];
+                System.arraycopy(st.segments, 0, more, 0, st.segments.length);
+                st.segments = more;
+            }
+            //segments are mapped in order, so the unmapped ones are the last
+            for (int s = count - 1; s >= 0 && st.segments[s] == null; s--) {
+                //mapping past the end of the file grows it
+                st.segments[s] = st.file.map(
+                        FileChannel.MapMode.READ_WRITE,
+                        (long) s * SEGMENT_LIMBS * LIMB_BYTES,
+                        (long) SEGMENT_LIMBS * LIMB_BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns limb {@code i} of {@code this}.
+     *
+     * @param i
+     *            the index of the limb, least significant first
+     * @return $this.storage.file[$this.offset + i]
+     * @requires 0 <= i < $this.length
+     */
+    private int limb(long i) {
+        long p = this.offset + i;
+        return this.storage.segments[(int) (p >> SEGMENT_SHIFT)]
+                .getInt((int) (p & (SEGMENT_LIMBS - 1)) * LIMB_BYTES);
+    }
+
+    /**
+     * Sets limb {@code i} of {@code this} to {@code v}.
+     *
+     * @param i
+     *            the index of the limb, least significant first
+     * @param v
+     *            the new value of the limb
+     * @updates this.storage
+     * @requires [limb $this.offset + i of $this.storage.file is mapped]
+     * @ensures $this.storage.file[$this.offset + i] = v
+     */
+    private void setLimb(long i, int v) {
+        long p = this.offset + i;
+        this.storage.segments[(int) (p >> SEGMENT_SHIFT)]
+                .putInt((int) (p & (SEGMENT_LIMBS - 1)) * LIMB_BYTES, v);
+    }
+
+    /**
+     * Adds {@code v} as the new least significant limb. When there is no free
+     * slot in front, the limbs move up the file by as many slots as there
+     * are limbs, so over many calls each takes amortized constant time.
+     *
+     * @param v
+     *            the new limb
+     * @updates this.storage, this.offset, this.length
+     * @requires 0 <= v < LIMB_BASE and [v /= 0 or this.length > 0]
+     */
+    private void prependLimb(int v) {
+        if (this.offset == 0) {
+            long slack = Math.max(this.length, INITIAL_SLACK);
+            this.ensureMapped(slack + this.length);
+            //top down, as the old and new places overlap
+            for (long i = this.length - 1; i >= 0; i--) {
+                long p = i + slack;
+                this.storage.segments[(int) (p >> SEGMENT_SHIFT)].putInt(
+                        (int) (p & (SEGMENT_LIMBS - 1)) * LIMB_BYTES,
+                        this.limb(i));
+            }
+            this.offset = slack;
+        }
+        this.offset--;
+        this.length++;
+        this.setLimb(0, v);
+    }
+
+    /**
+     * Adds {@code v} as the new most significant limb.
+     *
+     * @param v
+     *            the new limb
+     * @updates this.storage, this.length
+     * @requires 0 < v < LIMB_BASE
+     */
+    private void appendLimb(int v) {
+        this.ensureMapped(this.offset + this.length + 1);
+        this.setLimb(this.length, v);
+        this.length++;
+    }
+
+    /**
+     * Moves the tail into the limbs, so that {@code this} has no tail.
+     *
+     * @updates this
+     * @ensures this = #this and this.tailDigits = 0
+     */
+    private void normalize() {
+        if (this.tailDigits > 0) {
+            if (this.length == 0) {
+                //the tail is the whole value, in at most two limbs
+                int high = (int) (this.tail / LIMB_BASE);
+                if (high > 0) {
+                    this.prependLimb(high);
+                }
+                this.prependLimb((int) (this.tail % LIMB_BASE));
+            } else {
+                //one pass from the bottom, carrying the tail in
+                long carry = this.tail;
+                long factor = POWERS_OF_TEN[this.tailDigits];
+                for (long i = 0; i < this.length; i++) {
+                    long v = this.limb(i) * factor + carry;
+                    this.setLimb(i, (int) (v % LIMB_BASE));
+                    carry = v / LIMB_BASE;
+                }
+                if (carry > 0) {
+                    this.appendLimb((int) carry);
+                }
+            }
+            this.tail = 0;
+            this.tailDigits = 0;
+        }
+    }
+
+    /**
+     * Returns the number of decimal digits of {@code this}, without touching
+     * any limb but the top one.
+     *
+     * @return DIGITS(this)
+     */
+    private long decimalDigits() {
+        long d = this.tailDigits;
+        if (this.length > 0) {
+            d += digitCount(this.limb(this.length - 1))
+                    + (this.length - 1) * LIMB_DIGITS;
+        }
+        return d;
+    }
+
+    /**
+     * Reports whether {@code this} is small enough for {@code inlineValue}.
+     *
+     * @return this < 10^INLINE_MAX_DIGITS
+     */
+    private boolean fitsInline() {
+        return this.decimalDigits() <= INLINE_MAX_DIGITS;
+    }
+
+    /**
+     * Returns the value of {@code this} as a {@code long}.
+     *
+     * @return this
+     * @requires this < 10^INLINE_MAX_DIGITS
+     */
+    private long inlineValue() {
+        long v = 0;
+        for (long i = this.length - 1; i >= 0; i--) {
+            v = v * LIMB_BASE + this.limb(i);
+        }
+        return v * POWERS_OF_TEN[this.tailDigits] + this.tail;
+    }
+
+    /**
+     * Sets {@code this} to {@code v}, held in the tail alone. A file that
+     * {@code this} has is kept for later use.
+     *
+     * @param v
+     *            the new value
+     * @replaces this
+     * @requires 0 <= v < 10^INLINE_MAX_DIGITS
+     * @ensures this = v
+     */
+    private void setInline(long v) {
+        this.length = 0;
+        this.tail = v;
+        this.tailDigits = digitCount(v);
+    }
+
+    /**
+     * Adds {@code v} to the limbs, in one pass from the bottom that stops
+     * when there is nothing left to carry.
+     *
+     * @param v
+     *            the value to add
+     * @updates this
+     * @requires v >= 0 and this.tailDigits = 0
+     * @ensures this = #this + v
+     */
+    private void addToLimbs(long v) {
+        long carry = v;
+        for (long i = 0; carry > 0 && i < this.length; i++) {
+            long sum = this.limb(i) + carry;
+            this.setLimb(i, (int) (sum % LIMB_BASE));
+            carry = sum / LIMB_BASE;
+        }
+        while (carry > 0) {
+            this.appendLimb((int) (carry % LIMB_BASE));
+            carry /= LIMB_BASE;
+        }
+    }
+
+    /**
+     * Returns {@code n} as a {@code NaturalNumber5}: n itself if it is one,
+     * or else a new copy, which the caller should release.
+     *
+     * @param n
+     *            the number
+     * @return n, as a NaturalNumber5
+     * @ensures asNaturalNumber5 = n
+     */
+    private static NaturalNumber5 asNaturalNumber5(NaturalNumber n) {
+        NaturalNumber5 m;
+        if (n instanceof NaturalNumber5) {
+            m = (NaturalNumber5) n;
+        } else {
+            m = new NaturalNumber5(n.toString());
+        }
+        return m;
+    }
+
+    /**
+     * Sets {@code this} to the value with ordinary depiction {@code s}.
+     *
+     * @param s
+     *            the ordinary depiction
+     * @replaces this
+     * @requires s = TO_STRING(this) for some NATURAL this
+     */
+    private void parse(String s) {
+        this.createNewRep();
+        if (s.length() <= INLINE_MAX_DIGITS) {
+            //small enough for the tail alone
+            this.tail = Long.parseLong(s);
+            this.tailDigits = digitCount(this.tail);
+        } else {
+            //the digits that do not make up a whole limb are the tail
+            int top = s.length() - s.length() % LIMB_DIGITS;
+            this.tailDigits = s.length() - top;
+            if (this.tailDigits > 0) {
+                this.tail = Long.parseLong(s.substring(top));
+            }
+            long count = top / LIMB_DIGITS;
+            if (count > 0) {
+                this.ensureMapped(count);
+                this.length = count;
+                for (long i = 0; i < count; i++) {
+                    int end = top - (int) i * LIMB_DIGITS;
+                    this.setLimb(i, Integer
+                            .parseInt(s.substring(end - LIMB_DIGITS, end)));
+                }
+            }
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public NaturalNumber5() {
+
+        //Creates new NaturalNumber with no limbs
+        this.createNewRep();
+    }
+
+    /**
+     * Constructor from {@code int}.
+     *
+     * @param i
+     *            {@code int} to initialize from
+     */
+    public NaturalNumber5(int i) {
+        assert i >= 0 : "Violation of: i >= 0";
+
+        //Creates new NaturalNumber from the digits of the int
+        this.parse(Integer.toString(i));
+    }
+
+    /**
+     * Constructor from {@code String}.
+     *
+     * @param s
+     *            {@code String} to initialize from
+     */
+    public NaturalNumber5(String s) {
+        assert s != null : "Violation of: s is not null";
+        assert s.matches("0|[1-9]\\d*") : ""
+                + "Violation of: there exists n: NATURAL (s = TO_STRING(n))";
+
+        //Creates new NaturalNumber by splitting the String into limbs
+        this.parse(s);
+    }
+
+    /**
+     * Constructor from {@code NaturalNumber}.
+     *
+     * @param n
+     *            {@code NaturalNumber} to initialize from
+     */
+    public NaturalNumber5(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        if (n instanceof NaturalNumber5) {
+            //copy the limbs into a file of its own, one pass
+            NaturalNumber5 m = (NaturalNumber5) n;
+            this.createNewRep();
+            if (m.length > 0) {
+                this.ensureMapped(m.length);
+                for (long i = 0; i < m.length; i++) {
+                    this.setLimb(i, m.limb(i));
+                }
+                this.length = m.length;
+            }
+            this.tail = m.tail;
+            this.tailDigits = m.tailDigits;
+        } else {
+            this.parse(n.toString());
+        }
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final NaturalNumber newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.release();
+    }
+
+    @Override
+    public final void transferFrom(NaturalNumber source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof NaturalNumber5 : ""
+                + "Violation of: source is of dynamic type NaturalNumber5";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        NaturalNumber5 localSource = (NaturalNumber5) source;
+        this.release();
+        this.storage = localSource.storage;
+        this.offset = localSource.offset;
+        this.length = localSource.length;
+        this.tail = localSource.tail;
+        this.tailDigits = localSource.tailDigits;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void multiplyBy10(int k) {
+        assert 0 <= k : "Violation of: 0 <= k";
+        assert k < RADIX : "Violation of: k < 10";
+
+        //a zero gets no leading zero digit
+        if (!this.isZero() || k > 0) {
+            if (this.tailDigits == INLINE_MAX_DIGITS) {
+                //the tail of a number with no limbs is full
+                this.normalize();
+            }
+            this.tail = this.tail * RADIX + k;
+            this.tailDigits++;
+            if (this.length > 0 && this.tailDigits == LIMB_DIGITS) {
+                //a full tail becomes the least significant limb
+                this.prependLimb((int) this.tail);
+                this.tail = 0;
+                this.tailDigits = 0;
+            }
+        }
+    }
+
+    @Override
+    public final int divideBy10() {
+        if (this.tailDigits == 0 && this.length > 0) {
+            //the least significant limb becomes a full tail
+            this.tail = this.limb(0);
+            this.tailDigits = LIMB_DIGITS;
+            this.offset++;
+            this.length--;
+            if (this.length == 0) {
+                this.tailDigits = digitCount(this.tail);
+            }
+        }
+        int k = (int) (this.tail % RADIX);
+        if (this.tailDigits > 0) {
+            this.tail /= RADIX;
+            this.tailDigits--;
+        }
+        return k;
+    }
+
+    @Override
+    public final boolean isZero() {
+
+        //Checks if NaturalNumber has no limbs and nothing in the tail
+        return this.length == 0 && this.tail == 0;
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    @Override
+    public final String toString() {
+        String result = "0";
+        if (this.length == 0) {
+            if (this.tail > 0) {
+                result = Long.toString(this.tail);
+            }
+        } else {
+            //every limb below the top one is nine digits with leading zeros
+            StringBuilder b = new StringBuilder();
+            b.append(this.limb(this.length - 1));
+            for (long i = this.length - 2; i >= 0; i--) {
+                String limb = Integer.toString(this.limb(i));
+                for (int j = limb.length(); j < LIMB_DIGITS; j++) {
+                    b.append('0');
+                }
+                b.append(limb);
+            }
+            if (this.tailDigits > 0) {
+                String t = Long.toString(this.tail);
+                for (int j = t.length(); j < this.tailDigits; j++) {
+                    b.append('0');
+                }
+                b.append(t);
+            }
+            result = b.toString();
+        }
+        return result;
+    }
+
+    @Override
+    public final int compareTo(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        NaturalNumber5 m = asNaturalNumber5(n);
+        //more digits is larger; equal digits compare from the top down
+        int result = Long.compare(this.decimalDigits(), m.decimalDigits());
+        if (result == 0) {
+            if (this.fitsInline()) {
+                result = Long.compare(this.inlineValue(), m.inlineValue());
+            } else {
+                this.normalize();
+                m.normalize();
+                for (long i = this.length - 1; result == 0 && i >= 0; i--) {
+                    result = Integer.compare(this.limb(i), m.limb(i));
+                }
+            }
+        }
+        if (m != n) {
+            m.release();
+        }
+        return result;
+    }
+
+    @Override
+    public final void add(NaturalNumber n) {
+        assert n != null : "Violation of: n is not null";
+
+        if (n == this) {
+            this.multiplyInPlace(2);
+        } else {
+            NaturalNumber5 m = asNaturalNumber5(n);
+            if (this.fitsInline() && m.fitsInline() && this.inlineValue()
+                    + m.inlineValue() < INLINE_LIMIT) {
+                this.setInline(this.inlineValue() + m.inlineValue());
+            } else if (m.length == 0) {
+                //m is its tail alone, so it needs no file
+                this.normalize();
+                this.addToLimbs(m.tail);
+            } else {
+                this.normalize();
+                m.normalize();
+                //one pass from the bottom, with carries
+                long len = Math.max(this.length, m.length);
+                this.ensureMapped(this.offset + len + 1);
+                int carry = 0;
+                for (long i = 0; i < len; i++) {
+                    int sum = carry;
+                    if (i < this.length) {
+                        sum += this.limb(i);
+                    }
+                    if (i < m.length) {
+                        sum += m.limb(i);
+                    }
+                    carry = 0;
+                    if (sum >= LIMB_BASE) {
+                        sum -= LIMB_BASE;
+                        carry = 1;
+                    }
+                    this.setLimb(i, sum);
+                }
+                this.length = len;
+                if (carry > 0) {
+                    this.appendLimb(carry);
+                }
+            }
+            if (m != n) {
+                m.release();
+            }
+        }
+    }
+
+    /**
+     * Multiplies {@code this} by {@code m}, in one pass over the limbs from
+     * the bottom.
+     *
+     * @param m
+     *            the factor
+     * @updates this
+     * @requires m >= 0
+     * @ensures this = #this * m
+     */
+    public final void multiplyInPlace(int m) {
+        assert m >= 0 : "Violation of: m >= 0";
+
+        if (m == 0) {
+            this.release();
+        } else if (this.fitsInline()
+                && this.inlineValue() < INLINE_LIMIT / m) {
+            //the product is below 10^INLINE_MAX_DIGITS
+            this.setInline(this.inlineValue() * m);
+        } else {
+            //a limb times m is below 2^31 * 10^9, so the sum fits a long
+            this.normalize();
+            long carry = 0;
+            for (long i = 0; i < this.length; i++) {
+                long v = (long) this.limb(i) * m + carry;
+                this.setLimb(i, (int) (v % LIMB_BASE));
+                carry = v / LIMB_BASE;
+            }
+            while (carry > 0) {
+                this.appendLimb((int) (carry % LIMB_BASE));
+                carry /= LIMB_BASE;
+            }
+        }
+    }
+
+    /**
+     * Closes the file of {@code this}, if any, which deletes it, and resets
+     * {@code this} to zero; {@code this} can still be used afterwards.
+     *
+     * @clears this
+     */
+    @Override
+    public final void close() {
+        this.release();
+    }
+
+    /**
+     * Writes {@code this} to the file {@code target}, replacing anything in
+     * it, so that {@code restore} can read it back. The limbs are copied
+     * straight from the mapped file, and the target is forced to the disk
+     * before returning.
+     *
+     * @param target
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     * @ensures [target holds this]
+     */
+    public final void checkpoint(Path target) throws IOException {
+        assert target != null : "Violation of: target is not null";
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(this.length).putLong(this.tail).putInt(this.tailDigits);
+        header.flip();
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            if (this.length > 0) {
+                //writes through the mappings must reach the file first
+                for (MappedByteBuffer segment : this.storage.segments) {
+                    if (segment != null) {
+                        segment.force();
+                    }
+                }
+                long position = this.offset * LIMB_BYTES;
+                long end = position + this.length * LIMB_BYTES;
+                while (position < end) {
+                    position += this.storage.file.transferTo(position,
+                            end - position, out);
+                }
+            }
+            out.force(true);
+        }
+    }
+
+    /**
+     * Returns the number written to the file {@code source} by
+     * {@code checkpoint}.
+     *
+     * @param source
+     *            the file to read
+     * @return the number in source
+     * @throws IOException
+     *             if the file cannot be read, or was not written by
+     *             checkpoint
+     * @ensures [restore is the number that was written to source]
+     */
+    public static NaturalNumber5 restore(Path source) throws IOException {
+        assert source != null : "Violation of: source is not null";
+
+        NaturalNumber5 result = new NaturalNumber5();
+        try (FileChannel in = FileChannel.open(source,
+                StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = in.read(header);
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES) {
+                throw new IOException("Not a checkpoint: " + source);
+            }
+            long count = header.getLong();
+            long tail = header.getLong();
+            int tailDigits = header.getInt();
+            if (count < 0 || tailDigits < 0 || tailDigits > INLINE_MAX_DIGITS
+                    || (count > 0 && tailDigits >= LIMB_DIGITS) || tail < 0
+                    || tail >= POWERS_OF_TEN[tailDigits]
+                    || (count == 0 && tailDigits != digitCount(tail))
+                    || in.size() != HEADER_BYTES + count * LIMB_BYTES) {
+                throw new IOException("Not a checkpoint: " + source);
+            }
+            if (count > 0) {
+                //copy into the file before mapping it, so the mappings
+                //see the limbs
+                result.ensureMapped(0);
+                long position = 0;
+                long bytes = count * LIMB_BYTES;
+                while (position < bytes) {
+                    position += result.storage.file.transferFrom(in,
+                            position, bytes - position);
+                }
+                result.ensureMapped(count);
+                result.length = count;
+            }
+            result.tail = tail;
+            result.tailDigits = tailDigits;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,218 @@
+import java.util.Random;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Benchmark of {@code NaturalNumber3} multiplication. It first sweeps the
+ * Karatsuba, Toom-3 and NTT crossover thresholds of {@code LimbArithmetic}
+ * (the fastest setting of each should be close to the default in
+ * {@code LimbArithmetic}), then times 10k to 1M digit products with
+ * schoolbook only, Karatsuba only, Karatsuba and Toom-3, and the default mix
+ * of all four.
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+public final class NaturalNumberBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NaturalNumberBenchmark() {
+    }
+
+    /**
+     * Decimal digits per limb.
+     */
+    private static final int LIMB_DIGITS = 9;
+
+    /**
+     * Threshold that turns an algorithm off.
+     */
+    private static final int OFF = Integer.MAX_VALUE;
+
+    /**
+     * Operand size, in limbs, for the Karatsuba threshold sweep.
+     */
+    private static final int KARATSUBA_SWEEP_LIMBS = 1000;
+
+    /**
+     * Karatsuba thresholds to try.
+     */
+    private static final int[] KARATSUBA_CANDIDATES = { 16, 24, 32, 40, 48,
+        64, 96 };
+
+    /**
+     * Operand size, in limbs, for the Toom-3 threshold sweep.
+     */
+    private static final int TOOM3_SWEEP_LIMBS = 6000;
+
+    /**
+     * Toom-3 thresholds to try.
+     */
+    private static final int[] TOOM3_CANDIDATES = { 80, 120, 160, 240, 320,
+        480 };
+
+    /**
+     * Operand sizes, in limbs, at which Toom-3 and NTT are compared to find
+     * the NTT threshold.
+     */
+    private static final int[] NTT_SWEEP_LIMBS = { 500, 1000, 1500, 2500,
+        4000 };
+
+    /**
+     * Operand sizes, in decimal digits, for the algorithm comparison.
+     */
+    private static final int[] DIGITS = { 10000, 30000, 100000, 1000000 };
+
+    /**
+     * Largest operand size, in digits, for which schoolbook is timed.
+     */
+    private static final int SCHOOLBOOK_MAX_DIGITS = 30000;
+
+    /**
+     * Largest operand size, in digits, for which Karatsuba alone is timed.
+     */
+    private static final int KARATSUBA_MAX_DIGITS = 100000;
+
+    /**
+     * Timed repetitions per measurement; the fastest one is reported.
+     */
+    private static final int REPEAT = 5;
+
+    /**
+     * Untimed rounds run first, so that the timed code is compiled.
+     */
+    private static final int WARM_UP = 20;
+
+    /**
+     * Seed of the random number generator, so that runs are repeatable.
+     */
+    private static final long SEED = 2231;
+
+    /**
+     * Nanoseconds per microsecond.
+     */
+    private static final long NANOS_PER_MICRO = 1000;
+
+    /**
+     * Returns a random magnitude of {@code n} limbs with a nonzero top limb.
+     *
+     * @param n
+     *            the number of limbs
+     * @param rnd
+     *            the random number generator
+     * @return the magnitude
+     * @requires n > 0
+     */
+    private static int[] randomLimbs(int n, Random rnd) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(LimbArithmetic.BASE);
+        }
+        a[n - 1] = 1 + rnd.nextInt(LimbArithmetic.BASE - 1);
+        return a;
+    }
+
+    /**
+     * Returns the fastest of {@code REPEAT} timings of the product of
+     * {@code a} and {@code b} with the given thresholds.
+     *
+     * @param a
+     *            the first operand
+     * @param b
+     *            the second operand
+     * @param karatsuba
+     *            the Karatsuba threshold
+     * @param toom3
+     *            the Toom-3 threshold
+     * @param ntt
+     *            the NTT threshold
+     * @return the time of one product in microseconds
+     */
+    private static long time(int[] a, int[] b, int karatsuba, int toom3,
+            int ntt) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < REPEAT; i++) {
+            long start = System.nanoTime();
+            LimbArithmetic.multiply(a, b, karatsuba, toom3, ntt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        Random rnd = new Random(SEED);
+        int[] a = randomLimbs(KARATSUBA_SWEEP_LIMBS, rnd);
+        int[] b = randomLimbs(KARATSUBA_SWEEP_LIMBS, rnd);
+        for (int i = 0; i < WARM_UP; i++) {
+            time(a, b, OFF, OFF, OFF);
+            time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD, OFF, OFF);
+            time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.KARATSUBA_THRESHOLD, OFF);
+            time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.TOOM3_THRESHOLD, 1);
+        }
+
+        out.println("Karatsuba threshold (limbs), " + KARATSUBA_SWEEP_LIMBS
+                + "-limb operands, Toom-3 off");
+        for (int k : KARATSUBA_CANDIDATES) {
+            out.println(String.format("%8d  %10d us", k,
+                    time(a, b, k, OFF, OFF)));
+        }
+
+        out.println("Toom-3 threshold (limbs), " + TOOM3_SWEEP_LIMBS
+                + "-limb operands, default Karatsuba threshold, NTT off");
+        a = randomLimbs(TOOM3_SWEEP_LIMBS, rnd);
+        b = randomLimbs(TOOM3_SWEEP_LIMBS, rnd);
+        for (int t : TOOM3_CANDIDATES) {
+            out.println(String.format("%8d  %10d us", t,
+                    time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD, t, OFF)));
+        }
+
+        out.println("NTT threshold: limbs, Toom-3 (us), NTT (us)");
+        for (int n : NTT_SWEEP_LIMBS) {
+            a = randomLimbs(n, rnd);
+            b = randomLimbs(n, rnd);
+            long toom3 = time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.TOOM3_THRESHOLD, OFF);
+            long ntt = time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.TOOM3_THRESHOLD, 1);
+            out.println(String.format("%8d  %10d  %10d", n, toom3, ntt));
+        }
+
+        out.println("digits   schoolbook (us)   Karatsuba (us)"
+                + "  Karatsuba+Toom-3 (us)  default (us)");
+        for (int d : DIGITS) {
+            int n = (d + LIMB_DIGITS - 1) / LIMB_DIGITS;
+            a = randomLimbs(n, rnd);
+            b = randomLimbs(n, rnd);
+            String schoolbook = "-";
+            if (d <= SCHOOLBOOK_MAX_DIGITS) {
+                schoolbook = Long.toString(time(a, b, OFF, OFF, OFF));
+            }
+            String karatsubaOnly = "-";
+            if (d <= KARATSUBA_MAX_DIGITS) {
+                karatsubaOnly = Long.toString(time(a, b,
+                        LimbArithmetic.KARATSUBA_THRESHOLD, OFF, OFF));
+            }
+            long toom3 = time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.TOOM3_THRESHOLD, OFF);
+            long mixed = time(a, b, LimbArithmetic.KARATSUBA_THRESHOLD,
+                    LimbArithmetic.TOOM3_THRESHOLD,
+                    LimbArithmetic.NTT_THRESHOLD);
+            out.println(String.format("%7d  %16s  %15s  %21d  %12d", d,
+                    schoolbook, karatsubaOnly, toom3, mixed));
+        }
+        out.close();
+    }
+
+}
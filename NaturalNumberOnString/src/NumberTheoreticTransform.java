@@ -0,0 +1,351 @@
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Multiplication of base-10<sup>9</sup> limb magnitudes by number-theoretic
+ * transform, in O(n log n) time and with no rounding error.
+ *
+ * <p>
+ * The limbs of each operand are the coefficients of a polynomial, and the
+ * product is their convolution, evaluated at x = 10<sup>9</sup>. The
+ * convolution is computed three times, by NTT modulo three primes of the form
+ * c * 2<sup>k</sup> + 1, and each coefficient is put back together from its
+ * three residues by the Chinese remainder theorem (Garner's algorithm). The
+ * product of the primes is about 7.9 * 10<sup>25</sup>, which is more than
+ * any coefficient can reach while the shorter operand has fewer than
+ * 7.8 * 10<sup>7</sup> limbs, so the result is always exact. When running
+ * in a fork/join pool, the three convolutions run as parallel tasks.
+ * </p>
+ *
+ * @mathdefinitions <pre>
+ * BASE: integer is 1000000000
+ * VALUE(
+ *   a: string of integer, len: integer
+ *  ): integer satisfies
+ *  [sum of a[i] * BASE^i for 0 <= i < len]
+ * </pre>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+final class NumberTheoreticTransform {
+
+    /**
+     * Value of one limb place.
+     */
+    private static final long BASE = LimbArithmetic.BASE;
+
+    /**
+     * First prime, 119 * 2^23 + 1.
+     */
+    private static final long P1 = 998244353L;
+
+    /**
+     * Second prime, 5 * 2^25 + 1.
+     */
+    private static final long P2 = 167772161L;
+
+    /**
+     * Third prime, 7 * 2^26 + 1.
+     */
+    private static final long P3 = 469762049L;
+
+    /**
+     * Primitive root of all three primes.
+     */
+    private static final long GENERATOR = 3;
+
+    /**
+     * Largest transform length: every prime has roots of unity of this
+     * order.
+     */
+    static final int MAX_LENGTH = 1 << 23;
+
+    /**
+     * A convolution modulo one prime, as a task for a fork/join pool.
+     */
+    private static final class Convolution extends RecursiveTask<long[]> {
+
+        /**
+         * Serialization version, as RecursiveTask is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first magnitude.
+         */
+        private final int[] a;
+
+        /**
+         * The number of limbs of a.
+         */
+        private final int aLen;
+
+        /**
+         * The second magnitude, or null to square a.
+         */
+        private final int[] b;
+
+        /**
+         * The number of limbs of b.
+         */
+        private final int bLen;
+
+        /**
+         * The transform length.
+         */
+        private final int n;
+
+        /**
+         * The prime modulus.
+         */
+        private final long p;
+
+        /**
+         * Constructor from the arguments of {@code convolve}.
+         *
+         * @param a
+         *            the first magnitude
+         * @param aLen
+         *            the number of limbs of a
+         * @param b
+         *            the second magnitude, or null to square a
+         * @param bLen
+         *            the number of limbs of b
+         * @param n
+         *            the transform length
+         * @param p
+         *            the prime modulus
+         */
+        Convolution(int[] a, int aLen, int[] b, int bLen, int n, long p) {
+            this.a = a;
+            this.aLen = aLen;
+            this.b = b;
+            this.bLen = bLen;
+            this.n = n;
+            this.p = p;
+        }
+
+        @Override
+        protected long[] compute() {
+            return convolve(this.a, this.aLen, this.b, this.bLen, this.n,
+                    this.p);
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NumberTheoreticTransform() {
+    }
+
+    /**
+     * Returns {@code b} to the power {@code e}, modulo {@code p}.
+     *
+     * @param b
+     *            the base
+     * @param e
+     *            the exponent
+     * @param p
+     *            the modulus
+     * @return b^e mod p
+     * @requires 0 <= b < p < 2^31 and e >= 0
+     */
+    private static long power(long b, long e, long p) {
+        long result = 1;
+        long square = b;
+        long rest = e;
+        while (rest > 0) {
+            if ((rest & 1) != 0) {
+                result = result * square % p;
+            }
+            square = square * square % p;
+            rest >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces {@code a} by its number-theoretic transform modulo {@code p},
+     * or by its inverse transform.
+     *
+     * @param a
+     *            the values, all in 0..p-1
+     * @param p
+     *            the prime modulus
+     * @param inverse
+     *            whether to compute the inverse transform
+     * @updates a
+     * @requires <pre>
+     * |a| is a power of 2  and  |a| <= MAX_LENGTH  and
+     * p is one of P1, P2, P3
+     * </pre>
+     * @ensures <pre>
+     * a = [the (inverse) transform of #a modulo p, with the inverse scaled
+     *      by 1/|a|]
+     * </pre>
+     */
+    private static void transform(long[] a, long p, boolean inverse) {
+        int n = a.length;
+        //bit-reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            while ((j & bit) != 0) {
+                j ^= bit;
+                bit >>= 1;
+            }
+            j |= bit;
+            if (i < j) {
+                long tmp = a[i];
+                a[i] = a[j];
+                a[j] = tmp;
+            }
+        }
+        long[] twiddle = new long[Math.max(1, n / 2)];
+        for (int len = 2; len <= n; len <<= 1) {
+            int half = len / 2;
+            long w = power(GENERATOR, (p - 1) / len, p);
+            if (inverse) {
+                w = power(w, p - 2, p);
+            }
+            twiddle[0] = 1;
+            for (int j = 1; j < half; j++) {
+                twiddle[j] = twiddle[j - 1] * w % p;
+            }
+            for (int i = 0; i < n; i += len) {
+                for (int j = 0; j < half; j++) {
+                    long u = a[i + j];
+                    long v = a[i + j + half] * twiddle[j] % p;
+                    long sum = u + v;
+                    if (sum >= p) {
+                        sum -= p;
+                    }
+                    long diff = u - v;
+                    if (diff < 0) {
+                        diff += p;
+                    }
+                    a[i + j] = sum;
+                    a[i + j + half] = diff;
+                }
+            }
+        }
+        if (inverse) {
+            long nInverse = power(n, p - 2, p);
+            for (int i = 0; i < n; i++) {
+                a[i] = a[i] * nInverse % p;
+            }
+        }
+    }
+
+    /**
+     * Returns the cyclic convolution of {@code a} and {@code b} modulo
+     * {@code p}, with both padded to {@code n} entries.
+     *
+     * @param a
+     *            the first magnitude
+     * @param aLen
+     *            the number of limbs of a
+     * @param b
+     *            the second magnitude, or null to square a
+     * @param bLen
+     *            the number of limbs of b
+     * @param n
+     *            the transform length
+     * @param p
+     *            the prime modulus
+     * @return the convolution modulo p
+     */
+    private static long[] convolve(int[] a, int aLen, int[] b, int bLen,
+            int n, long p) {
+        long[] fa = new long[n];
+        for (int i = 0; i < aLen; i++) {
+            fa[i] = a[i] % p;
+        }
+        transform(fa, p, false);
+        long[] fb = fa;
+        if (b != null) {
+            fb = new long[n];
+            for (int i = 0; i < bLen; i++) {
+                fb[i] = b[i] % p;
+            }
+            transform(fb, p, false);
+        }
+        for (int i = 0; i < n; i++) {
+            fa[i] = fa[i] * fb[i] % p;
+        }
+        transform(fa, p, true);
+        return fa;
+    }
+
+    /**
+     * Returns the product of two magnitudes.
+     *
+     * @param a
+     *            the first magnitude
+     * @param aLen
+     *            the number of limbs of a to use
+     * @param b
+     *            the second magnitude
+     * @param bLen
+     *            the number of limbs of b to use
+     * @return VALUE(a, aLen) * VALUE(b, bLen), in aLen + bLen limbs
+     * @requires 0 < aLen and 0 < bLen and aLen + bLen <= MAX_LENGTH
+     */
+    static int[] multiply(int[] a, int aLen, int[] b, int bLen) {
+        assert aLen + bLen <= MAX_LENGTH : ""
+                + "Violation of: aLen + bLen <= MAX_LENGTH";
+
+        int n = Integer.highestOneBit(Math.max(1, aLen + bLen - 1));
+        if (n < aLen + bLen - 1) {
+            n <<= 1;
+        }
+        //a squared needs only one forward transform per prime
+        int[] second = b;
+        if (a == b && aLen == bLen) {
+            second = null;
+        }
+        long[] r1;
+        long[] r2;
+        long[] r3;
+        if (ForkJoinTask.inForkJoinPool()) {
+            Convolution c2 = new Convolution(a, aLen, second, bLen, n, P2);
+            Convolution c3 = new Convolution(a, aLen, second, bLen, n, P3);
+            c2.fork();
+            c3.fork();
+            r1 = convolve(a, aLen, second, bLen, n, P1);
+            r3 = c3.join();
+            r2 = c2.join();
+        } else {
+            r1 = convolve(a, aLen, second, bLen, n, P1);
+            r2 = convolve(a, aLen, second, bLen, n, P2);
+            r3 = convolve(a, aLen, second, bLen, n, P3);
+        }
+        //Garner: c = v1 + P1 (v2 + P2 v3), with vi < Pi
+        long inv1Mod2 = power(P1 % P2, P2 - 2, P2);
+        long inv12Mod3 = power(P1 % P3 * (P2 % P3) % P3, P3 - 2, P3);
+        int[] result = new int[aLen + bLen];
+        long carry = 0;
+        for (int k = 0; k < result.length; k++) {
+            long low = 0;
+            long high = 0;
+            if (k < n) {
+                long v1 = r1[k];
+                long v2 = (r2[k] - v1 % P2 + P2) % P2 * inv1Mod2 % P2;
+                long t = (r3[k] - v1 % P3 + P3) % P3;
+                t = (t - P1 % P3 * v2 % P3 + P3) % P3;
+                long v3 = t * inv12Mod3 % P3;
+                //P1 * w overflows a long, so it is split at BASE
+                long w = v2 + P2 * v3;
+                low = v1 + P1 * (w % BASE);
+                high = P1 * (w / BASE);
+            }
+            long sum = carry + low;
+            result[k] = (int) (sum % BASE);
+            carry = sum / BASE + high;
+        }
+        assert carry == 0 : "Violation of: the product fits";
+        return result;
+    }
+
+}
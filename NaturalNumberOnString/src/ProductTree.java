@@ -0,0 +1,268 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import components.naturalnumber.NaturalNumber;
+
+/**
+ * Products of many {@code NaturalNumber}s, and factorials, computed by a
+ * product tree on a fork/join pool.
+ *
+ * <p>
+ * The factors are the leaves of a balanced binary tree, split so that the two
+ * halves of each node have about the same number of limbs, and each node is
+ * the product of its children. Multiplying sizes that match is what makes
+ * Karatsuba, Toom-3 and the NTT pay off, so the whole product costs about as
+ * much as its last multiplication; multiplying the factors in one left-to-
+ * right pass would instead cost a quadratic number of limb operations. The
+ * two children of a node are computed in parallel, and the large
+ * multiplications near the root fork their own sub-products (see
+ * {@code LimbArithmetic}), so that all the cores of the pool stay busy from
+ * the leaves to the root.
+ * </p>
+ *
+ * @author Yanqing Xu, Shafin Alam
+ *
+ */
+public final class ProductTree {
+
+    /**
+     * Number of limbs in a subtree below which it is multiplied out in the
+     * current thread.
+     */
+    private static final int SEQUENTIAL_LIMBS = 500;
+
+    /**
+     * Value of one limb place.
+     */
+    private static final long BASE = LimbArithmetic.BASE;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ProductTree() {
+    }
+
+    /**
+     * The product of a range of leaves, as a task for a fork/join pool.
+     */
+    private static final class Subtree extends RecursiveTask<int[]> {
+
+        /**
+         * Serialization version, as RecursiveTask is serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The leaves, as magnitudes.
+         */
+        private final int[][] leaves;
+
+        /**
+         * Total number of limbs of leaves[0, i), in entry i.
+         */
+        private final long[] prefix;
+
+        /**
+         * Index of the first leaf of this subtree.
+         */
+        private final int lo;
+
+        /**
+         * One past the index of the last leaf of this subtree.
+         */
+        private final int hi;
+
+        /**
+         * Constructor.
+         *
+         * @param leaves
+         *            the leaves
+         * @param prefix
+         *            the running totals of their lengths
+         * @param lo
+         *            the first leaf
+         * @param hi
+         *            one past the last leaf
+         */
+        Subtree(int[][] leaves, long[] prefix, int lo, int hi) {
+            this.leaves = leaves;
+            this.prefix = prefix;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected int[] compute() {
+            int[] result;
+            if (this.hi - this.lo == 1) {
+                result = this.leaves[this.lo];
+            } else {
+                int mid = split(this.prefix, this.lo, this.hi);
+                if (this.prefix[this.hi]
+                        - this.prefix[this.lo] < SEQUENTIAL_LIMBS) {
+                    result = LimbArithmetic.multiply(
+                            new Subtree(this.leaves, this.prefix, this.lo,
+                                    mid).compute(),
+                            new Subtree(this.leaves, this.prefix, mid,
+                                    this.hi).compute());
+                } else {
+                    Subtree left = new Subtree(this.leaves, this.prefix,
+                            this.lo, mid);
+                    left.fork();
+                    int[] right = new Subtree(this.leaves, this.prefix, mid,
+                            this.hi).compute();
+                    result = LimbArithmetic.multiply(left.join(), right);
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the index that splits leaves [lo, hi) into two non-empty
+     * ranges with as close to the same number of limbs as possible.
+     *
+     * @param prefix
+     *            the running totals of the lengths of the leaves
+     * @param lo
+     *            the first leaf
+     * @param hi
+     *            one past the last leaf
+     * @return the split point
+     * @requires hi - lo >= 2
+     * @ensures lo < split < hi
+     */
+    private static int split(long[] prefix, int lo, int hi) {
+        long half = (prefix[lo] + prefix[hi]) / 2;
+        int a = lo + 1;
+        int b = hi - 1;
+        //the least index in [lo + 1, hi - 1] whose prefix reaches half
+        while (a < b) {
+            int m = (a + b) / 2;
+            if (prefix[m] < half) {
+                a = m + 1;
+            } else {
+                b = m;
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Returns the product of magnitudes {@code leaves}, by a product tree on
+     * {@code pool}.
+     *
+     * @param leaves
+     *            the factors
+     * @param pool
+     *            the pool
+     * @return the product, as a new {@code NaturalNumber3}
+     */
+    private static NaturalNumber multiplyOut(int[][] leaves,
+            ForkJoinPool pool) {
+        int[] mag = { 1 };
+        if (leaves.length > 0) {
+            long[] prefix = new long[leaves.length + 1];
+            for (int i = 0; i < leaves.length; i++) {
+                prefix[i + 1] = prefix[i]
+                        + Math.max(1, LimbArithmetic.length(leaves[i]));
+            }
+            mag = pool.invoke(new Subtree(leaves, prefix, 0, leaves.length));
+        }
+        NaturalNumber result = new NaturalNumber3();
+        //the root may be a leaf, which the caller still owns
+        NaturalNumber3.setLimbs(result, mag.clone());
+        return result;
+    }
+
+    /**
+     * Returns the product of {@code factors}, on the common fork/join pool.
+     *
+     * @param factors
+     *            the factors
+     * @return the product of the entries of factors
+     * @ensures product = [product of the entries of factors, 1 if none]
+     */
+    public static NaturalNumber product(NaturalNumber[] factors) {
+        return product(factors, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the product of {@code factors}, on {@code pool}.
+     *
+     * @param factors
+     *            the factors
+     * @param pool
+     *            the fork/join pool to run on
+     * @return the product of the entries of factors
+     * @requires [no entry of factors is null]
+     * @ensures product = [product of the entries of factors, 1 if none]
+     */
+    public static NaturalNumber product(NaturalNumber[] factors,
+            ForkJoinPool pool) {
+        assert factors != null : "Violation of: factors is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        int[][] leaves = new int[factors.length][];
+        for (int i = 0; i < factors.length; i++) {
+            assert factors[i] != null : "Violation of: factors[i] is not null";
+            leaves[i] = NaturalNumber3.limbsOf(factors[i]);
+        }
+        return multiplyOut(leaves, pool);
+    }
+
+    /**
+     * Returns {@code n!}, on the common fork/join pool.
+     *
+     * @param n
+     *            the number
+     * @return n!
+     * @requires n >= 0
+     * @ensures factorial = n!
+     */
+    public static NaturalNumber factorial(int n) {
+        return factorial(n, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns {@code n!}, on {@code pool}. The leaves of the tree are runs of
+     * consecutive factors multiplied together in a {@code long}, up to two
+     * limbs each.
+     *
+     * @param n
+     *            the number
+     * @param pool
+     *            the fork/join pool to run on
+     * @return n!
+     * @requires n >= 0
+     * @ensures factorial = n!
+     */
+    public static NaturalNumber factorial(int n, ForkJoinPool pool) {
+        assert n >= 0 : "Violation of: n >= 0";
+        assert pool != null : "Violation of: pool is not null";
+
+        final long limit = BASE * BASE;
+        int[][] leaves = new int[Math.max(0, n - 1)][];
+        int count = 0;
+        long run = 1;
+        for (long i = 2; i <= n; i++) {
+            if (run > (limit - 1) / i) {
+                leaves[count] = new int[] { (int) (run % BASE),
+                    (int) (run / BASE) };
+                count++;
+                run = 1;
+            }
+            run *= i;
+        }
+        if (run > 1) {
+            leaves[count] = new int[] { (int) (run % BASE),
+                (int) (run / BASE) };
+            count++;
+        }
+        int[][] used = new int[count][];
+        System.arraycopy(leaves, 0, used, 0, count);
+        return multiplyOut(used, pool);
+    }
+
+}
@@ -0,0 +1,144 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber1L;
+
+/**
+ * JUnit test fixture for {@code MontgomeryContext}.
+ */
+public class MontgomeryContextTest {
+
+    /**
+     * The Mersenne prime 2^127 - 1.
+     */
+    private static final String M127 = "17014118346046923173168730371588"
+            + "4105727";
+
+    /**
+     * Returns {@code x^e mod m}, by power and divide.
+     *
+     * @param x
+     *            the base
+     * @param e
+     *            the exponent
+     * @param m
+     *            the modulus
+     * @return x^e mod m
+     */
+    private static NaturalNumber powerMod(String x, int e, String m) {
+        NaturalNumber p = new NaturalNumber1L(x);
+        p.power(e);
+        return p.divide(new NaturalNumber1L(m));
+    }
+
+    /**
+     * Test of modPow with a small odd modulus.
+     */
+    @Test
+    public final void testModPowSmall() {
+        MontgomeryContext c = new MontgomeryContext(new NaturalNumber3(497));
+        NaturalNumber x = new NaturalNumber3(4);
+        c.modPow(x, new NaturalNumber3(13));
+        assertEquals(new NaturalNumber1L(445), x);
+        x = new NaturalNumber3(1000);
+        c.modPow(x, new NaturalNumber3(0));
+        assertEquals(new NaturalNumber1L(1), x);
+    }
+
+    /**
+     * Test of modPow with a modulus that is not coprime to 10.
+     */
+    @Test
+    public final void testModPowEvenAndMultipleOfFive() {
+        String[] moduli = { "1000", "4096", "123456789012345678901234567890",
+            "5" };
+        for (String m : moduli) {
+            MontgomeryContext c = new MontgomeryContext(
+                    new NaturalNumber3(m));
+            NaturalNumber x = new NaturalNumber3(3);
+            c.modPow(x, new NaturalNumber3(200));
+            assertEquals(powerMod("3", 200, m), x);
+        }
+    }
+
+    /**
+     * Test of modPow by Fermat's little theorem on a 127-bit prime, with a
+     * window larger than one bit.
+     */
+    @Test
+    public final void testModPowFermat() {
+        NaturalNumber p = new NaturalNumber3(M127);
+        MontgomeryContext c = new MontgomeryContext(p);
+        NaturalNumber e = new NaturalNumber3(M127);
+        e.decrement();
+        NaturalNumber x = new NaturalNumber3("98765432109876543210987654321");
+        c.modPow(x, e);
+        assertEquals(new NaturalNumber1L(1), x);
+        x = new NaturalNumber3(2);
+        c.modPow(x, new NaturalNumber3(127));
+        assertEquals(new NaturalNumber1L(1), x);
+        x = new NaturalNumber3(2);
+        c.modPow(x, new NaturalNumber3(200));
+        //2^200 = 2^73 * 2^127
+        assertEquals(new NaturalNumber1L("9444732965739290427392"), x);
+    }
+
+    /**
+     * Test of modPow against power and divide, with a base larger than the
+     * modulus and a base that is not a {@code NaturalNumber3}.
+     */
+    @Test
+    public final void testModPowAgainstPowerDivide() {
+        String m = "99999999999999999999999999999999999999999999999989";
+        String x = "31415926535897932384626433832795028841971693993751058";
+        MontgomeryContext c = new MontgomeryContext(new NaturalNumber3(m));
+        NaturalNumber t = new NaturalNumber3(x);
+        c.modPow(t, new NaturalNumber3(77));
+        assertEquals(powerMod(x, 77, m), t);
+        t = new NaturalNumber1L(x);
+        c.modPow(t, new NaturalNumber1L(77));
+        assertEquals(powerMod(x, 77, m), t);
+    }
+
+    /**
+     * Test of reduce, add, subtract and multiply.
+     */
+    @Test
+    public final void testReduceAddSubtractMultiply() {
+        String m = "1000000000000000000000000000057";
+        MontgomeryContext c = new MontgomeryContext(new NaturalNumber3(m));
+        assertEquals(new NaturalNumber1L(m), c.modulus());
+        NaturalNumber x = new NaturalNumber3("3000000000000000000000000000200");
+        c.reduce(x);
+        assertEquals(new NaturalNumber1L(29), x);
+        c.subtract(x, new NaturalNumber3(30));
+        assertEquals(new NaturalNumber1L("1000000000000000000000000000056"),
+                x);
+        c.add(x, new NaturalNumber3(3));
+        assertEquals(new NaturalNumber1L(2), x);
+        x = new NaturalNumber3("999999999999999999999999999999");
+        c.multiply(x, new NaturalNumber3("999999999999999999999999999999"));
+        NaturalNumber expected = new NaturalNumber1L(
+                "999999999999999999999999999999");
+        expected.multiply(new NaturalNumber1L(
+                "999999999999999999999999999999"));
+        assertEquals(expected.divide(new NaturalNumber1L(m)), x);
+    }
+
+    /**
+     * Test of modulus 1.
+     */
+    @Test
+    public final void testModulusOne() {
+        MontgomeryContext c = new MontgomeryContext(new NaturalNumber3(1));
+        NaturalNumber x = new NaturalNumber3(12345);
+        c.modPow(x, new NaturalNumber3(0));
+        assertEquals(new NaturalNumber1L(0), x);
+        x = new NaturalNumber3(12345);
+        c.multiply(x, new NaturalNumber3(2));
+        assertEquals(new NaturalNumber1L(0), x);
+    }
+
+}
@@ -1,6 +1,14 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
 import components.naturalnumber.NaturalNumber;
 import components.naturalnumber.NaturalNumber1L;
-import components.naturalnumber.NaturalNumber3;
 
 /**
  * Customized JUnit test fixture for {@code NaturalNumber3}.
@@ -55,4 +63,564 @@ public class NaturalNumber3Test extends NaturalNumberTest {
         return new NaturalNumber1L(n);
     }
 
+    /**
+     * Test for multiplyBy10 and divideBy10 across a limb boundary.
+     */
+    @Test
+    public final void testMultiplyDivideBy10LimbBoundary() {
+        NaturalNumber t = this.constructorTest("999999999");
+        NaturalNumber r = this.constructorRef("9999999995");
+        t.multiplyBy10(5);
+        assertEquals(r, t);
+        assertEquals(5, t.divideBy10());
+        assertEquals(9, t.divideBy10());
+        assertEquals(this.constructorRef("99999999"), t);
+    }
+
+    /**
+     * Test for String constructor and divideBy10 on a many-limb number.
+     */
+    @Test
+    public final void testStringConstructorManyLimbs() {
+        String s = "1000000000200000000030000000004000000000";
+        NaturalNumber t = this.constructorTest(s);
+        assertEquals(s, t.toString());
+        for (int i = 0; i < s.length() - 1; i++) {
+            assertEquals(s.charAt(s.length() - 1 - i) - '0', t.divideBy10());
+        }
+        assertEquals(this.constructorRef(1), t);
+        assertEquals(1, t.divideBy10());
+        assertEquals(true, t.isZero());
+    }
+
+    /**
+     * Test for multiplyBy10 and divideBy10 past the digits that fit in a long.
+     */
+    @Test
+    public final void testMultiplyDivideBy10PastLong() {
+        String s = "12345678901234567890123";
+        NaturalNumber t = this.constructorTest();
+        for (int i = 0; i < s.length(); i++) {
+            t.multiplyBy10(s.charAt(i) - '0');
+            assertEquals(this.constructorRef(s.substring(0, i + 1)), t);
+        }
+        for (int i = s.length() - 1; i > 0; i--) {
+            assertEquals(s.charAt(i) - '0', t.divideBy10());
+            assertEquals(this.constructorRef(s.substring(0, i)), t);
+        }
+    }
+
+    /**
+     * Test for building and taking apart a long number one digit at a time,
+     * including runs of zeros.
+     */
+    @Test
+    public final void testMultiplyDivideBy10ManyDigits() {
+        final int n = 200000;
+        NaturalNumber t = this.constructorTest();
+        for (int i = 0; i < n; i++) {
+            t.multiplyBy10(i % 13 % 10 * (i / 50 % 2));
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            assertEquals(i % 13 % 10 * (i / 50 % 2), t.divideBy10());
+        }
+        assertEquals(true, t.isZero());
+    }
+
+    /**
+     * Test for add and subtract with carries and borrows across many limbs,
+     * on numbers with digits still in the tail.
+     */
+    @Test
+    public final void testAddSubtractCarries() {
+        String nines = "999999999999999999999999999999";
+        NaturalNumber t = this.constructorTest(nines);
+        t.multiplyBy10(9);
+        NaturalNumber u = this.constructorTest(1);
+        t.add(u);
+        assertEquals(this.constructorRef("1" + nines.replace('9', '0') + "0"),
+                t);
+        t.subtract(u);
+        assertEquals(this.constructorRef(nines + "9"), t);
+        NaturalNumber v = this.constructorTest(nines);
+        t.subtract(v);
+        assertEquals(this.constructorRef("9" + nines.replace('9', '0')), t);
+        t.add(t.newInstance());
+        assertEquals(this.constructorRef("9" + nines.replace('9', '0')), t);
+    }
+
+    /**
+     * Test for add, subtract and compareTo against the reference, with
+     * arguments of another implementation.
+     */
+    @Test
+    public final void testAddSubtractCompareMixed() {
+        String a = "31415926535897932384626433832795028841971";
+        String b = "2718281828459045235360287471352662497757247093";
+        NaturalNumber t = this.constructorTest(a);
+        NaturalNumber r = this.constructorRef(a);
+        NaturalNumber n = this.constructorRef(b);
+        assertEquals(-1, Integer.signum(t.compareTo(n)));
+        t.add(n);
+        r.add(n);
+        assertEquals(r, t);
+        assertEquals(1, Integer.signum(t.compareTo(n)));
+        t.subtract(n);
+        assertEquals(this.constructorRef(a), t);
+        assertEquals(0, t.compareTo(this.constructorRef(a)));
+    }
+
+    /**
+     * Test for increment and decrement across the tail and limb boundaries.
+     */
+    @Test
+    public final void testIncrementDecrementBoundaries() {
+        String[] cases = { "0", "999999999", "999999999999999999",
+            "1000000000000000000", "999999999999999999999999999",
+            "1000000000000000000000000000" };
+        for (String c : cases) {
+            NaturalNumber t = this.constructorTest(c);
+            NaturalNumber r = this.constructorRef(c);
+            t.increment();
+            r.increment();
+            assertEquals(r, t);
+            t.decrement();
+            assertEquals(this.constructorRef(c), t);
+            if (!t.isZero()) {
+                t.decrement();
+                r.subtract(this.constructorRef(2));
+                assertEquals(r, t);
+            }
+        }
+    }
+
+    /**
+     * Returns a number of {@code n} digits made from a simple pattern.
+     *
+     * @param n
+     *            the number of digits
+     * @param seed
+     *            a value that changes the pattern
+     * @return the decimal depiction
+     * @requires n > 0
+     */
+    private static String digits(int n, int seed) {
+        StringBuilder b = new StringBuilder("9");
+        for (int i = 1; i < n; i++) {
+            b.append((char) ('0' + (i * seed + i / 7) % 10));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Test for multiply on operands large enough for Karatsuba and Toom-3,
+     * including unbalanced ones.
+     */
+    @Test
+    public final void testMultiplyLarge() {
+        final int[][] sizes = { { 20, 30 }, { 500, 450 }, { 3000, 2600 },
+            { 4000, 700 } };
+        for (int[] size : sizes) {
+            String a = digits(size[0], 3);
+            String b = digits(size[1], 7);
+            NaturalNumber t = this.constructorTest(a);
+            NaturalNumber r = this.constructorRef(a);
+            t.multiply(this.constructorTest(b));
+            r.multiply(this.constructorRef(b));
+            assertEquals(r, t);
+        }
+    }
+
+    /**
+     * Test for multiply on operands large enough for the number-theoretic
+     * transform, and for squaring. The results are compared with compareTo,
+     * which works on the limbs, since they are too long for equals to take
+     * apart one digit at a time.
+     */
+    @Test
+    public final void testMultiplyHuge() {
+        String a = digits(16000, 3);
+        String b = digits(14000, 7);
+        NaturalNumber t = this.constructorTest(a);
+        NaturalNumber r = this.constructorRef(a);
+        t.multiply(this.constructorTest(b));
+        r.multiply(this.constructorRef(b));
+        assertEquals(0, t.compareTo(r));
+        t.multiply(t);
+        r.multiply(this.constructorRef(r));
+        assertEquals(0, t.compareTo(r));
+    }
+
+    /**
+     * Test for divide with small and large divisors, on operands large
+     * enough for Burnikel-Ziegler division.
+     */
+    @Test
+    public final void testDivideLarge() {
+        final int[][] sizes = { { 40, 1 }, { 30, 45 }, { 900, 400 },
+            { 6000, 2500 }, { 9000, 1400 } };
+        for (int[] size : sizes) {
+            String a = digits(size[0], 3);
+            String b = digits(size[1], 7);
+            NaturalNumber t = this.constructorTest(a);
+            NaturalNumber r = this.constructorRef(a);
+            NaturalNumber tRem = t.divide(this.constructorTest(b));
+            NaturalNumber rRem = r.divide(this.constructorRef(b));
+            assertEquals(0, t.compareTo(r));
+            assertEquals(0, tRem.compareTo(rRem));
+        }
+    }
+
+    /**
+     * Test for divide where the dividend is an exact multiple of the
+     * divisor.
+     */
+    @Test
+    public final void testDivideExact() {
+        String b = digits(2000, 7);
+        NaturalNumber t = this.constructorTest(digits(3000, 3));
+        t.multiply(this.constructorTest(b));
+        NaturalNumber rem = t.divide(this.constructorTest(b));
+        assertEquals(true, rem.isZero());
+        assertEquals(0, t.compareTo(this.constructorRef(digits(3000, 3))));
+    }
+
+    /**
+     * Test for toString with zero limbs and digits in the tail.
+     */
+    @Test
+    public final void testToStringTailAndZeroLimbs() {
+        String s = "7000000000000000000000000000000000000000000000000";
+        NaturalNumber t = this.constructorTest();
+        for (int i = 0; i < s.length(); i++) {
+            t.multiplyBy10(s.charAt(i) - '0');
+        }
+        assertEquals(s, t.toString());
+        t.increment();
+        assertEquals(s.substring(0, s.length() - 1) + "1", t.toString());
+        assertEquals("0", this.constructorTest(0).toString());
+    }
+
+    /**
+     * Test for toString and writeTo on a long number.
+     *
+     * @throws IOException
+     *             if the writer fails
+     */
+    @Test
+    public final void testToStringWriteToLong() throws IOException {
+        String s = digits(50000, 3);
+        NaturalNumber3 t = new NaturalNumber3(s);
+        t.multiplyBy10(4);
+        assertEquals(s + "4", t.toString());
+        StringWriter out = new StringWriter();
+        t.writeTo(out);
+        assertEquals(s + "4", out.toString());
+    }
+
+    /**
+     * Test of arithmetic on numbers that cross 10^18, where a number moves
+     * between the tail alone and the limbs.
+     */
+    @Test
+    public final void testInlineBoundary() {
+        String limit = "1000000000000000000";
+        NaturalNumber t = this.constructorTest("999999999999999999");
+        t.add(this.constructorTest(1));
+        assertEquals(this.constructorRef(limit), t);
+        t.subtract(this.constructorTest(1));
+        assertEquals(this.constructorRef("999999999999999999"), t);
+        t.multiply(this.constructorTest(1000));
+        assertEquals(this.constructorRef("999999999999999999000"), t);
+        NaturalNumber r = t.divide(this.constructorTest(1000000));
+        assertEquals(this.constructorRef("999999999999999"), t);
+        assertEquals(this.constructorRef(999000), r);
+        t.multiply(this.constructorTest(1000));
+        assertEquals(this.constructorRef("999999999999999000"), t);
+        assertEquals(1, this.constructorTest(limit).compareTo(t));
+        assertEquals(-1, t.compareTo(this.constructorTest(limit)));
+        t.subtract(this.constructorTest("999999999999998999"));
+        assertEquals(this.constructorRef(1), t);
+        NaturalNumber big = this.constructorTest(limit);
+        big.multiply(this.constructorTest(limit));
+        big.decrement();
+        r = big.divide(this.constructorTest("999999999999999999"));
+        assertEquals(this.constructorRef("1000000000000000001"), big);
+        assertEquals(this.constructorRef(0), r);
+        r = big.divide(this.constructorTest(7));
+        assertEquals(this.constructorRef("142857142857142857"), big);
+        assertEquals(this.constructorRef(2), r);
+    }
+
+    /**
+     * Test of setFromInt, toInt, canConvertToInt and copyFrom.
+     */
+    @Test
+    public final void testIntConversionAndCopy() {
+        NaturalNumber t = this.constructorTest("123456789012345678901234");
+        t.setFromInt(Integer.MAX_VALUE);
+        assertEquals(true, t.canConvertToInt());
+        assertEquals(Integer.MAX_VALUE, t.toInt());
+        t.increment();
+        assertEquals(false, t.canConvertToInt());
+        t.multiply(this.constructorTest("100000000000000000000"));
+        assertEquals(false, t.canConvertToInt());
+        NaturalNumber c = this.constructorTest(5);
+        c.copyFrom(t);
+        assertEquals(this.constructorRef("214748364800000000000000000000"),
+                c);
+        c.increment();
+        assertEquals(this.constructorRef("214748364800000000000000000000"),
+                t);
+        c.copyFrom(this.constructorRef(42));
+        assertEquals(42, c.toInt());
+        c.copyFrom(c);
+        assertEquals(this.constructorRef(42), c);
+    }
+
+    /**
+     * Test of power against repeated multiplication.
+     */
+    @Test
+    public final void testPowerLarge() {
+        String s = digits(700, 11);
+        NaturalNumber t = this.constructorTest(s);
+        NaturalNumber expected = this.constructorTest(1);
+        for (int i = 0; i < 13; i++) {
+            expected.multiply(this.constructorTest(s));
+        }
+        t.power(13);
+        assertEquals(0, expected.compareTo(t));
+        t.power(0);
+        assertEquals(this.constructorRef(1), t);
+        t = this.constructorTest(0);
+        t.power(5);
+        assertEquals(this.constructorRef(0), t);
+    }
+
+    /**
+     * Test of root on perfect powers of large numbers and their neighbors.
+     */
+    @Test
+    public final void testRootLarge() {
+        final int[] roots = { 2, 3, 5, 17 };
+        String s = digits(1500, 12);
+        for (int r : roots) {
+            NaturalNumber y = this.constructorTest(s);
+            NaturalNumber n = this.constructorTest(s);
+            n.power(r);
+            NaturalNumber t = this.constructorTest();
+            t.copyFrom(n);
+            t.root(r);
+            assertEquals(0, y.compareTo(t));
+            n.decrement();
+            t.copyFrom(n);
+            t.root(r);
+            y.decrement();
+            assertEquals(0, y.compareTo(t));
+            n.add(this.constructorTest(2));
+            t.copyFrom(n);
+            t.root(r);
+            y.increment();
+            assertEquals(0, y.compareTo(t));
+        }
+        NaturalNumber t = this.constructorTest(s);
+        t.root(2000000);
+        assertEquals(this.constructorRef(1), t);
+    }
+
+    /**
+     * Test of gcd and lcm on large numbers with a known common factor, and
+     * on consecutive Fibonacci numbers, the worst case for Euclid.
+     */
+    @Test
+    public final void testGcdLcm() {
+        NaturalNumber g = this.constructorTest(digits(300, 13));
+        NaturalNumber a = this.constructorTest(g);
+        a.multiply(this.constructorTest("1000000000000000000000000000057"));
+        NaturalNumber b = this.constructorTest(g);
+        b.multiply(this.constructorTest("999999999999999999999999999989"));
+        NaturalNumber3 t = new NaturalNumber3(a);
+        t.gcd(b);
+        assertEquals(0, g.compareTo(t));
+        t = new NaturalNumber3(a);
+        t.lcm(b);
+        NaturalNumber expected = this.constructorTest(a);
+        expected.multiply(this.constructorTest(
+                "999999999999999999999999999989"));
+        assertEquals(0, expected.compareTo(t));
+        NaturalNumber f0 = this.constructorTest(0);
+        NaturalNumber f1 = this.constructorTest(1);
+        for (int i = 0; i < 2000; i++) {
+            f0.add(f1);
+            NaturalNumber tmp = f0;
+            f0 = f1;
+            f1 = tmp;
+        }
+        t = new NaturalNumber3(f1);
+        t.gcd(f0);
+        assertEquals(this.constructorRef(1), t);
+        t = new NaturalNumber3(0);
+        t.gcd(f0);
+        assertEquals(0, f0.compareTo(t));
+        t.lcm(this.constructorTest(0));
+        assertEquals(this.constructorRef(0), t);
+        t = new NaturalNumber3(12);
+        t.lcm(this.constructorTest(18));
+        assertEquals(this.constructorRef(36), t);
+    }
+
+    /**
+     * Test of extendedGcd, checked against a * x = g + n * y.
+     */
+    @Test
+    public final void testExtendedGcd() {
+        String[][] cases = { { "240", "46" }, { "46", "240" }, { "6", "3" },
+            { "7", "0" }, { digits(400, 14), digits(350, 15) },
+            { "1000000000000000000000000000057", digits(200, 16) } };
+        for (String[] c : cases) {
+            NaturalNumber3 g = new NaturalNumber3(c[0]);
+            NaturalNumber n = this.constructorTest(c[1]);
+            NaturalNumber x = this.constructorTest();
+            NaturalNumber y = this.constructorTest();
+            g.extendedGcd(n, x, y);
+            NaturalNumber3 check = new NaturalNumber3(c[0]);
+            check.gcd(n);
+            assertEquals(0, check.compareTo(g));
+            NaturalNumber left = this.constructorTest(c[0]);
+            left.multiply(x);
+            NaturalNumber right = this.constructorTest(c[1]);
+            right.multiply(y);
+            right.add(g);
+            assertEquals(0, left.compareTo(right));
+            assertEquals(this.constructorRef(c[1]), n);
+        }
+    }
+
+
+    /**
+     * Test of addInPlace and multiplyInPlace as an accumulator, against add
+     * and multiply, across the inline boundary and with reserved capacity.
+     */
+    @Test
+    public final void testAccumulator() {
+        final int steps = 400;
+        final int factor = 2147483647;
+        NaturalNumber3 acc = new NaturalNumber3();
+        acc.ensureCapacity(steps * 10);
+        NaturalNumber expected = this.constructorRef(0);
+        for (int i = 0; i < steps; i++) {
+            acc.multiplyInPlace(factor);
+            expected.multiply(this.constructorRef(factor));
+            acc.addInPlace(Long.MAX_VALUE - i);
+            expected.add(this.constructorRef(Long.toString(Long.MAX_VALUE
+                    - i)));
+            assertEquals(expected, acc);
+        }
+        acc.multiplyInPlace(0);
+        assertEquals(this.constructorRef(0), acc);
+        acc.addInPlace(999999999999999999L);
+        acc.addInPlace(1);
+        assertEquals(this.constructorRef("1000000000000000000"), acc);
+        acc = new NaturalNumber3("1234567890123");
+        acc.multiplyInPlace(10);
+        acc.addInPlace(4);
+        assertEquals(this.constructorRef("12345678901234"), acc);
+    }
+
+    /**
+     * Test of shiftDecimal left and right, by whole limbs and by parts of
+     * one.
+     */
+    @Test
+    public final void testShiftDecimal() {
+        final int length = 100;
+        String d = digits(length, 7);
+        for (int places = 0; places <= length + 1; places++) {
+            NaturalNumber3 n = new NaturalNumber3(d);
+            n.shiftDecimal(-places);
+            String kept = "0";
+            if (places < length) {
+                kept = d.substring(0, length - places);
+            }
+            assertEquals(this.constructorRef(kept), n);
+            n = new NaturalNumber3(d);
+            n.shiftDecimal(places);
+            StringBuilder shifted = new StringBuilder(d);
+            for (int i = 0; i < places; i++) {
+                shifted.append('0');
+            }
+            assertEquals(this.constructorRef(shifted.toString()), n);
+            n.shiftDecimal(-places);
+            assertEquals(this.constructorRef(d), n);
+        }
+        NaturalNumber3 n = new NaturalNumber3(12);
+        n.shiftDecimal(2);
+        assertEquals(this.constructorRef(1200), n);
+        n.shiftDecimal(-3);
+        assertEquals(this.constructorRef(1), n);
+        n.shiftDecimal(Integer.MIN_VALUE);
+        assertEquals(this.constructorRef(0), n);
+        n.shiftDecimal(Integer.MAX_VALUE);
+        assertEquals(this.constructorRef(0), n);
+    }
+
+
+    /**
+     * Returns the limb array of {@code n}, so that tests can check that it is
+     * reused.
+     *
+     * @param n
+     *            the number
+     * @return n.limbs
+     */
+    private static Object limbArray(NaturalNumber3 n) {
+        try {
+            Field f = NaturalNumber3.class.getDeclaredField("limbs");
+            f.setAccessible(true);
+            return f.get(n);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError("Cannot read limbs of NaturalNumber3");
+        }
+    }
+
+    /**
+     * Test that after ensureCapacity the number grows at either end, by
+     * multiplyBy10, shiftDecimal, addInPlace and multiplyInPlace, without
+     * a new limb array.
+     */
+    @Test
+    public final void testEnsureCapacityKeepsArray() {
+        final int digits = 20000;
+        final int built = 18000;
+        final int shifts = 150;
+        final int products = 50;
+        final int radix = 10;
+        final int factor = 999999937;
+        final String zeros = "000000000";
+        NaturalNumber3 n = new NaturalNumber3(7);
+        n.ensureCapacity(digits);
+        Object array = limbArray(n);
+        StringBuilder expected = new StringBuilder("7");
+        for (int i = 0; i < built; i++) {
+            n.multiplyBy10(i % radix);
+            expected.append((char) ('0' + i % radix));
+        }
+        assertSame(array, limbArray(n));
+        for (int i = 0; i < shifts; i++) {
+            n.shiftDecimal(zeros.length());
+            expected.append(zeros);
+        }
+        assertSame(array, limbArray(n));
+        NaturalNumber r = this.constructorRef(expected.toString());
+        for (int i = 0; i < products; i++) {
+            n.multiplyInPlace(factor);
+            r.multiply(this.constructorRef(factor));
+            n.addInPlace(Long.MAX_VALUE);
+            r.add(this.constructorRef(Long.toString(Long.MAX_VALUE)));
+        }
+        assertSame(array, limbArray(n));
+        assertEquals(0, n.compareTo(r));
+    }
+
 }
@@ -0,0 +1,162 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber1L;
+
+/**
+ * Customized JUnit test fixture for {@code NaturalNumber4}.
+ */
+public class NaturalNumber4Test extends NaturalNumberTest {
+
+    @Override
+    protected final NaturalNumber constructorTest() {
+
+        return new NaturalNumber4();
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(int i) {
+
+        return new NaturalNumber4(i);
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(String s) {
+
+        return new NaturalNumber4(s);
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(NaturalNumber n) {
+
+        return new NaturalNumber4(n);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef() {
+
+        return new NaturalNumber1L();
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(int i) {
+
+        return new NaturalNumber1L(i);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(String s) {
+
+        return new NaturalNumber1L(s);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(NaturalNumber n) {
+
+        return new NaturalNumber1L(n);
+    }
+
+    /**
+     * Test for multiplyBy10 and divideBy10 across the two nibbles of a byte,
+     * from zero and back.
+     */
+    @Test
+    public final void testMultiplyDivideBy10Nibbles() {
+        String s = "10203040506070809";
+        NaturalNumber t = this.constructorTest();
+        t.multiplyBy10(0);
+        assertEquals(true, t.isZero());
+        for (int i = 0; i < s.length(); i++) {
+            t.multiplyBy10(s.charAt(i) - '0');
+            assertEquals(this.constructorRef(s.substring(0, i + 1)), t);
+        }
+        for (int i = s.length() - 1; i > 0; i--) {
+            assertEquals(s.charAt(i) - '0', t.divideBy10());
+            assertEquals(this.constructorRef(s.substring(0, i)), t);
+        }
+        assertEquals(1, t.divideBy10());
+        assertEquals(true, t.isZero());
+        assertEquals(0, t.divideBy10());
+    }
+
+    /**
+     * Test for the String constructor with odd and even numbers of digits,
+     * taken apart one digit at a time.
+     */
+    @Test
+    public final void testStringConstructorOddEven() {
+        String[] cases = { "7", "42", "900", "1000000000000000000000000",
+            "98765432109876543210987654321" };
+        for (String s : cases) {
+            NaturalNumber t = this.constructorTest(s);
+            assertEquals(s, t.toString());
+            for (int i = s.length() - 1; i >= 0; i--) {
+                assertEquals(s.charAt(i) - '0', t.divideBy10());
+            }
+            assertEquals(true, t.isZero());
+        }
+    }
+
+    /**
+     * Test for building a long number one digit at a time, past many
+     * growths of the array, and copying it.
+     */
+    @Test
+    public final void testMultiplyBy10ManyDigitsAndCopy() {
+        final int n = 100001;
+        NaturalNumber t = this.constructorTest();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            int k = (i * 7 + 1) % 10;
+            t.multiplyBy10(k);
+            expected.append((char) ('0' + k));
+        }
+        assertEquals(expected.toString(), t.toString());
+        NaturalNumber c = this.constructorTest(t);
+        assertEquals(expected.toString(), c.toString());
+        c.multiplyBy10(3);
+        assertEquals(expected.toString(), t.toString());
+        assertEquals(3, c.divideBy10());
+        assertEquals(expected.toString(), c.toString());
+    }
+
+    /**
+     * Test for transferFrom and clear.
+     */
+    @Test
+    public final void testTransferFromAndClear() {
+        NaturalNumber t = this.constructorTest();
+        NaturalNumber s = this.constructorTest("123456789");
+        t.transferFrom(s);
+        assertEquals(this.constructorRef("123456789"), t);
+        assertEquals(this.constructorRef(0), s);
+        s.multiplyBy10(5);
+        assertEquals(this.constructorRef(5), s);
+        t.clear();
+        assertEquals(this.constructorRef(0), t);
+    }
+
+    /**
+     * Test for add, subtract and multiply from the secondary methods, against
+     * the reference.
+     */
+    @Test
+    public final void testArithmeticAgainstReference() {
+        String a = "31415926535897932384626433832795028841971";
+        String b = "2718281828459045235360287471352662497757";
+        NaturalNumber t = this.constructorTest(a);
+        NaturalNumber r = this.constructorRef(a);
+        t.add(this.constructorTest(b));
+        r.add(this.constructorRef(b));
+        assertEquals(r, t);
+        t.multiply(this.constructorTest(b));
+        r.multiply(this.constructorRef(b));
+        assertEquals(r, t);
+        t.subtract(this.constructorTest(a));
+        r.subtract(this.constructorRef(a));
+        assertEquals(r, t);
+    }
+
+}
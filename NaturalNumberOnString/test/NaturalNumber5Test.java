@@ -0,0 +1,281 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber1L;
+
+/**
+ * Customized JUnit test fixture for {@code NaturalNumber5}.
+ */
+public class NaturalNumber5Test extends NaturalNumberTest {
+
+    @Override
+    protected final NaturalNumber constructorTest() {
+
+        return new NaturalNumber5();
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(int i) {
+
+        return new NaturalNumber5(i);
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(String s) {
+
+        return new NaturalNumber5(s);
+    }
+
+    @Override
+    protected final NaturalNumber constructorTest(NaturalNumber n) {
+
+        return new NaturalNumber5(n);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef() {
+
+        return new NaturalNumber1L();
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(int i) {
+
+        return new NaturalNumber1L(i);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(String s) {
+
+        return new NaturalNumber1L(s);
+    }
+
+    @Override
+    protected final NaturalNumber constructorRef(NaturalNumber n) {
+
+        return new NaturalNumber1L(n);
+    }
+
+    /**
+     * Returns the file of the limbs of {@code n}, or null if it has none.
+     *
+     * @param n
+     *            the number
+     * @return the storage field of n
+     */
+    private static Object storage(NaturalNumber5 n) {
+        try {
+            Field f = NaturalNumber5.class.getDeclaredField("storage");
+            f.setAccessible(true);
+            return f.get(n);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Test that add, compareTo and multiplyInPlace on numbers below
+     * 10^18 make no file, and that a sum past 10^18 does.
+     */
+    @Test
+    public final void testSmallValuesTakeNoFile() {
+        final int count = 500;
+        NaturalNumber5 sum = new NaturalNumber5();
+        for (int i = 0; i < count; i++) {
+            NaturalNumber5 a = new NaturalNumber5(i);
+            NaturalNumber5 b = new NaturalNumber5(i + 1);
+            assertEquals(-1, a.compareTo(b));
+            a.add(b);
+            sum.add(a);
+            assertNull(storage(a));
+            assertNull(storage(b));
+        }
+        assertEquals(this.constructorRef(count * count), sum);
+        final int factor = 1000;
+        sum.multiplyInPlace(factor);
+        assertNull(storage(sum));
+        String max = "999999999999999999";
+        NaturalNumber5 t = new NaturalNumber5(max);
+        assertEquals(1, t.compareTo(sum));
+        assertNull(storage(t));
+        t.add(new NaturalNumber5(1));
+        assertNotNull(storage(t));
+        assertEquals(this.constructorRef("1000000000000000000"), t);
+    }
+
+    /**
+     * Test for multiplyBy10 and divideBy10 across the largest value that
+     * needs no file.
+     */
+    @Test
+    public final void testMultiplyDivideBy10InlineBoundary() {
+        String s = "12345678901234567890";
+        NaturalNumber5 t = new NaturalNumber5();
+        for (int i = 0; i < s.length(); i++) {
+            t.multiplyBy10(s.charAt(i) - '0');
+            assertEquals(this.constructorRef(s.substring(0, i + 1)), t);
+        }
+        NaturalNumber5 u = new NaturalNumber5(s);
+        assertEquals(0, t.compareTo(u));
+        for (int i = s.length() - 1; i > 0; i--) {
+            assertEquals(s.charAt(i) - '0', t.divideBy10());
+            assertEquals(this.constructorRef(s.substring(0, i)), t);
+            assertEquals(1, u.compareTo(t));
+        }
+    }
+
+    /**
+     * Test that close releases the file and leaves zero, which can still be
+     * used.
+     */
+    @Test
+    public final void testClose() {
+        String big = "123456789012345678901234567890";
+        NaturalNumber5 kept;
+        try (NaturalNumber5 t = new NaturalNumber5(big)) {
+            assertNotNull(storage(t));
+            assertEquals(this.constructorRef(big), t);
+            kept = t;
+        }
+        assertNull(storage(kept));
+        assertEquals(true, kept.isZero());
+        kept.add(new NaturalNumber5(big));
+        assertEquals(this.constructorRef(big), kept);
+        kept.close();
+        kept.close();
+        assertEquals(true, kept.isZero());
+    }
+
+    /**
+     * Test for multiplyBy10 and divideBy10 across several limb boundaries,
+     * from zero and back.
+     */
+    @Test
+    public final void testMultiplyDivideBy10LimbBoundaries() {
+        String s = "1000000002000000000300000000040000000005";
+        NaturalNumber t = this.constructorTest();
+        for (int i = 0; i < s.length(); i++) {
+            t.multiplyBy10(s.charAt(i) - '0');
+            assertEquals(this.constructorRef(s.substring(0, i + 1)), t);
+        }
+        for (int i = s.length() - 1; i > 0; i--) {
+            assertEquals(s.charAt(i) - '0', t.divideBy10());
+            assertEquals(this.constructorRef(s.substring(0, i)), t);
+        }
+        assertEquals(1, t.divideBy10());
+        assertEquals(true, t.isZero());
+        assertEquals(0, t.divideBy10());
+    }
+
+    /**
+     * Test for add and compareTo with carries through many limbs, with a
+     * tail on either side, and with an argument of another type.
+     */
+    @Test
+    public final void testAddCompareCarries() {
+        String nines = "99999999999999999999999999999999999999999";
+        NaturalNumber t = this.constructorTest(nines);
+        NaturalNumber one = this.constructorTest(1);
+        assertEquals(1, t.compareTo(one));
+        assertEquals(-1, one.compareTo(t));
+        t.add(one);
+        assertEquals(this.constructorRef("1" + nines.replace('9', '0')), t);
+        t.add(this.constructorRef("123456789012345678901234"));
+        assertEquals(this.constructorRef(
+                "100000000000000000123456789012345678901234"), t);
+        NaturalNumber u = this.constructorTest(t);
+        assertEquals(0, t.compareTo(u));
+        u.multiplyBy10(0);
+        t.add(t);
+        u.divideBy10();
+        u.add(u);
+        assertEquals(0, t.compareTo(u));
+        assertEquals(this.constructorRef(
+                "200000000000000000246913578024691357802468"), t);
+    }
+
+    /**
+     * Test for multiplyInPlace by small and large factors and by zero.
+     */
+    @Test
+    public final void testMultiplyInPlace() {
+        String a = "31415926535897932384626433832795028841971";
+        NaturalNumber5 t = new NaturalNumber5(a);
+        NaturalNumber r = this.constructorRef(a);
+        final int[] factors = { 7, 1000000000, Integer.MAX_VALUE, 1 };
+        for (int m : factors) {
+            t.multiplyInPlace(m);
+            r.multiply(this.constructorRef(m));
+            assertEquals(r, t);
+        }
+        t.multiplyInPlace(0);
+        assertEquals(this.constructorRef(0), t);
+        t.multiplyBy10(4);
+        t.multiplyInPlace(3);
+        assertEquals(this.constructorRef(12), t);
+    }
+
+    /**
+     * Test for add and multiplyInPlace on a number with more limbs than fit
+     * in one mapped segment of the file.
+     */
+    @Test
+    public final void testAcrossSegments() {
+        final int n = 9500000;
+        StringBuilder b = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            b.append('9');
+        }
+        NaturalNumber5 t = new NaturalNumber5(b.toString());
+        t.add(new NaturalNumber5(1));
+        t.multiplyInPlace(3);
+        String result = t.toString();
+        assertEquals(n + 1, result.length());
+        assertEquals('3', result.charAt(0));
+        assertEquals(n, result.lastIndexOf('0'));
+        assertEquals(1, result.indexOf('0'));
+        assertEquals(0, t.divideBy10());
+        t.clear();
+        assertEquals(true, t.isZero());
+    }
+
+    /**
+     * Test for checkpoint and restore, with and without limbs and a tail.
+     *
+     * @throws IOException
+     *             if the checkpoint file cannot be written or read
+     */
+    @Test
+    public final void testCheckpointRestore() throws IOException {
+        String[] cases = { "0", "12345", "123456789",
+            "1234567890123456789012345678901234567890123",
+            "3000000000000000000000000000000000000" };
+        Path file = Files.createTempFile("naturalnumber", ".checkpoint");
+        try {
+            for (String s : cases) {
+                NaturalNumber5 t = new NaturalNumber5(s);
+                t.multiplyBy10(7);
+                t.checkpoint(file);
+                NaturalNumber5 u = NaturalNumber5.restore(file);
+                assertEquals(t, u);
+                assertEquals(7, u.divideBy10());
+                assertEquals(this.constructorRef(s), u);
+                u.multiplyInPlace(2);
+                assertEquals(7, t.divideBy10());
+                assertEquals(this.constructorRef(s), t);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.naturalnumber.NaturalNumber;
+import components.naturalnumber.NaturalNumber1L;
+
+/**
+ * JUnit test fixture for {@code ProductTree}.
+ */
+public class ProductTreeTest {
+
+    /**
+     * Test of product with no factors and with one.
+     */
+    @Test
+    public final void testProductEmptyAndSingle() {
+        assertEquals(new NaturalNumber1L(1),
+                ProductTree.product(new NaturalNumber[0]));
+        NaturalNumber f = new NaturalNumber3("123456789123456789123");
+        NaturalNumber p = ProductTree.product(new NaturalNumber[] { f });
+        assertEquals(new NaturalNumber1L("123456789123456789123"), p);
+        p.increment();
+        assertEquals(new NaturalNumber1L("123456789123456789123"), f);
+    }
+
+    /**
+     * Test of product against multiplying one factor at a time, with factors
+     * of mixed sizes and types, on a pool of its own.
+     */
+    @Test
+    public final void testProductMixed() {
+        final int count = 300;
+        final int threads = 4;
+        NaturalNumber[] factors = new NaturalNumber[count];
+        NaturalNumber expected = new NaturalNumber3(1);
+        StringBuilder digits = new StringBuilder("9");
+        for (int i = 0; i < count; i++) {
+            digits.append(i % 7);
+            if (i % 2 == 0) {
+                factors[i] = new NaturalNumber3(digits.toString());
+            } else {
+                factors[i] = new NaturalNumber1L(i);
+            }
+            expected.multiply(factors[i]);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        NaturalNumber p = ProductTree.product(factors, pool);
+        pool.shutdown();
+        assertEquals(0, expected.compareTo(p));
+    }
+
+    /**
+     * Test of factorial on small values and against a product of factors.
+     */
+    @Test
+    public final void testFactorial() {
+        assertEquals(new NaturalNumber1L(1), ProductTree.factorial(0));
+        assertEquals(new NaturalNumber1L(1), ProductTree.factorial(1));
+        assertEquals(new NaturalNumber1L("15511210043330985984000000"),
+                ProductTree.factorial(25));
+        final int n = 3000;
+        NaturalNumber expected = new NaturalNumber3(1);
+        for (int i = 2; i <= n; i++) {
+            expected.multiply(new NaturalNumber3(i));
+        }
+        assertEquals(0, expected.compareTo(ProductTree.factorial(n)));
+    }
+
+}
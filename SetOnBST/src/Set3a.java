@@ -1,13 +1,25 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
-import components.binarytree.BinaryTree;
-import components.binarytree.BinaryTree1;
 import components.set.Set;
 import components.set.SetSecondary;
 
 /**
- * {@code Set} represented as a {@code BinaryTree} (maintained as a binary
- * search tree) of elements with implementations of primary methods.
+ * {@code Set} represented as a binary search tree of linked nodes, done
+ * "bare-handed", with implementations of primary methods.
+ *
+ * <p>
+ * {@code iterator} walks the tree lazily with a stack of at most height-many
+ * nodes, so starting an iteration takes constant time and memory however
+ * large the set is. {@code spliterator} splits the tree by subtree, so that
+ * parallel streams over the set divide the key range without copying it.
+ * </p>
  *
  * @param <T>
  *            type of {@code Set} elements
@@ -18,9 +30,19 @@ import components.set.SetSecondary;
  *  [tree satisfies the binary search tree properties as described in the
  *   slides with the ordering reported by compareTo for T, including that
  *   it has no duplicate labels]
+ *
+ * HASH_CONSISTENT: boolean satisfies
+ *  [for all x, y: T where (x.compareTo(y) = 0),
+ *   x.hashCode() = y.hashCode()]
+ * </pre>
+ * @convention <pre>
+ * IS_BST([tree of nodes reachable from $this.root])  and
+ * $this.size = |[tree of nodes reachable from $this.root]|  and
+ * [$this.filter is null iff $this.falsePositiveRate = 0]  and
+ * [if $this.filter is not null, every label of the tree has been added
+ *  to $this.filter, and HASH_CONSISTENT]
  * </pre>
- * @convention IS_BST($this.tree)
- * @correspondence this = labels($this.tree)
+ * @correspondence this = labels([tree of nodes reachable from $this.root])
  *
  * @author Shafin Alam & Yanqing Xu
  *
@@ -32,203 +54,331 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
      */
 
     /**
-     * Elements included in {@code this}.
+     * Initial number of elements the Bloom filter is sized for.
      */
-    private BinaryTree<T> tree;
+    private static final int INITIAL_FILTER_CAPACITY = 64;
 
     /**
-     * Returns whether {@code x} is in {@code t}.
+     * Node of the binary search tree. An empty subtree is {@code null}.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
+     *            type of node labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of this node.
+         */
+        private T label;
+
+        /**
+         * Left subtree.
+         */
+        private Node<T> left;
+
+        /**
+         * Right subtree.
+         */
+        private Node<T> right;
+
+        /**
+         * Constructor from label and subtrees.
+         *
+         * @param label
+         *            the label
+         * @param left
+         *            the left subtree
+         * @param right
+         *            the right subtree
+         */
+        Node(T label, Node<T> left, Node<T> right) {
+            this.label = label;
+            this.left = left;
+            this.right = right;
+        }
+
+    }
+
+    /**
+     * Root of the tree.
+     */
+    private Node<T> root;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Optional Bloom filter of the labels of the tree, which lets
+     * {@code contains} answer most misses without walking the tree; null if
+     * filtering is off.
+     */
+    private BloomFilter<T> filter;
+
+    /**
+     * Target false-positive rate of {@code filter}, or 0 if filtering is off.
+     */
+    private double falsePositiveRate;
+
+    /**
+     * Number of calls to {@code compareTo} made while searching the tree.
+     */
+    private long comparisons;
+
+    /**
+     * Compares {@code x} to {@code y}, counting the comparison in
+     * {@code this.comparisons}.
+     *
+     * @param x
+     *            the label being searched for
+     * @param y
+     *            the label of the node being visited
+     * @return x.compareTo(y)
+     * @updates this.comparisons
+     * @ensures this.comparisons = #this.comparisons + 1
+     */
+    private int compare(T x, T y) {
+        this.comparisons++;
+        return x.compareTo(y);
+    }
+
+    /**
+     * Returns whether {@code x} is in {@code t}, with one comparison per node
+     * visited.
+     *
      * @param t
-     *            the {@code BinaryTree} to be searched
+     *            the root of the tree to be searched
      * @param x
      *            the label to be searched for
      * @return true if t contains x, false otherwise
      * @requires IS_BST(t)
      * @ensures isInTree = (x is in labels(t))
      */
-    private static <T extends Comparable<T>> boolean isInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private boolean isInTree(Node<T> t, T x) {
         assert x != null : "Violation of: x is not null";
 
         //default boolean is false, in case x is not in tree
         boolean bool = false;
-        //create left and right trees
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        //if the tree is not empty
-        if (t.size() != 0) {
-            //check the root of the tree
-            T root = t.disassemble(left, right);
-            //if root is less than x, check right tree
-            if (x.compareTo(root) > 0) {
-                bool = isInTree(right, x);
+        Node<T> n = t;
+        while (n != null && !bool) {
+            //compare once and branch on the sign of the result
+            int c = this.compare(x, n.label);
+            if (c > 0) {
+                //if root is less than x, check right tree
+                n = n.right;
+            } else if (c < 0) {
                 //if root is more than x, check left tree
-            } else if (x.compareTo(root) < 0) {
-                bool = isInTree(left, x);
+                n = n.left;
             } else {
                 //if root equals x, it has been found
                 bool = true;
             }
-            t.assemble(root, left, right);
         }
-
         // return whether or not x is in tree
         return bool;
     }
 
     /**
-     * Inserts {@code x} in {@code t}.
+     * Inserts {@code x} in the tree rooted at {@code this.root}, with one
+     * comparison per node visited.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} to be searched
      * @param x
      *            the label to be inserted
      * @aliases reference {@code x}
-     * @updates t
-     * @requires IS_BST(t) and x is not in labels(t)
-     * @ensures IS_BST(t) and labels(t) = labels(#t) union {x}
+     * @updates this.root
+     * @requires IS_BST(this.root) and x is not in labels(this.root)
+     * @ensures IS_BST(this.root) and labels(this.root) = labels(#this.root)
+     *          union {x}
      */
-    private static <T extends Comparable<T>> void insertInTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    private void insertInTree(T x) {
         assert x != null : "Violation of: x is not null";
 
-        //create left and right trees
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        //as long as tree is not empty
-        if (t.size() == 0) {
-            //add x and left and right trees to t
-            t.assemble(x, left, right);
+        Node<T> leaf = new Node<T>(x, null, null);
+        if (this.root == null) {
+            this.root = leaf;
         } else {
-            //otherwise get root and left and right trees
-            T root = t.disassemble(left, right);
-            //if x is smaller than root, go to the right tree
-            if (x.compareTo(root) > 0) {
-                //add x into the right tree
-                insertInTree(right, x);
-                //otherwise, go to the left tree
-            } else {
-                //add x into the left tree
-                insertInTree(left, x);
+            //walk down to the empty subtree where x belongs
+            Node<T> n = this.root;
+            boolean placed = false;
+            while (!placed) {
+                if (this.compare(x, n.label) > 0) {
+                    if (n.right == null) {
+                        n.right = leaf;
+                        placed = true;
+                    } else {
+                        n = n.right;
+                    }
+                } else {
+                    if (n.left == null) {
+                        n.left = leaf;
+                        placed = true;
+                    } else {
+                        n = n.left;
+                    }
+                }
             }
-            //reassemble tree
-            t.assemble(root, left, right);
         }
     }
 
     /**
-     * Removes and returns the smallest (left-most) label in {@code t}.
+     * Removes the smallest (left-most) label in the subtree rooted at
+     * {@code t} and returns the new root of that subtree; the removed label
+     * is stored in {@code smallest[0]}.
      *
      * @param <T>
-     *            type of {@code BinaryTree} labels
+     *            type of node labels
      * @param t
-     *            the {@code BinaryTree} from which to remove the label
-     * @return the smallest label in the given {@code BinaryTree}
-     * @updates t
-     * @requires IS_BST(t) and |t| > 0
+     *            the root of the subtree
+     * @param smallest
+     *            holder for the removed label
+     * @return the new root of the subtree
+     * @updates t, smallest
+     * @requires IS_BST(t) and |t| > 0 and |smallest| >= 1
      * @ensures <pre>
-     * IS_BST(t)  and  removeSmallest = [the smallest label in #t]  and
-     *  labels(t) = labels(#t) \ {removeSmallest}
+     * IS_BST(removeSmallest)  and  smallest[0] = [the smallest label in #t]
+     *  and  labels(removeSmallest) = labels(#t) \ {smallest[0]}
      * </pre>
      */
-    private static <T> T removeSmallest(BinaryTree<T> t) {
-        assert t != null : "Violation of: t is not null";
-        assert t.size() > 0 : "Violation of: |t| > 0";
-
-        //create left and right trees
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        //find root and left and right tree of t
-        T root = t.disassemble(left, right);
-        //make root the smallest value
-        T smallestValue = root;
-        //if it can go to the left more
-        if (left.size() > 0) {
-            //make smallest value even smaller by getting the lest tree
-            smallestValue = removeSmallest(left);
-            //restore t
-            t.assemble(root, left, right);
+    private static <T> Node<T> removeSmallest(Node<T> t, T[] smallest) {
+        assert t != null : "Violation of: |t| > 0";
+
+        Node<T> result = t;
+        if (t.left == null) {
+            //t is the smallest, its right subtree takes its place
+            smallest[0] = t.label;
+            result = t.right;
         } else {
-            //if left is empty, get from right tree
-            t.transferFrom(right);
+            //find the parent of the left-most node and unlink that node
+            Node<T> parent = t;
+            while (parent.left.left != null) {
+                parent = parent.left;
+            }
+            smallest[0] = parent.left.label;
+            parent.left = parent.left.right;
         }
-        //return the smallest value in the tree
-        return smallestValue;
+        return result;
     }
 
     /**
-     * Finds label {@code x} in {@code t}, removes it from {@code t}, and
-     * returns it.
+     * Finds label {@code x} in the tree rooted at {@code this.root}, removes
+     * it, and returns it, with one comparison per node visited.
      *
-     * @param <T>
-     *            type of {@code BinaryTree} labels
-     * @param t
-     *            the {@code BinaryTree} from which to remove label {@code x}
      * @param x
      *            the label to be removed
      * @return the removed label
-     * @updates t
-     * @requires IS_BST(t) and x is in labels(t)
+     * @updates this.root
+     * @requires IS_BST(this.root) and x is in labels(this.root)
      * @ensures <pre>
-     * IS_BST(t)  and  removeFromTree = x  and
-     *  labels(t) = labels(#t) \ {x}
+     * IS_BST(this.root)  and  removeFromTree = x  and
+     *  labels(this.root) = labels(#this.root) \ {x}
      * </pre>
      */
-    private static <T extends Comparable<T>> T removeFromTree(BinaryTree<T> t,
-            T x) {
-        assert t != null : "Violation of: t is not null";
+    @SuppressWarnings("unchecked")
+    private T removeFromTree(T x) {
         assert x != null : "Violation of: x is not null";
-        assert t.size() > 0 : "Violation of: x is in labels(t)";
-
-        //create left and right trees
-        BinaryTree<T> left = t.newInstance();
-        BinaryTree<T> right = t.newInstance();
-        //find root and left and right trees of t
-        T root = t.disassemble(left, right);
-        //set value to remove equal to the root
-        T valueToRemove = root;
-        //if the root is equal to x
-        if (x.compareTo(root) == 0) {
-            //if the right tree is not empty
-            if (right.size() > 0) {
-                //remove the smallest value of the right tree
-                root = removeSmallest(right);
-                //restore the tree t
-                t.assemble(root, left, right);
+
+        //find the node holding x, and the link that points to it
+        Node<T> parent = null;
+        Node<T> n = this.root;
+        int c = this.compare(x, n.label);
+        while (c != 0) {
+            parent = n;
+            if (c > 0) {
+                n = n.right;
             } else {
-                //otherwise copy from the left tree, if right is empty
-                t.transferFrom(left);
+                n = n.left;
             }
-            //if x is greater than the root
-        } else if (x.compareTo(root) > 0) {
-            //remove x from the right tree
-            valueToRemove = removeFromTree(right, x);
-            //restore tree t
-            t.assemble(root, left, right);
+            assert n != null : "Violation of: x is in labels(this.root)";
+            c = this.compare(x, n.label);
+        }
+        T valueToRemove = n.label;
+        Node<T> replacement;
+        if (n.right == null) {
+            //if right is empty, the left tree takes the place of n
+            replacement = n.left;
+        } else {
+            //otherwise the smallest label of the right tree replaces x
+            T[] smallest = (T[]) new Comparable[1];
+            n.right = removeSmallest(n.right, smallest);
+            n.label = smallest[0];
+            replacement = n;
+        }
+        if (parent == null) {
+            this.root = replacement;
+        } else if (parent.left == n) {
+            parent.left = replacement;
         } else {
-            //remove x from left tree
-            valueToRemove = removeFromTree(left, x);
-            //restore tree t
-            t.assemble(root, left, right);
+            parent.right = replacement;
         }
         //return the value that was removed
         return valueToRemove;
     }
 
+    /**
+     * Builds and returns a perfectly balanced tree whose labels are the
+     * entries of {@code a} in the range [{@code lo}, {@code hi}).
+     *
+     * @param <T>
+     *            type of node labels
+     * @param a
+     *            the sorted array holding the labels
+     * @param lo
+     *            index of the first entry to include
+     * @param hi
+     *            index one past the last entry to include
+     * @return the root of the balanced tree
+     * @requires <pre>
+     * 0 <= lo  and  lo <= hi  and  hi <= |a|  and
+     * [entries of a[lo, hi) are in strictly increasing order]
+     * </pre>
+     * @ensures <pre>
+     * IS_BST(buildTree)  and  labels(buildTree) = [entries of a[lo, hi)]  and
+     * [the heights of the subtrees of every node differ by at most 1]
+     * </pre>
+     */
+    private static <T> Node<T> buildTree(T[] a, int lo, int hi) {
+        assert a != null : "Violation of: a is not null";
+        assert 0 <= lo && lo <= hi
+                && hi <= a.length : "Violation of: 0 <= lo <= hi <= |a|";
+
+        Node<T> t = null;
+        if (lo < hi) {
+            //the middle entry becomes the root, so each half is the same size
+            int mid = (lo + hi) >>> 1;
+            t = new Node<T>(a[mid], buildTree(a, lo, mid),
+                    buildTree(a, mid + 1, hi));
+        }
+        return t;
+    }
+
+    /**
+     * Replaces {@code this.filter} with a new filter of all labels of the
+     * tree, sized for twice as many elements, so that the false-positive rate
+     * is back under its target and bits left over from removed elements are
+     * dropped. Called when the filter is full, so over many {@code add}s the
+     * rebuilds cost amortized constant time each.
+     */
+    private void rebuildFilter() {
+        int capacity = Math.max(INITIAL_FILTER_CAPACITY, 2 * this.size);
+        this.filter = new BloomFilter<T>(capacity, this.falsePositiveRate);
+        for (T x : this) {
+            this.filter.add(x);
+        }
+    }
+
     /**
      * Creator of initial representation.
      */
     private void createNewRep() {
 
-        //create new BInaryTree1 representation of this
-        this.tree = new BinaryTree1<T>();
+        //the empty tree is a null root
+        this.root = null;
+        this.size = 0;
+        if (this.falsePositiveRate > 0) {
+            this.filter = new BloomFilter<T>(INITIAL_FILTER_CAPACITY,
+                    this.falsePositiveRate);
+        }
     }
 
     /*
@@ -244,6 +394,69 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         this.createNewRep();
     }
 
+    /**
+     * Constructor from an array of elements. The elements are sorted first
+     * unless they are already in increasing order, and then the balanced tree
+     * is built directly from the sorted array in linear time, so that no
+     * per-element {@code add} is needed.
+     *
+     * @param elements
+     *            the elements to initialize from
+     * @requires [elements has no null entries and no duplicate entries]
+     * @ensures this = [entries of elements]
+     */
+    public Set3a(T[] elements) {
+        assert elements != null : "Violation of: elements is not null";
+
+        //only pay for the sort when the input is not already in order
+        T[] sorted = elements;
+        int i = 1;
+        while (i < sorted.length && sorted[i - 1].compareTo(sorted[i]) < 0) {
+            i++;
+        }
+        if (i < sorted.length) {
+            //sort a copy so the caller's array is left unchanged
+            sorted = Arrays.copyOf(elements, elements.length);
+            Arrays.sort(sorted);
+            for (int j = 1; j < sorted.length; j++) {
+                assert sorted[j - 1].compareTo(sorted[j]) != 0 : ""
+                        + "Violation of: elements has no duplicate entries";
+            }
+        }
+        this.root = buildTree(sorted, 0, sorted.length);
+        this.size = sorted.length;
+    }
+
+    /**
+     * Constructor for a set that keeps a Bloom filter of its elements in front
+     * of the tree, so that {@code contains} returns false without walking the
+     * tree for all but about {@code falsePositiveRate} of the elements not in
+     * {@code this}. The filter is rebuilt, twice as large, whenever more
+     * elements have been added to it than it was sized for.
+     *
+     * <p>
+     * The filter is keyed on {@code hashCode}, while the tree is searched
+     * with {@code compareTo}, so elements that {@code compareTo} finds equal
+     * must have the same hash code. This does not hold for every type: two
+     * {@code BigDecimal}s of different scale, such as 1.0 and 1.00, compare
+     * as equal but hash differently, and such a type must not be used with
+     * this constructor.
+     * </p>
+     *
+     * @param falsePositiveRate
+     *            target rate of misses that still walk the tree
+     * @requires 0 < falsePositiveRate < 1 and HASH_CONSISTENT
+     * @ensures this = {}
+     */
+    public Set3a(double falsePositiveRate) {
+        assert 0 < falsePositiveRate
+                && falsePositiveRate < 1 : ""
+                        + "Violation of: 0 < falsePositiveRate < 1";
+
+        this.falsePositiveRate = falsePositiveRate;
+        this.createNewRep();
+    }
+
     /*
      * Standard methods -------------------------------------------------------
      */
@@ -276,7 +489,10 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
          * the ? must be T or the call would not have compiled.
          */
         Set3a<T> localSource = (Set3a<T>) source;
-        this.tree = localSource.tree;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        this.filter = localSource.filter;
+        this.falsePositiveRate = localSource.falsePositiveRate;
         localSource.createNewRep();
     }
 
@@ -290,7 +506,14 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert !this.contains(x) : "Violation of: x is not in this";
 
         //Calls insertInTree to add x to the set
-        insertInTree(this.tree, x);
+        this.insertInTree(x);
+        this.size++;
+        if (this.filter != null) {
+            this.filter.add(x);
+            if (this.filter.isFull()) {
+                this.rebuildFilter();
+            }
+        }
     }
 
     @Override
@@ -299,35 +522,291 @@ public class Set3a<T extends Comparable<T>> extends SetSecondary<T> {
         assert this.contains(x) : "Violation of: x is in this";
 
         //Calls removeFromTree to remove x from the set
-        return removeFromTree(this.tree, x);
+        this.size--;
+        return this.removeFromTree(x);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public final T removeAny() {
         assert this.size() > 0 : "Violation of: this /= empty_set";
 
         //Calls removeSmallest to remove the first (smallest) value in the tree
-        return removeSmallest(this.tree);
+        T[] smallest = (T[]) new Comparable[1];
+        this.root = removeSmallest(this.root, smallest);
+        this.size--;
+        return smallest[0];
     }
 
     @Override
     public final boolean contains(T x) {
         assert x != null : "Violation of: x is not null";
 
-        //Calls isInTree to check if x is in the set
-        return isInTree(this.tree, x);
+        //a definite miss in the filter means x is not in the tree
+        boolean found = false;
+        if (this.filter == null || this.filter.mightContain(x)) {
+            //Calls isInTree to check if x is in the set
+            found = this.isInTree(this.root, x);
+        }
+        return found;
     }
 
     @Override
     public final int size() {
 
         //checks the size of the tree representation of the set
-        return this.tree.size();
+        return this.size;
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return this.tree.iterator();
+        return new Set3aIterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns the number of calls to {@code compareTo} this set has made
+     * while searching its tree in {@code add}, {@code remove} and
+     * {@code contains} since it was constructed or the count was last reset.
+     * Each node visited costs exactly one comparison. With assertion checking
+     * on, the {@code contains} checks in the preconditions of {@code add} and
+     * {@code remove} are counted too.
+     *
+     * @return the number of comparisons
+     */
+    public final long comparisonCount() {
+        return this.comparisons;
+    }
+
+    /**
+     * Resets the count reported by {@code comparisonCount} to 0.
+     *
+     * @ensures comparisonCount() = 0
+     */
+    public final void resetComparisonCount() {
+        this.comparisons = 0;
+    }
+
+    /**
+     * Returns a {@code Spliterator} over the elements of {@code this} in
+     * increasing order. Each {@code trySplit} hands the left part of the
+     * remaining tree (a subtree, for a balanced tree about half of it) to the
+     * new spliterator, so a parallel stream over {@code this} divides the key
+     * range by subtree without copying any element. As with
+     * {@code iterator}, {@code this} must not be changed while it is in use.
+     *
+     * @return the spliterator
+     */
+    @Override
+    public final Spliterator<T> spliterator() {
+        Set3aSpliterator s = new Set3aSpliterator(this.size, true);
+        s.pushLeftPath(this.root);
+        return s;
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3a}, which
+     * walks the tree in order, one node at a time.
+     */
+    private final class Set3aIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose label and right subtree have not been visited yet, with
+         * the next node to visit on top.
+         */
+        private final Deque<Node<T>> pending;
+
+        /**
+         * No-argument constructor.
+         */
+        Set3aIterator() {
+            this.pending = new ArrayDeque<Node<T>>();
+            this.pushLeftPath(Set3a.this.root);
+        }
+
+        /**
+         * Pushes {@code t} and all its left descendants onto the stack.
+         *
+         * @param t
+         *            the subtree
+         */
+        private void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.pending.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.pending.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.pending.pop();
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+    /**
+     * Implementation of {@code Spliterator} interface for {@code Set3a}. Like
+     * {@code Set3aIterator} it keeps a stack of nodes whose label and right
+     * subtree are still to be visited; the elements covered are those of the
+     * stack entries from top to bottom, which are in increasing order.
+     */
+    private final class Set3aSpliterator implements Spliterator<T> {
+
+        /**
+         * Nodes whose label and right subtree have not been visited yet, with
+         * the next node to visit on top.
+         */
+        private final Deque<Node<T>> pending;
+
+        /**
+         * Estimated number of elements left.
+         */
+        private long estimate;
+
+        /**
+         * Whether {@code estimate} is exact, which holds until the first
+         * split.
+         */
+        private boolean exact;
+
+        /**
+         * Constructor for a spliterator with no pending nodes yet.
+         *
+         * @param estimate
+         *            the estimated number of elements
+         * @param exact
+         *            whether the estimate is exact
+         */
+        Set3aSpliterator(long estimate, boolean exact) {
+            this.pending = new ArrayDeque<Node<T>>();
+            this.estimate = estimate;
+            this.exact = exact;
+        }
+
+        /**
+         * Pushes {@code t} and all its left descendants onto the stack.
+         *
+         * @param t
+         *            the subtree
+         */
+        void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.pending.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            assert action != null : "Violation of: action is not null";
+
+            boolean advanced = false;
+            if (!this.pending.isEmpty()) {
+                Node<T> n = this.pending.pop();
+                this.pushLeftPath(n.right);
+                if (this.estimate > 0) {
+                    this.estimate--;
+                }
+                action.accept(n.label);
+                advanced = true;
+            }
+            return advanced;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            assert action != null : "Violation of: action is not null";
+
+            while (!this.pending.isEmpty()) {
+                Node<T> n = this.pending.pop();
+                this.pushLeftPath(n.right);
+                action.accept(n.label);
+            }
+            this.estimate = 0;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Set3aSpliterator prefix = null;
+            if (this.pending.size() > 1) {
+                /*
+                 * The bottom entry (a node and its right subtree) holds the
+                 * largest elements; everything above it, which is the left
+                 * subtree of that node, goes to the new spliterator
+                 */
+                Node<T> bottom = this.pending.removeLast();
+                this.estimate = this.estimate / 2;
+                this.exact = false;
+                prefix = new Set3aSpliterator(this.estimate, false);
+                while (!this.pending.isEmpty()) {
+                    prefix.pending.addLast(this.pending.removeFirst());
+                }
+                this.pending.push(bottom);
+            } else if (this.pending.size() == 1
+                    && this.pending.peek().right != null) {
+                /*
+                 * One node and its right subtree: the node alone goes to the
+                 * new spliterator, and this one goes on with the subtree,
+                 * which can be split well next time
+                 */
+                Node<T> n = this.pending.pop();
+                prefix = new Set3aSpliterator(1, false);
+                prefix.pending.push(new Node<T>(n.label, null, null));
+                this.pushLeftPath(n.right);
+                this.estimate = Math.max(this.estimate - 1, 0);
+                this.exact = false;
+            }
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            int c = Spliterator.ORDERED | Spliterator.SORTED
+                    | Spliterator.DISTINCT | Spliterator.NONNULL;
+            if (this.exact) {
+                c |= Spliterator.SIZED;
+            }
+            return c;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            //null means the natural order given by compareTo
+            return null;
+        }
+
     }
 
 }
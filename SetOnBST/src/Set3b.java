@@ -0,0 +1,561 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a persistent (immutable, path-copying)
+ * weight-balanced binary search tree of elements with implementations of
+ * primary methods.
+ *
+ * <p>
+ * Nodes are never modified once they are built. {@code add}, {@code remove}
+ * and {@code removeAny} copy only the O(log n) nodes on the search path and
+ * then publish the new root with a single compare-and-set, so readers never
+ * need a lock: {@code iterator} and {@code snapshot} just capture the current
+ * root, and later updates cannot change what they see.
+ * </p>
+ *
+ * <p>
+ * Several threads may also update the set at once. An update whose
+ * compare-and-set fails starts over from the root that won, and checks
+ * again whether its element is there, so when two writers add the same
+ * element, or remove the same element, the one that comes second changes
+ * nothing. {@code clear} and {@code transferFrom} also set the root of the
+ * same {@code AtomicReference}, which is never replaced, so an update that
+ * runs at the same time either comes before them or applies to the new
+ * value. The preconditions of {@code add} and {@code remove} are checked
+ * on entry only. {@code removeAny} still requires the set to be non-empty
+ * for the whole call, so the callers must make sure of that.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ *
+ * IS_WEIGHT_BALANCED(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [for every node n in tree, |n.left| + 1 <= DELTA * (|n.right| + 1)  and
+ *   |n.right| + 1 <= DELTA * (|n.left| + 1)]
+ * </pre>
+ * @convention <pre>
+ * $this.root is not null  and
+ * IS_BST([tree of nodes reachable from $this.root.get()])  and
+ * IS_WEIGHT_BALANCED([tree of nodes reachable from $this.root.get()])  and
+ * [for every node n in that tree, n.size = |subtree rooted at n|]
+ * </pre>
+ * @correspondence <pre>
+ * this = labels([tree of nodes reachable from $this.root.get()])
+ * </pre>
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set3b<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Maximum ratio between the weights of sibling subtrees.
+     */
+    private static final int DELTA = 3;
+
+    /**
+     * Ratio used to choose between a single and a double rotation.
+     */
+    private static final int GAMMA = 2;
+
+    /**
+     * Immutable node of the search tree. An empty subtree is {@code null}.
+     *
+     * @param <T>
+     *            type of node labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of this node.
+         */
+        private final T label;
+
+        /**
+         * Left subtree.
+         */
+        private final Node<T> left;
+
+        /**
+         * Right subtree.
+         */
+        private final Node<T> right;
+
+        /**
+         * Number of nodes in the subtree rooted at this node.
+         */
+        private final int size;
+
+        /**
+         * Constructor from label and subtrees.
+         *
+         * @param label
+         *            the label
+         * @param left
+         *            the left subtree
+         * @param right
+         *            the right subtree
+         */
+        Node(T label, Node<T> left, Node<T> right) {
+            this.label = label;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+    }
+
+    /**
+     * Current root of the tree, replaced atomically by every update. The
+     * reference itself is final, so every thread sees the same one.
+     */
+    private final AtomicReference<Node<T>> root =
+            new AtomicReference<Node<T>>(null);
+
+    /**
+     * Returns the number of nodes in {@code t}.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the subtree, possibly {@code null}
+     * @return |t|
+     */
+    private static <T> int size(Node<T> t) {
+        int s = 0;
+        if (t != null) {
+            s = t.size;
+        }
+        return s;
+    }
+
+    /**
+     * Builds a node from {@code x}, {@code l} and {@code r}, rotating if needed
+     * to restore the weight balance, which at most one insertion or removal
+     * below this node may have broken.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param x
+     *            the label
+     * @param l
+     *            the left subtree
+     * @param r
+     *            the right subtree
+     * @return the balanced subtree
+     * @requires IS_BST(l * [x] * r)
+     * @ensures IS_BST(balance) and IS_WEIGHT_BALANCED(balance) and
+     *          labels(balance) = labels(l) union {x} union labels(r)
+     */
+    private static <T> Node<T> balance(T x, Node<T> l, Node<T> r) {
+        int sl = size(l) + 1;
+        int sr = size(r) + 1;
+        Node<T> result;
+        if (sr > DELTA * sl) {
+            //right side too heavy, rotate left
+            if (size(r.left) + 1 < GAMMA * (size(r.right) + 1)) {
+                result = new Node<T>(r.label, new Node<T>(x, l, r.left),
+                        r.right);
+            } else {
+                Node<T> rl = r.left;
+                result = new Node<T>(rl.label, new Node<T>(x, l, rl.left),
+                        new Node<T>(r.label, rl.right, r.right));
+            }
+        } else if (sl > DELTA * sr) {
+            //left side too heavy, rotate right
+            if (size(l.right) + 1 < GAMMA * (size(l.left) + 1)) {
+                result = new Node<T>(l.label, l.left,
+                        new Node<T>(x, l.right, r));
+            } else {
+                Node<T> lr = l.right;
+                result = new Node<T>(lr.label, new Node<T>(l.label, l.left,
+                        lr.left), new Node<T>(x, lr.right, r));
+            }
+        } else {
+            result = new Node<T>(x, l, r);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the label of {@code t} equal to {@code x}, or null if there is
+     * none.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the subtree to be searched
+     * @param x
+     *            the label to be searched for
+     * @return the label in t equal to x, or null if x is not in labels(t)
+     * @requires IS_BST(t)
+     * @ensures <pre>
+     * [if x is in labels(t) then findInTree is the label of t with
+     *  findInTree.compareTo(x) = 0, else findInTree = null]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> T findInTree(Node<T> t, T x) {
+        Node<T> n = t;
+        T found = null;
+        while (n != null && found == null) {
+            int c = x.compareTo(n.label);
+            if (c < 0) {
+                n = n.left;
+            } else if (c > 0) {
+                n = n.right;
+            } else {
+                found = n.label;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns a copy of {@code t} with {@code x} inserted; {@code t} itself is
+     * not changed.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the subtree
+     * @param x
+     *            the label to be inserted
+     * @return the new subtree
+     * @requires IS_BST(t) and IS_WEIGHT_BALANCED(t) and x is not in labels(t)
+     * @ensures IS_BST(insertInTree) and IS_WEIGHT_BALANCED(insertInTree) and
+     *          labels(insertInTree) = labels(t) union {x}
+     */
+    private static <T extends Comparable<T>> Node<T> insertInTree(Node<T> t,
+            T x) {
+        Node<T> result;
+        if (t == null) {
+            result = new Node<T>(x, null, null);
+        } else if (x.compareTo(t.label) < 0) {
+            result = balance(t.label, insertInTree(t.left, x), t.right);
+        } else {
+            result = balance(t.label, t.left, insertInTree(t.right, x));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of {@code t} without its smallest label, which is stored
+     * in {@code smallest[0]}; {@code t} itself is not changed.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the subtree
+     * @param smallest
+     *            holder for the removed label
+     * @return the new subtree
+     * @updates smallest
+     * @requires IS_BST(t) and IS_WEIGHT_BALANCED(t) and |t| > 0 and
+     *           |smallest| >= 1
+     * @ensures <pre>
+     * IS_BST(removeSmallest)  and  IS_WEIGHT_BALANCED(removeSmallest)  and
+     * smallest[0] = [the smallest label in t]  and
+     * labels(removeSmallest) = labels(t) \ {smallest[0]}
+     * </pre>
+     */
+    private static <T> Node<T> removeSmallest(Node<T> t, T[] smallest) {
+        Node<T> result;
+        if (t.left == null) {
+            smallest[0] = t.label;
+            result = t.right;
+        } else {
+            result = balance(t.label, removeSmallest(t.left, smallest),
+                    t.right);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of {@code t} without label {@code x}; {@code t} itself is
+     * not changed.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the subtree
+     * @param x
+     *            the label to be removed
+     * @return the new subtree
+     * @requires IS_BST(t) and IS_WEIGHT_BALANCED(t) and x is in labels(t)
+     * @ensures IS_BST(removeFromTree) and IS_WEIGHT_BALANCED(removeFromTree)
+     *          and labels(removeFromTree) = labels(t) \ {x}
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> Node<T> removeFromTree(Node<T> t,
+            T x) {
+        assert t != null : "Violation of: x is in labels(t)";
+
+        Node<T> result;
+        int c = x.compareTo(t.label);
+        if (c < 0) {
+            result = balance(t.label, removeFromTree(t.left, x), t.right);
+        } else if (c > 0) {
+            result = balance(t.label, t.left, removeFromTree(t.right, x));
+        } else if (t.left == null) {
+            result = t.right;
+        } else if (t.right == null) {
+            result = t.left;
+        } else {
+            //replace the root with the smallest label of the right subtree
+            T[] smallest = (T[]) new Comparable[1];
+            Node<T> right = removeSmallest(t.right, smallest);
+            result = balance(smallest[0], t.left, right);
+        }
+        return result;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        //the empty tree is a null root
+        this.root.set(null);
+    }
+
+    /**
+     * Constructor sharing the (immutable) tree rooted at {@code t}.
+     *
+     * @param t
+     *            the root to share
+     */
+    private Set3b(Node<T> t) {
+        this.root.set(t);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3b() {
+
+        //create empty rep
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3b<?> : ""
+                + "Violation of: source is of dynamic type Set3b<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3b<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3b<T> localSource = (Set3b<T>) source;
+        //take the source's tree and leave it empty in one atomic step
+        this.root.set(localSource.root.getAndSet(null));
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        //build the new path and publish it; if another writer published
+        //first, start over from its root, where x may already be
+        Node<T> old;
+        Node<T> updated;
+        do {
+            old = this.root.get();
+            updated = old;
+            if (findInTree(old, x) == null) {
+                updated = insertInTree(old, x);
+            }
+        } while (!this.root.compareAndSet(old, updated));
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        //as in add, but x may already be gone after another writer; the
+        //label returned is the last one found in the tree
+        T removed = x;
+        Node<T> old;
+        Node<T> updated;
+        do {
+            old = this.root.get();
+            updated = old;
+            T label = findInTree(old, x);
+            if (label != null) {
+                removed = label;
+                updated = removeFromTree(old, x);
+            }
+        } while (!this.root.compareAndSet(old, updated));
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        T[] smallest = (T[]) new Comparable[1];
+        Node<T> old;
+        Node<T> updated;
+        do {
+            old = this.root.get();
+            updated = removeSmallest(old, smallest);
+        } while (!this.root.compareAndSet(old, updated));
+        return smallest[0];
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return findInTree(this.root.get(), x) != null;
+    }
+
+    @Override
+    public final int size() {
+
+        //the root node knows the size of the whole tree
+        return size(this.root.get());
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set3bIterator(this.root.get());
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns a {@code Set3b} holding the current value of {@code this}. It
+     * takes constant time and shares all nodes with {@code this}; later
+     * updates to either set are not seen by the other.
+     *
+     * @return the snapshot
+     * @ensures snapshot = this
+     */
+    public final Set3b<T> snapshot() {
+        return new Set3b<T>(this.root.get());
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3b}. It walks
+     * the tree captured when it was created, one node at a time, so it is not
+     * affected by later updates and needs no copy of the elements.
+     */
+    private final class Set3bIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose label and right subtree have not been visited yet, with
+         * the next node to visit on top.
+         */
+        private final Deque<Node<T>> pending;
+
+        /**
+         * Constructor from the root of the tree to iterate over.
+         *
+         * @param t
+         *            the root
+         */
+        Set3bIterator(Node<T> t) {
+            this.pending = new ArrayDeque<Node<T>>();
+            this.pushLeftPath(t);
+        }
+
+        /**
+         * Pushes {@code t} and all its left descendants onto the stack.
+         *
+         * @param t
+         *            the subtree
+         */
+        private void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.pending.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.pending.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.pending.pop();
+            this.pushLeftPath(n.right);
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
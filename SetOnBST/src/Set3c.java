@@ -0,0 +1,426 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a splay tree (a self-adjusting binary search
+ * tree) of elements with implementations of primary methods.
+ *
+ * <p>
+ * Every {@code add}, {@code remove} and {@code contains} moves the element it
+ * looks for (or the last node visited, if the element is not there) to the
+ * root by a sequence of rotations. The abstract value does not change, but
+ * elements that are looked up often stay near the root, so a skewed workload
+ * where a few elements get most of the lookups costs far less than log n per
+ * lookup. Any sequence of m operations costs O(m log n) in all.
+ * </p>
+ *
+ * <p>
+ * Since {@code contains} reshapes the tree, it may be called while an
+ * iterator is in use: the iterator remembers the last element it returned,
+ * and when the tree has been reshaped since its last step, it finds its
+ * place again from the root.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_BST(
+ *   tree: binary tree of T
+ *  ): boolean satisfies
+ *  [tree satisfies the binary search tree properties as described in the
+ *   slides with the ordering reported by compareTo for T, including that
+ *   it has no duplicate labels]
+ * </pre>
+ * @convention <pre>
+ * IS_BST([tree of nodes reachable from $this.root])  and
+ * $this.size = |[tree of nodes reachable from $this.root]|
+ * </pre>
+ * @correspondence this = labels([tree of nodes reachable from $this.root])
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set3c<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Node of the splay tree. An empty subtree is {@code null}.
+     *
+     * @param <T>
+     *            type of node labels
+     */
+    private static final class Node<T> {
+
+        /**
+         * Label of this node.
+         */
+        private final T label;
+
+        /**
+         * Left subtree.
+         */
+        private Node<T> left;
+
+        /**
+         * Right subtree.
+         */
+        private Node<T> right;
+
+        /**
+         * Constructor from label.
+         *
+         * @param label
+         *            the label
+         */
+        Node(T label) {
+            this.label = label;
+            this.left = null;
+            this.right = null;
+        }
+
+    }
+
+    /**
+     * Root of the tree.
+     */
+    private Node<T> root;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Number of times the tree has been reshaped; an iterator that saw a
+     * different number must find its place again.
+     */
+    private int reshapes;
+
+    /**
+     * Splays {@code t} around {@code x} (top-down): rearranges the tree so that
+     * its root is {@code x} if {@code x} is in it, or else the last node on the
+     * search path for {@code x}.
+     *
+     * @param <T>
+     *            type of node labels
+     * @param t
+     *            the root of the tree
+     * @param x
+     *            the label to search for
+     * @return the new root
+     * @requires IS_BST(t) and t is not null
+     * @ensures <pre>
+     * IS_BST(splay)  and  labels(splay) = labels(t)  and
+     * [if x is in labels(t) then splay.label = x]  and
+     * [if x is not in labels(t) then splay.label is the predecessor or
+     *  successor of x in labels(t)]
+     * </pre>
+     */
+    private static <T extends Comparable<T>> Node<T> splay(Node<T> t, T x) {
+        //header.right collects the left tree and header.left the right tree
+        Node<T> header = new Node<T>(null);
+        Node<T> leftMax = header;
+        Node<T> rightMin = header;
+        Node<T> n = t;
+        boolean done = false;
+        while (!done) {
+            int c = x.compareTo(n.label);
+            if (c < 0 && n.left != null) {
+                if (x.compareTo(n.left.label) < 0) {
+                    //zig-zig: rotate right first
+                    Node<T> y = n.left;
+                    n.left = y.right;
+                    y.right = n;
+                    n = y;
+                }
+                if (n.left == null) {
+                    done = true;
+                } else {
+                    //link n into the right tree
+                    rightMin.left = n;
+                    rightMin = n;
+                    n = n.left;
+                }
+            } else if (c > 0 && n.right != null) {
+                if (x.compareTo(n.right.label) > 0) {
+                    //zig-zig: rotate left first
+                    Node<T> y = n.right;
+                    n.right = y.left;
+                    y.left = n;
+                    n = y;
+                }
+                if (n.right == null) {
+                    done = true;
+                } else {
+                    //link n into the left tree
+                    leftMax.right = n;
+                    leftMax = n;
+                    n = n.right;
+                }
+            } else {
+                done = true;
+            }
+        }
+        //reassemble the left tree, n, and the right tree
+        leftMax.right = n.left;
+        rightMin.left = n.right;
+        n.left = header.right;
+        n.right = header.left;
+        return n;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set3c() {
+
+        //create empty rep
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set3c<?> : ""
+                + "Violation of: source is of dynamic type Set3c<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set3c<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set3c<T> localSource = (Set3c<T>) source;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        Node<T> n = new Node<T>(x);
+        if (this.root != null) {
+            //after the splay, x goes above the root, which is next to it
+            Node<T> t = splay(this.root, x);
+            this.reshapes++;
+            if (x.compareTo(t.label) < 0) {
+                n.left = t.left;
+                n.right = t;
+                t.left = null;
+            } else {
+                n.right = t.right;
+                n.left = t;
+                t.right = null;
+            }
+        }
+        this.root = n;
+        this.size++;
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        //bring x to the root; it is already there if the contains check
+        //above ran
+        Node<T> t = splay(this.root, x);
+        this.reshapes++;
+        if (t.left == null) {
+            this.root = t.right;
+        } else {
+            //every label on the left is smaller than x, so splaying for x
+            //brings the largest one up, with no right child
+            Node<T> left = splay(t.left, x);
+            left.right = t.right;
+            this.root = left;
+        }
+        this.size--;
+        return t.label;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //remove the smallest element, as the other Set kernels do
+        Node<T> n = this.root;
+        while (n.left != null) {
+            n = n.left;
+        }
+        return this.remove(n.label);
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean found = false;
+        if (this.root != null) {
+            this.root = splay(this.root, x);
+            this.reshapes++;
+            found = x.compareTo(this.root.label) == 0;
+        }
+        return found;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set3cIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set3c}, which
+     * walks the tree in order, one node at a time.
+     */
+    private final class Set3cIterator implements Iterator<T> {
+
+        /**
+         * Nodes whose label and right subtree have not been visited yet, with
+         * the next node to visit on top.
+         */
+        private final Deque<Node<T>> pending;
+
+        /**
+         * The last label returned, or null if none has been yet.
+         */
+        private T last;
+
+        /**
+         * Value of {@code Set3c.this.reshapes} when {@code pending} was last
+         * made to match the tree.
+         */
+        private int reshapes;
+
+        /**
+         * No-argument constructor.
+         */
+        Set3cIterator() {
+            this.pending = new ArrayDeque<Node<T>>();
+            this.last = null;
+            this.reshapes = Set3c.this.reshapes;
+            this.pushLeftPath(Set3c.this.root);
+        }
+
+        /**
+         * Rebuilds the stack from the root if the tree has been reshaped
+         * since it was made, so that it holds the nodes on the search path
+         * for {@code last} whose labels are larger than {@code last}.
+         */
+        private void resync() {
+            if (this.reshapes != Set3c.this.reshapes) {
+                this.pending.clear();
+                if (this.last == null) {
+                    this.pushLeftPath(Set3c.this.root);
+                } else {
+                    Node<T> n = Set3c.this.root;
+                    while (n != null) {
+                        if (this.last.compareTo(n.label) < 0) {
+                            this.pending.push(n);
+                            n = n.left;
+                        } else {
+                            n = n.right;
+                        }
+                    }
+                }
+                this.reshapes = Set3c.this.reshapes;
+            }
+        }
+
+        /**
+         * Pushes {@code t} and all its left descendants onto the stack.
+         *
+         * @param t
+         *            the subtree
+         */
+        private void pushLeftPath(Node<T> t) {
+            Node<T> n = t;
+            while (n != null) {
+                this.pending.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            this.resync();
+            return !this.pending.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            Node<T> n = this.pending.pop();
+            this.pushLeftPath(n.right);
+            this.last = n.label;
+            return n.label;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,621 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as an in-memory B+-tree of elements with
+ * implementations of primary methods.
+ *
+ * <p>
+ * Each node holds up to {@code $this.fanout - 1} keys in an array, so a
+ * lookup visits only about log<sub>fanout</sub>(n) nodes instead of the
+ * log<sub>2</sub>(n) nodes of a binary tree, and binary-searches the keys of
+ * each node. All elements are kept in the leaves, which are linked left to
+ * right, so iteration just walks the leaf arrays in order.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @mathdefinitions <pre>
+ * IS_B_PLUS_TREE(
+ *   root: node of T,
+ *   fanout: integer
+ *  ): boolean satisfies
+ *  [all leaves are at the same depth]  and
+ *  [keys of every node are in strictly increasing order]  and
+ *  [every node has at most fanout - 1 keys, and every node other than
+ *   root has at least (fanout - 1) / 2 keys]  and
+ *  [every internal node with k keys has k + 1 children, and for every
+ *   0 <= i < k, all keys in children[i] are < keys[i] <= all keys in
+ *   children[i + 1]]  and
+ *  [the next field of every leaf points to the leaf to its right, or is
+ *   null for the right-most leaf]
+ * </pre>
+ * @convention <pre>
+ * $this.fanout >= MIN_FANOUT  and
+ * IS_B_PLUS_TREE($this.root, $this.fanout)  and
+ * $this.size = [number of keys in the leaves of $this.root]
+ * </pre>
+ * @correspondence this = [keys in the leaves of $this.root]
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set4<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Default maximum number of children of a node.
+     */
+    private static final int DEFAULT_FANOUT = 64;
+
+    /**
+     * Smallest fanout that keeps every node at least one key after a split.
+     */
+    private static final int MIN_FANOUT = 4;
+
+    /**
+     * Node of the B+-tree; a leaf when {@code children} is {@code null}.
+     *
+     * @param <T>
+     *            type of keys
+     */
+    private static final class Node<T> {
+
+        /**
+         * Keys in this node, in positions [0, count). There is room for one
+         * extra key so that an overflowing node can be split afterwards.
+         */
+        private final T[] keys;
+
+        /**
+         * Children of this internal node, in positions [0, count], or
+         * {@code null} if this is a leaf.
+         */
+        private final Node<T>[] children;
+
+        /**
+         * Number of keys in this node.
+         */
+        private int count;
+
+        /**
+         * Leaf to the right of this leaf, or {@code null}.
+         */
+        private Node<T> next;
+
+        /**
+         * Constructor.
+         *
+         * @param maxKeys
+         *            the maximum number of keys in a node
+         * @param leaf
+         *            whether the new node is a leaf
+         */
+        @SuppressWarnings("unchecked")
+        Node(int maxKeys, boolean leaf) {
+            this.keys = (T[]) new Comparable[maxKeys + 1];
+            if (leaf) {
+                this.children = null;
+            } else {
+                this.children = new Node[maxKeys + 2];
+            }
+            this.count = 0;
+            this.next = null;
+        }
+
+        /**
+         * Reports whether this node is a leaf.
+         *
+         * @return true iff this node is a leaf
+         */
+        boolean isLeaf() {
+            return this.children == null;
+        }
+
+    }
+
+    /**
+     * Maximum number of children of a node.
+     */
+    private int fanout;
+
+    /**
+     * Root of the tree (a leaf when the tree has a single level).
+     */
+    private Node<T> root;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Separator produced by the last split in {@code insertInTree}.
+     */
+    private T splitKey;
+
+    /**
+     * Returns the number of keys in {@code n.keys[0, n.count)} that are less
+     * than or equal to {@code x}, which is both the child to descend into and
+     * the position just after {@code x} if it is present.
+     *
+     * @param <T>
+     *            type of keys
+     * @param n
+     *            the node to search
+     * @param x
+     *            the key to search for
+     * @return the number of keys of n that are <= x
+     */
+    private static <T extends Comparable<T>> int upperBound(Node<T> n, T x) {
+        int lo = 0;
+        int hi = n.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x.compareTo(n.keys[mid]) < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the leaf of the tree rooted at {@code t} that may contain
+     * {@code x}.
+     *
+     * @param <T>
+     *            type of keys
+     * @param t
+     *            the root
+     * @param x
+     *            the key to search for
+     * @return the leaf
+     */
+    private static <T extends Comparable<T>> Node<T> findLeaf(Node<T> t,
+            T x) {
+        Node<T> n = t;
+        while (!n.isLeaf()) {
+            n = n.children[upperBound(n, x)];
+        }
+        return n;
+    }
+
+    /**
+     * Minimum number of keys in a node other than the root.
+     *
+     * @return the minimum number of keys
+     */
+    private int minKeys() {
+        return (this.fanout - 1) / 2;
+    }
+
+    /**
+     * Inserts {@code x} in the subtree rooted at {@code n}. If {@code n}
+     * overflows it is split, the new right half is returned and the key
+     * separating the halves is left in {@code this.splitKey}.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the key to be inserted
+     * @return the new right sibling of n, or null if n was not split
+     * @updates n, this.splitKey
+     * @requires x is not in the subtree rooted at n
+     */
+    private Node<T> insertInTree(Node<T> n, T x) {
+        int maxKeys = this.fanout - 1;
+        int i = upperBound(n, x);
+        Node<T> right = null;
+        if (n.isLeaf()) {
+            System.arraycopy(n.keys, i, n.keys, i + 1, n.count - i);
+            n.keys[i] = x;
+            n.count++;
+            if (n.count > maxKeys) {
+                //move the upper half to a new leaf linked after this one
+                int mid = n.count / 2;
+                right = new Node<T>(maxKeys, true);
+                right.count = n.count - mid;
+                System.arraycopy(n.keys, mid, right.keys, 0, right.count);
+                clearKeys(n, mid);
+                right.next = n.next;
+                n.next = right;
+                this.splitKey = right.keys[0];
+            }
+        } else {
+            Node<T> childRight = this.insertInTree(n.children[i], x);
+            if (childRight != null) {
+                System.arraycopy(n.keys, i, n.keys, i + 1, n.count - i);
+                System.arraycopy(n.children, i + 1, n.children, i + 2,
+                        n.count - i);
+                n.keys[i] = this.splitKey;
+                n.children[i + 1] = childRight;
+                n.count++;
+                if (n.count > maxKeys) {
+                    //the middle key moves up, the upper half moves right
+                    int mid = n.count / 2;
+                    T separator = n.keys[mid];
+                    right = new Node<T>(maxKeys, false);
+                    right.count = n.count - mid - 1;
+                    System.arraycopy(n.keys, mid + 1, right.keys, 0,
+                            right.count);
+                    System.arraycopy(n.children, mid + 1, right.children, 0,
+                            right.count + 1);
+                    for (int j = mid + 1; j <= n.count; j++) {
+                        n.children[j] = null;
+                    }
+                    clearKeys(n, mid);
+                    this.splitKey = separator;
+                }
+            }
+        }
+        return right;
+    }
+
+    /**
+     * Shortens {@code n} to {@code count} keys, dropping references to the
+     * removed keys so they can be garbage collected.
+     *
+     * @param <T>
+     *            type of keys
+     * @param n
+     *            the node
+     * @param count
+     *            the new number of keys
+     * @updates n
+     * @requires 0 <= count <= n.count
+     * @ensures n.count = count
+     */
+    private static <T> void clearKeys(Node<T> n, int count) {
+        for (int j = count; j < n.count; j++) {
+            n.keys[j] = null;
+        }
+        n.count = count;
+    }
+
+    /**
+     * Removes {@code x} from the subtree rooted at {@code n}, rebalancing any
+     * child of {@code n} that is left with too few keys. {@code n} itself may
+     * be left with too few keys, which its parent repairs.
+     *
+     * @param n
+     *            the root of the subtree
+     * @param x
+     *            the key to be removed
+     * @return the removed key
+     * @updates n
+     * @requires x is in the subtree rooted at n
+     */
+    private T removeFromTree(Node<T> n, T x) {
+        int i = upperBound(n, x);
+        T removed;
+        if (n.isLeaf()) {
+            assert i > 0 && x.compareTo(n.keys[i - 1]) == 0 : ""
+                    + "Violation of: x is in the subtree rooted at n";
+            removed = n.keys[i - 1];
+            System.arraycopy(n.keys, i, n.keys, i - 1, n.count - i);
+            n.count--;
+            n.keys[n.count] = null;
+        } else {
+            removed = this.removeFromTree(n.children[i], x);
+            if (n.children[i].count < this.minKeys()) {
+                this.fixUnderflow(n, i);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Restores the minimum number of keys in {@code p.children[i]} by
+     * borrowing a key from a sibling, or by merging with a sibling when
+     * neither has a key to spare.
+     *
+     * @param p
+     *            the parent node
+     * @param i
+     *            the index of the child with too few keys
+     * @updates p
+     */
+    private void fixUnderflow(Node<T> p, int i) {
+        Node<T> child = p.children[i];
+        if (i > 0 && p.children[i - 1].count > this.minKeys()) {
+            //borrow the last key of the left sibling
+            Node<T> left = p.children[i - 1];
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            if (child.isLeaf()) {
+                child.keys[0] = left.keys[left.count - 1];
+                p.keys[i - 1] = child.keys[0];
+            } else {
+                System.arraycopy(child.children, 0, child.children, 1,
+                        child.count + 1);
+                child.keys[0] = p.keys[i - 1];
+                child.children[0] = left.children[left.count];
+                left.children[left.count] = null;
+                p.keys[i - 1] = left.keys[left.count - 1];
+            }
+            child.count++;
+            clearKeys(left, left.count - 1);
+        } else if (i < p.count && p.children[i + 1].count > this.minKeys()) {
+            //borrow the first key of the right sibling
+            Node<T> right = p.children[i + 1];
+            if (child.isLeaf()) {
+                child.keys[child.count] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0,
+                        right.count - 1);
+                p.keys[i] = right.keys[0];
+            } else {
+                child.keys[child.count] = p.keys[i];
+                child.children[child.count + 1] = right.children[0];
+                p.keys[i] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0,
+                        right.count - 1);
+                System.arraycopy(right.children, 1, right.children, 0,
+                        right.count);
+                right.children[right.count] = null;
+            }
+            child.count++;
+            right.count--;
+            right.keys[right.count] = null;
+        } else if (i > 0) {
+            this.merge(p, i - 1);
+        } else {
+            this.merge(p, i);
+        }
+    }
+
+    /**
+     * Merges {@code p.children[i + 1]} into {@code p.children[i]} and removes
+     * the separator between them from {@code p}.
+     *
+     * @param p
+     *            the parent node
+     * @param i
+     *            the index of the left child of the pair to merge
+     * @updates p
+     * @requires 0 <= i < p.count and [the merged node fits in one node]
+     */
+    private void merge(Node<T> p, int i) {
+        Node<T> left = p.children[i];
+        Node<T> right = p.children[i + 1];
+        if (left.isLeaf()) {
+            System.arraycopy(right.keys, 0, left.keys, left.count,
+                    right.count);
+            left.count += right.count;
+            left.next = right.next;
+        } else {
+            //the separator comes down between the two halves
+            left.keys[left.count] = p.keys[i];
+            System.arraycopy(right.keys, 0, left.keys, left.count + 1,
+                    right.count);
+            System.arraycopy(right.children, 0, left.children, left.count + 1,
+                    right.count + 1);
+            left.count += right.count + 1;
+        }
+        System.arraycopy(p.keys, i + 1, p.keys, i, p.count - i - 1);
+        System.arraycopy(p.children, i + 2, p.children, i + 1,
+                p.count - i - 1);
+        p.children[p.count] = null;
+        clearKeys(p, p.count - 1);
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param maxChildren
+     *            the maximum number of children of a node
+     * @requires maxChildren >= MIN_FANOUT
+     * @ensures <pre>
+     * $this.fanout = maxChildren  and  $this.size = 0  and
+     * [$this.root is an empty leaf]
+     * </pre>
+     */
+    private void createNewRep(int maxChildren) {
+        this.fanout = maxChildren;
+        this.root = new Node<T>(maxChildren - 1, true);
+        this.size = 0;
+        this.splitKey = null;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set4() {
+
+        this.createNewRep(DEFAULT_FANOUT);
+    }
+
+    /**
+     * Constructor resulting in a B+-tree whose nodes have at most
+     * {@code fanout} children.
+     *
+     * @param fanout
+     *            maximum number of children of a node
+     * @requires fanout >= 4
+     * @ensures this = {}
+     */
+    public Set4(int fanout) {
+        assert fanout >= MIN_FANOUT : "Violation of: fanout >= 4";
+
+        this.createNewRep(fanout);
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(this.fanout);
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set4<?> : ""
+                + "Violation of: source is of dynamic type Set4<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set4<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set4<T> localSource = (Set4<T>) source;
+        this.fanout = localSource.fanout;
+        this.root = localSource.root;
+        this.size = localSource.size;
+        localSource.createNewRep(localSource.fanout);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        Node<T> right = this.insertInTree(this.root, x);
+        if (right != null) {
+            //the root was split, so the tree grows one level
+            Node<T> newRoot = new Node<T>(this.fanout - 1, false);
+            newRoot.keys[0] = this.splitKey;
+            newRoot.children[0] = this.root;
+            newRoot.children[1] = right;
+            newRoot.count = 1;
+            this.root = newRoot;
+        }
+        this.splitKey = null;
+        this.size++;
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        T removed = this.removeFromTree(this.root, x);
+        if (!this.root.isLeaf() && this.root.count == 0) {
+            //the root lost its last separator, so the tree shrinks one level
+            this.root = this.root.children[0];
+        }
+        this.size--;
+        return removed;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //the smallest key is the first key of the left-most leaf
+        Node<T> n = this.root;
+        while (!n.isLeaf()) {
+            n = n.children[0];
+        }
+        return this.remove(n.keys[0]);
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        Node<T> leaf = findLeaf(this.root, x);
+        int i = upperBound(leaf, x);
+        return i > 0 && x.compareTo(leaf.keys[i - 1]) == 0;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set4Iterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set4}, which
+     * walks the linked leaves from left to right.
+     */
+    private final class Set4Iterator implements Iterator<T> {
+
+        /**
+         * Leaf from which the next element will come.
+         */
+        private Node<T> leaf;
+
+        /**
+         * Position in {@code leaf} of the next element.
+         */
+        private int position;
+
+        /**
+         * No-argument constructor.
+         */
+        Set4Iterator() {
+            Node<T> n = Set4.this.root;
+            while (!n.isLeaf()) {
+                n = n.children[0];
+            }
+            this.leaf = n;
+            this.position = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            //only the left-most leaf can be empty, and only when this = {}
+            return this.position < this.leaf.count || this.leaf.next != null;
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            if (this.position == this.leaf.count) {
+                this.leaf = this.leaf.next;
+                this.position = 0;
+            }
+            T x = this.leaf.keys[this.position];
+            this.position++;
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set} represented as a lock-free concurrent skip list of elements, with
+ * implementations of primary methods that may be called by many threads at
+ * once.
+ *
+ * <p>
+ * The skip list is {@code java.util.concurrent.ConcurrentSkipListSet}, which
+ * updates its links with compare-and-set only, so {@code contains} never
+ * blocks and {@code add}/{@code remove} on different keys do not contend.
+ * {@code iterator} and {@code rangeIterator} are weakly consistent: they return
+ * elements in increasing order, never fail because of concurrent updates, and
+ * see every element that is present for the whole iteration.
+ * </p>
+ *
+ * <p>
+ * The kernel preconditions ({@code x is not in this} for {@code add}, and so
+ * on) still hold for each call, so concurrent callers must not add or remove
+ * the same element at the same time. {@code clear}, {@code newInstance} and
+ * {@code transferFrom} are not meant to run concurrently with other calls.
+ * </p>
+ *
+ * @param <T>
+ *            type of {@code Set} elements
+ * @convention <pre>
+ * $this.elements is not null  and  $this.size is not null  and
+ * [when no update is in progress, $this.size = |$this.elements|]
+ * </pre>
+ * @correspondence this = $this.elements
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set5<T extends Comparable<T>> extends SetSecondary<T> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Elements included in {@code this}.
+     */
+    private ConcurrentSkipListSet<T> elements;
+
+    /**
+     * Number of elements; {@code ConcurrentSkipListSet.size} walks the whole
+     * list, so the count is kept here instead.
+     */
+    private AtomicInteger size;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.elements = new ConcurrentSkipListSet<T>();
+        this.size = new AtomicInteger(0);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set5() {
+
+        //create empty rep
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final Set<T> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<T> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set5<?> : ""
+                + "Violation of: source is of dynamic type Set5<?>";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Set5<?>, and
+         * the ? must be T or the call would not have compiled.
+         */
+        Set5<T> localSource = (Set5<T>) source;
+        this.elements = localSource.elements;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        if (this.elements.add(x)) {
+            this.size.incrementAndGet();
+        }
+    }
+
+    @Override
+    public final T remove(T x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        if (this.elements.remove(x)) {
+            this.size.decrementAndGet();
+        }
+        return x;
+    }
+
+    @Override
+    public final T removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //pollFirst unlinks the smallest element atomically, so two threads
+        //calling removeAny never get the same element
+        T x = this.elements.pollFirst();
+        if (x != null) {
+            this.size.decrementAndGet();
+        }
+        return x;
+    }
+
+    @Override
+    public final boolean contains(T x) {
+        assert x != null : "Violation of: x is not null";
+
+        return this.elements.contains(x);
+    }
+
+    @Override
+    public final int size() {
+        return this.size.get();
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        return new Set5Iterator(this.elements.iterator());
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns a weakly consistent iterator over the elements {@code x} of
+     * {@code this} with {@code from <= x < to}, in increasing order. Only the
+     * part of the skip list in the range is visited.
+     *
+     * @param from
+     *            the lower bound, inclusive
+     * @param to
+     *            the upper bound, exclusive
+     * @return the iterator
+     * @requires from <= to
+     * @ensures <pre>
+     * [rangeIterator returns, in increasing order, the elements x of this with
+     *  from <= x < to that are present for the whole iteration, and possibly
+     *  some of those added or removed during it]
+     * </pre>
+     */
+    public final Iterator<T> rangeIterator(T from, T to) {
+        assert from != null : "Violation of: from is not null";
+        assert to != null : "Violation of: to is not null";
+        assert from.compareTo(to) <= 0 : "Violation of: from <= to";
+
+        return new Set5Iterator(this.elements.subSet(from, to).iterator());
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set5}, which
+     * hides {@code remove} of the underlying skip list iterator.
+     */
+    private final class Set5Iterator implements Iterator<T> {
+
+        /**
+         * Iterator of the skip list.
+         */
+        private final Iterator<T> iterator;
+
+        /**
+         * Constructor from the skip list iterator.
+         *
+         * @param iterator
+         *            the iterator to wrap
+         */
+        Set5Iterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+
+            return this.iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
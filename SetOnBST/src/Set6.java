@@ -0,0 +1,1024 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set<Integer>} represented as a compressed ("roaring") bitmap, with
+ * implementations of primary methods.
+ *
+ * <p>
+ * Each {@code int} is split into its high 16 bits, which select a container,
+ * and its low 16 bits, which are stored in that container. A container holds
+ * at most 65536 values in one of three forms: a sorted {@code char} array
+ * (sparse containers, 2 bytes per value), a 65536-bit bitmap (dense
+ * containers, 8 KB in all), or a sorted list of runs (long ranges, 4 bytes per
+ * run). Dense ranges of small integers thus cost at most a bit or two per
+ * element, instead of a boxed {@code Integer} plus a tree node.
+ * </p>
+ *
+ * <p>
+ * Array and bitmap containers are converted into one another automatically as
+ * they grow and shrink; {@code runOptimize} converts containers to runs where
+ * that is smaller. Iteration is in increasing order. {@code unionWith} and
+ * {@code intersectWith} work one container at a time: arrays and runs are
+ * merged as sorted lists, and only bitmaps are combined a 64-bit word at a
+ * time.
+ * </p>
+ *
+ * @convention <pre>
+ * 0 <= $this.count <= |$this.keys| = |$this.containers|  and
+ * [$this.keys[0, $this.count) are in strictly increasing order]  and
+ * [$this.containers[0, $this.count) are not null and not empty]  and
+ * $this.size = [sum of the cardinalities of $this.containers[0, $this.count)]
+ * </pre>
+ * @correspondence <pre>
+ * this = {x: integer where (there exists i: integer
+ *     (0 <= i < $this.count  and  $this.keys[i] = KEY(x)  and
+ *      LOW(x) is in $this.containers[i])))}
+ *   where KEY(x) = (x >>> 16) xor 0x8000  and  LOW(x) = x and 0xFFFF
+ * </pre>
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set6 extends SetSecondary<Integer> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Number of bits in the low part of a value.
+     */
+    private static final int LOW_BITS = 16;
+
+    /**
+     * Mask for the low part of a value.
+     */
+    private static final int LOW_MASK = 0xFFFF;
+
+    /**
+     * Flipped sign bit of the high part, so that keys sort like signed values.
+     */
+    private static final int SIGN_FLIP = 0x8000;
+
+    /**
+     * Largest number of values kept in an array container; above this a bitmap
+     * is smaller.
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * Number of 64-bit words in a bitmap container.
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * Number of bits in a bitmap word.
+     */
+    private static final int WORD_BITS = 64;
+
+    /**
+     * log2 of {@code WORD_BITS}.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * Mask for the position of a bit within its word.
+     */
+    private static final int LAST_BIT = WORD_BITS - 1;
+
+    /**
+     * Size of a bitmap container, in {@code char}s.
+     */
+    private static final int BITMAP_CHARS = BITMAP_WORDS
+            * (WORD_BITS / Character.SIZE);
+
+    /**
+     * Initial capacity of the container arrays.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Container for the low 16 bits of the values sharing one high part.
+     * Exactly one of {@code array}, {@code bitmap} and {@code runs} is not
+     * null.
+     */
+    private static final class Container {
+
+        /**
+         * Sorted values in positions [0, cardinality), or null.
+         */
+        private char[] array;
+
+        /**
+         * Bitmap of the values, or null.
+         */
+        private long[] bitmap;
+
+        /**
+         * Runs as pairs (start, length - 1) in positions [0, 2 * runCount),
+         * sorted and not touching, or null.
+         */
+        private char[] runs;
+
+        /**
+         * Number of runs in {@code runs}.
+         */
+        private int runCount;
+
+        /**
+         * Number of values in this container.
+         */
+        private int cardinality;
+
+        /**
+         * Constructor for an empty array container.
+         */
+        Container() {
+            this.array = new char[INITIAL_CAPACITY];
+            this.cardinality = 0;
+        }
+
+        /**
+         * Reports whether {@code low} is in this container.
+         *
+         * @param low
+         *            the value
+         * @return true iff low is in this container
+         */
+        boolean contains(int low) {
+            boolean found;
+            if (this.array != null) {
+                found = Arrays.binarySearch(this.array, 0, this.cardinality,
+                        (char) low) >= 0;
+            } else if (this.bitmap != null) {
+                found = (this.bitmap[low >>> WORD_SHIFT] & (1L << low)) != 0;
+            } else {
+                int r = this.runIndex(low);
+                found = r >= 0
+                        && low <= this.runs[2 * r] + this.runs[2 * r + 1];
+            }
+            return found;
+        }
+
+        /**
+         * Returns the index of the last run starting at or before {@code low},
+         * or -1 if there is none.
+         *
+         * @param low
+         *            the value
+         * @return the run index
+         */
+        private int runIndex(int low) {
+            int lo = 0;
+            int hi = this.runCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (this.runs[2 * mid] <= low) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo - 1;
+        }
+
+        /**
+         * Adds {@code low} to this container.
+         *
+         * @param low
+         *            the value
+         * @requires low is not in this container
+         */
+        void add(int low) {
+            if (this.runs != null) {
+                this.toArrayOrBitmap();
+            }
+            if (this.array != null) {
+                int i = -Arrays.binarySearch(this.array, 0, this.cardinality,
+                        (char) low) - 1;
+                if (this.cardinality == this.array.length) {
+                    this.array = Arrays.copyOf(this.array,
+                            Math.min(2 * this.array.length, ARRAY_MAX + 1));
+                }
+                System.arraycopy(this.array, i, this.array, i + 1,
+                        this.cardinality - i);
+                this.array[i] = (char) low;
+                this.cardinality++;
+                if (this.cardinality > ARRAY_MAX) {
+                    this.toBitmap();
+                }
+            } else {
+                this.bitmap[low >>> WORD_SHIFT] |= 1L << low;
+                this.cardinality++;
+            }
+        }
+
+        /**
+         * Removes {@code low} from this container.
+         *
+         * @param low
+         *            the value
+         * @requires low is in this container
+         */
+        void remove(int low) {
+            if (this.runs != null) {
+                this.toArrayOrBitmap();
+            }
+            if (this.array != null) {
+                int i = Arrays.binarySearch(this.array, 0, this.cardinality,
+                        (char) low);
+                System.arraycopy(this.array, i + 1, this.array, i,
+                        this.cardinality - i - 1);
+                this.cardinality--;
+            } else {
+                this.bitmap[low >>> WORD_SHIFT] &= ~(1L << low);
+                this.cardinality--;
+                if (this.cardinality <= ARRAY_MAX) {
+                    this.toArrayOrBitmap();
+                }
+            }
+        }
+
+        /**
+         * Returns the smallest value in this container that is {@code >= low},
+         * or -1 if there is none.
+         *
+         * @param low
+         *            the lower bound
+         * @return the next value, or -1
+         */
+        int nextValue(int low) {
+            int result = -1;
+            if (low <= LOW_MASK) {
+                if (this.array != null) {
+                    int i = Arrays.binarySearch(this.array, 0,
+                            this.cardinality, (char) low);
+                    if (i < 0) {
+                        i = -i - 1;
+                    }
+                    if (i < this.cardinality) {
+                        result = this.array[i];
+                    }
+                } else if (this.bitmap != null) {
+                    int w = low >>> WORD_SHIFT;
+                    long word = this.bitmap[w] & (-1L << low);
+                    while (word == 0 && w < BITMAP_WORDS - 1) {
+                        w++;
+                        word = this.bitmap[w];
+                    }
+                    if (word != 0) {
+                        result = (w << WORD_SHIFT)
+                                + Long.numberOfTrailingZeros(word);
+                    }
+                } else {
+                    int r = this.runIndex(low);
+                    if (r >= 0 && low <= this.runs[2 * r]
+                            + this.runs[2 * r + 1]) {
+                        result = low;
+                    } else if (r + 1 < this.runCount) {
+                        result = this.runs[2 * (r + 1)];
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Writes the values of this container into a fresh bitmap.
+         *
+         * @return the bitmap
+         */
+        long[] toWords() {
+            long[] words = this.bitmap;
+            if (words == null) {
+                words = new long[BITMAP_WORDS];
+                int v = this.nextValue(0);
+                while (v >= 0) {
+                    words[v >>> WORD_SHIFT] |= 1L << v;
+                    v = this.nextValue(v + 1);
+                }
+            } else {
+                words = words.clone();
+            }
+            return words;
+        }
+
+        /**
+         * Converts this container to a bitmap container.
+         */
+        private void toBitmap() {
+            long[] words = this.toWords();
+            this.array = null;
+            this.runs = null;
+            this.runCount = 0;
+            this.bitmap = words;
+        }
+
+        /**
+         * Converts this container to whichever of an array or a bitmap
+         * container is smaller for its cardinality.
+         */
+        void toArrayOrBitmap() {
+            if (this.cardinality > ARRAY_MAX) {
+                if (this.bitmap == null) {
+                    this.toBitmap();
+                }
+            } else if (this.array == null) {
+                char[] values = new char[Math.max(this.cardinality,
+                        INITIAL_CAPACITY)];
+                int n = 0;
+                int v = this.nextValue(0);
+                while (v >= 0) {
+                    values[n] = (char) v;
+                    n++;
+                    v = this.nextValue(v + 1);
+                }
+                this.bitmap = null;
+                this.runs = null;
+                this.runCount = 0;
+                this.array = values;
+            }
+        }
+
+        /**
+         * Converts this container to a run container if that is smaller than
+         * its current form. A run container is left as it is.
+         */
+        void runOptimize() {
+            if (this.runs == null) {
+                int count = 0;
+                int prev = -2;
+                int v = this.nextValue(0);
+                while (v >= 0) {
+                    if (v != prev + 1) {
+                        count++;
+                    }
+                    prev = v;
+                    v = this.nextValue(v + 1);
+                }
+                int currentChars = this.cardinality;
+                if (this.array == null) {
+                    currentChars = BITMAP_CHARS;
+                }
+                if (2 * count < currentChars) {
+                    char[] pairs = new char[2 * count];
+                    int r = -1;
+                    prev = -2;
+                    v = this.nextValue(0);
+                    while (v >= 0) {
+                        if (v != prev + 1) {
+                            r++;
+                            pairs[2 * r] = (char) v;
+                        } else {
+                            pairs[2 * r + 1]++;
+                        }
+                        prev = v;
+                        v = this.nextValue(v + 1);
+                    }
+                    this.array = null;
+                    this.bitmap = null;
+                    this.runs = pairs;
+                    this.runCount = count;
+                }
+            }
+        }
+
+        /**
+         * Returns a copy of this container, in the same form.
+         *
+         * @return the copy
+         */
+        Container copy() {
+            Container c = new Container();
+            c.array = null;
+            if (this.array != null) {
+                c.array = Arrays.copyOf(this.array,
+                        Math.max(this.cardinality, INITIAL_CAPACITY));
+            } else if (this.bitmap != null) {
+                c.bitmap = this.bitmap.clone();
+            } else {
+                c.runs = Arrays.copyOf(this.runs, 2 * this.runCount);
+                c.runCount = this.runCount;
+            }
+            c.cardinality = this.cardinality;
+            return c;
+        }
+
+        /**
+         * Returns the number of intervals of consecutive values this array or
+         * run container is made of: one per value for an array, one per run
+         * for runs.
+         *
+         * @return the number of intervals
+         * @requires this.bitmap = null
+         */
+        private int intervals() {
+            int n = this.runCount;
+            if (this.array != null) {
+                n = this.cardinality;
+            }
+            return n;
+        }
+
+        /**
+         * Returns the first value of interval {@code i}.
+         *
+         * @param i
+         *            the interval
+         * @return its first value
+         * @requires this.bitmap = null and 0 <= i < intervals()
+         */
+        private int start(int i) {
+            int v;
+            if (this.array != null) {
+                v = this.array[i];
+            } else {
+                v = this.runs[2 * i];
+            }
+            return v;
+        }
+
+        /**
+         * Returns the last value of interval {@code i}.
+         *
+         * @param i
+         *            the interval
+         * @return its last value
+         * @requires this.bitmap = null and 0 <= i < intervals()
+         */
+        private int end(int i) {
+            int v;
+            if (this.array != null) {
+                v = this.array[i];
+            } else {
+                v = this.runs[2 * i] + this.runs[2 * i + 1];
+            }
+            return v;
+        }
+
+        /**
+         * Sets the bits of the values of this array or run container in
+         * {@code words}, a whole word at a time inside long runs.
+         *
+         * @param words
+         *            the bitmap
+         * @updates words
+         * @requires this.bitmap = null
+         */
+        private void orInto(long[] words) {
+            for (int i = 0; i < this.intervals(); i++) {
+                int first = this.start(i);
+                int last = this.end(i);
+                for (int w = first >>> WORD_SHIFT; w <= last >>> WORD_SHIFT;
+                        w++) {
+                    long mask = -1L;
+                    if (w == first >>> WORD_SHIFT) {
+                        mask &= -1L << first;
+                    }
+                    if (w == last >>> WORD_SHIFT) {
+                        mask &= -1L >>> (WORD_BITS - 1 - (last & LAST_BIT));
+                    }
+                    words[w] |= mask;
+                }
+            }
+        }
+
+        /**
+         * Makes this a container of the values in {@code words}, as an array
+         * or a bitmap, whichever is smaller.
+         *
+         * @param words
+         *            the bitmap, which then belongs to this container
+         */
+        private void setWords(long[] words) {
+            int n = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                n += Long.bitCount(words[w]);
+            }
+            this.array = null;
+            this.runs = null;
+            this.runCount = 0;
+            this.bitmap = words;
+            this.cardinality = n;
+            this.toArrayOrBitmap();
+        }
+
+        /**
+         * Makes this a container of the runs {@code pairs}, in run form if
+         * {@code keepRuns} and that is smallest, or else as an array or a
+         * bitmap, whichever is smaller.
+         *
+         * @param pairs
+         *            the runs, as pairs (start, length - 1)
+         * @param n
+         *            the number of runs
+         * @param keepRuns
+         *            whether the run form may be kept
+         */
+        private void setRuns(char[] pairs, int n, boolean keepRuns) {
+            int total = 0;
+            for (int i = 0; i < n; i++) {
+                total += pairs[2 * i + 1] + 1;
+            }
+            this.array = null;
+            this.bitmap = null;
+            this.runs = pairs;
+            this.runCount = n;
+            this.cardinality = total;
+            int otherChars = BITMAP_CHARS;
+            if (total <= ARRAY_MAX) {
+                otherChars = total;
+            }
+            if (!keepRuns || 2 * n >= otherChars) {
+                this.toArrayOrBitmap();
+            }
+        }
+
+        /**
+         * Adds to this container the values of {@code other}. Arrays and runs
+         * are merged as sorted lists of intervals; words are used only when
+         * one side is a bitmap.
+         *
+         * @param other
+         *            the container to add
+         */
+        void unionWith(Container other) {
+            if (this.bitmap == null && other.bitmap == null) {
+                int na = this.intervals();
+                int nb = other.intervals();
+                char[] pairs = new char[2 * (na + nb)];
+                int n = 0;
+                int last = -2;
+                int i = 0;
+                int j = 0;
+                while (i < na || j < nb) {
+                    int first;
+                    int end;
+                    if (j == nb
+                            || (i < na && this.start(i) <= other.start(j))) {
+                        first = this.start(i);
+                        end = this.end(i);
+                        i++;
+                    } else {
+                        first = other.start(j);
+                        end = other.end(j);
+                        j++;
+                    }
+                    if (first <= last + 1) {
+                        //overlaps or touches the run being built
+                        if (end > last) {
+                            pairs[2 * n - 1] = (char) (end - pairs[2 * n - 2]);
+                            last = end;
+                        }
+                    } else {
+                        pairs[2 * n] = (char) first;
+                        pairs[2 * n + 1] = (char) (end - first);
+                        n++;
+                        last = end;
+                    }
+                }
+                this.setRuns(pairs, n, this.runs != null || other.runs != null);
+            } else {
+                long[] words = this.bitmap;
+                if (words == null) {
+                    words = other.bitmap.clone();
+                    this.orInto(words);
+                } else if (other.bitmap != null) {
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[w] |= other.bitmap[w];
+                    }
+                } else {
+                    other.orInto(words);
+                }
+                this.setWords(words);
+            }
+        }
+
+        /**
+         * Removes from this container the values that are not in
+         * {@code other}. Arrays and runs are intersected as sorted lists of
+         * intervals, and an array is filtered through a bitmap one value at
+         * a time; words are used only for a bitmap and a run container, or
+         * two bitmaps.
+         *
+         * @param other
+         *            the container to intersect with
+         */
+        void intersectWith(Container other) {
+            if (this.bitmap == null && other.bitmap == null) {
+                int na = this.intervals();
+                int nb = other.intervals();
+                char[] pairs = new char[2 * (na + nb)];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < na && j < nb) {
+                    int first = Math.max(this.start(i), other.start(j));
+                    int end = Math.min(this.end(i), other.end(j));
+                    if (first <= end) {
+                        pairs[2 * n] = (char) first;
+                        pairs[2 * n + 1] = (char) (end - first);
+                        n++;
+                    }
+                    if (this.end(i) < other.end(j)) {
+                        i++;
+                    } else {
+                        j++;
+                    }
+                }
+                this.setRuns(pairs, n, this.runs != null && other.runs != null);
+            } else if (this.array != null || other.array != null) {
+                //keep the values of the array whose bits are set
+                Container values = this;
+                long[] words = other.bitmap;
+                if (this.array == null) {
+                    values = other;
+                    words = this.bitmap;
+                }
+                char[] kept = new char[Math.max(values.cardinality,
+                        INITIAL_CAPACITY)];
+                int n = 0;
+                for (int i = 0; i < values.cardinality; i++) {
+                    int v = values.array[i];
+                    if ((words[v >>> WORD_SHIFT] & (1L << v)) != 0) {
+                        kept[n] = (char) v;
+                        n++;
+                    }
+                }
+                this.bitmap = null;
+                this.runs = null;
+                this.runCount = 0;
+                this.array = kept;
+                this.cardinality = n;
+            } else {
+                long[] words = this.toWords();
+                long[] otherWords = other.bitmap;
+                if (otherWords == null) {
+                    otherWords = other.toWords();
+                }
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= otherWords[w];
+                }
+                this.setWords(words);
+            }
+        }
+    }
+
+    /**
+     * High parts ({@code KEY}) of the containers, in increasing order.
+     */
+    private char[] keys;
+
+    /**
+     * Containers, parallel to {@code keys}.
+     */
+    private Container[] containers;
+
+    /**
+     * Number of containers in use.
+     */
+    private int count;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Returns the container key of {@code x}.
+     *
+     * @param x
+     *            the value
+     * @return KEY(x)
+     */
+    private static int key(int x) {
+        return (x >>> LOW_BITS) ^ SIGN_FLIP;
+    }
+
+    /**
+     * Returns the value with the given key and low part.
+     *
+     * @param key
+     *            the container key
+     * @param low
+     *            the low part
+     * @return the value x with KEY(x) = key and LOW(x) = low
+     */
+    private static int value(int key, int low) {
+        return ((key ^ SIGN_FLIP) << LOW_BITS) | low;
+    }
+
+    /**
+     * Returns the position of the container with key {@code key} if there is
+     * one, else {@code -(insertion point) - 1}.
+     *
+     * @param key
+     *            the key
+     * @return the position
+     */
+    private int find(int key) {
+        return Arrays.binarySearch(this.keys, 0, this.count, (char) key);
+    }
+
+    /**
+     * Inserts {@code c} with key {@code key} at position {@code i}.
+     *
+     * @param i
+     *            the position
+     * @param key
+     *            the key
+     * @param c
+     *            the container
+     */
+    private void insertContainer(int i, int key, Container c) {
+        if (this.count == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, 2 * this.count);
+            this.containers = Arrays.copyOf(this.containers, 2 * this.count);
+        }
+        System.arraycopy(this.keys, i, this.keys, i + 1, this.count - i);
+        System.arraycopy(this.containers, i, this.containers, i + 1,
+                this.count - i);
+        this.keys[i] = (char) key;
+        this.containers[i] = c;
+        this.count++;
+    }
+
+    /**
+     * Removes the container at position {@code i}.
+     *
+     * @param i
+     *            the position
+     */
+    private void removeContainer(int i) {
+        System.arraycopy(this.keys, i + 1, this.keys, i, this.count - i - 1);
+        System.arraycopy(this.containers, i + 1, this.containers, i,
+                this.count - i - 1);
+        this.count--;
+        this.containers[this.count] = null;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.keys = new char[INITIAL_CAPACITY];
+        this.containers = new Container[INITIAL_CAPACITY];
+        this.count = 0;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set6() {
+
+        //create empty rep
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Set<Integer> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Set<Integer> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set6 : ""
+                + "Violation of: source is of dynamic type Set6";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        Set6 localSource = (Set6) source;
+        this.keys = localSource.keys;
+        this.containers = localSource.containers;
+        this.count = localSource.count;
+        this.size = localSource.size;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        int k = key(x);
+        int i = this.find(k);
+        if (i < 0) {
+            i = -i - 1;
+            this.insertContainer(i, k, new Container());
+        }
+        this.containers[i].add(x & LOW_MASK);
+        this.size++;
+    }
+
+    @Override
+    public final Integer remove(Integer x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        int i = this.find(key(x));
+        Container c = this.containers[i];
+        c.remove(x & LOW_MASK);
+        if (c.cardinality == 0) {
+            this.removeContainer(i);
+        }
+        this.size--;
+        return x;
+    }
+
+    @Override
+    public final Integer removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //remove the smallest value, which is in the first container
+        Integer x = value(this.keys[0], this.containers[0].nextValue(0));
+        return this.remove(x);
+    }
+
+    @Override
+    public final boolean contains(Integer x) {
+        assert x != null : "Violation of: x is not null";
+
+        int i = this.find(key(x));
+        return i >= 0 && this.containers[i].contains(x & LOW_MASK);
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<Integer> iterator() {
+        return new Set6Iterator();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Adds to {@code this} all elements of {@code s}, leaving {@code s}
+     * unchanged.
+     *
+     * @param s
+     *            the set to add
+     * @updates this
+     * @requires s is not this
+     * @ensures this = #this union s
+     */
+    public final void unionWith(Set6 s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        for (int j = 0; j < s.count; j++) {
+            int k = s.keys[j];
+            Container other = s.containers[j];
+            int i = this.find(k);
+            if (i < 0) {
+                Container c = other.copy();
+                this.insertContainer(-i - 1, k, c);
+                this.size += c.cardinality;
+            } else {
+                Container c = this.containers[i];
+                this.size -= c.cardinality;
+                c.unionWith(other);
+                this.size += c.cardinality;
+            }
+        }
+    }
+
+    /**
+     * Removes from {@code this} all elements that are not in {@code s},
+     * leaving {@code s} unchanged.
+     *
+     * @param s
+     *            the set to intersect with
+     * @updates this
+     * @requires s is not this
+     * @ensures this = #this intersection s
+     */
+    public final void intersectWith(Set6 s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+
+        int i = 0;
+        while (i < this.count) {
+            Container c = this.containers[i];
+            this.size -= c.cardinality;
+            int j = s.find(this.keys[i]);
+            if (j >= 0) {
+                c.intersectWith(s.containers[j]);
+            }
+            if (j < 0 || c.cardinality == 0) {
+                this.removeContainer(i);
+            } else {
+                this.size += c.cardinality;
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Converts every container that holds long runs of consecutive values to
+     * the run form, where that takes less memory than its current form. The
+     * abstract value of {@code this} does not change.
+     */
+    public final void runOptimize() {
+        for (int i = 0; i < this.count; i++) {
+            this.containers[i].runOptimize();
+        }
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set6}, which
+     * returns the elements in increasing order without copying them.
+     */
+    private final class Set6Iterator implements Iterator<Integer> {
+
+        /**
+         * Position of the container from which the next element will come.
+         */
+        private int container;
+
+        /**
+         * Low part of the next element, or -1 if there is none.
+         */
+        private int low;
+
+        /**
+         * No-argument constructor.
+         */
+        Set6Iterator() {
+            this.container = 0;
+            this.low = -1;
+            if (Set6.this.count > 0) {
+                this.low = Set6.this.containers[0].nextValue(0);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.low >= 0;
+        }
+
+        @Override
+        public Integer next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            int x = value(Set6.this.keys[this.container], this.low);
+            this.low = Set6.this.containers[this.container]
+                    .nextValue(this.low + 1);
+            if (this.low < 0 && this.container + 1 < Set6.this.count) {
+                this.container++;
+                this.low = Set6.this.containers[this.container].nextValue(0);
+            }
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
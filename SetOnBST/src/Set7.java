@@ -0,0 +1,839 @@
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import components.set.Set;
+import components.set.SetSecondary;
+
+/**
+ * {@code Set<String>} represented as a sorted sequence of front-coded blocks,
+ * with implementations of primary methods.
+ *
+ * <p>
+ * The strings, in increasing order, are cut into blocks of at most
+ * {@code BLOCK_SIZE}. Each block is one {@code byte} array: the first string
+ * is stored whole, and each later string only as the length of the prefix it
+ * shares with the string before it plus the rest of its bytes. Strings are
+ * encoded in modified UTF-8, one {@code char} at a time, as
+ * {@code DataOutput.writeUTF} does, so that every {@code String} comes back
+ * unchanged, even one with an unpaired surrogate, which standard UTF-8 would
+ * replace with {@code '?'}. Only
+ * the first string of each block is kept as a {@code String}, in a sorted
+ * index that {@code contains} binary-searches before decoding a single block.
+ * For a large dictionary of similar words this takes a small fraction of the
+ * memory of one {@code String} and one tree node per word.
+ * </p>
+ *
+ * <p>
+ * The set is meant to be built once with {@code Set7(String[])}, which packs
+ * full blocks, and then queried with {@code contains}, {@code iterator} and
+ * {@code prefixIterator}. {@code add} and {@code remove} are supported but
+ * re-encode the block they change, so they cost O({@code BLOCK_SIZE}) string
+ * operations each.
+ * </p>
+ *
+ * @convention <pre>
+ * 0 <= $this.blockCount <= |$this.blocks| = |$this.counts| =
+ *   |$this.firstWords|  and
+ * [for every 0 <= i < $this.blockCount, $this.blocks[i] is the front-coded
+ *  encoding of $this.counts[i] strings, 0 < $this.counts[i] <= BLOCK_SIZE,
+ *  whose first string is $this.firstWords[i]]  and
+ * [the strings of $this.blocks[0, $this.blockCount), in order, are in
+ *  strictly increasing order]  and
+ * $this.size = sum of $this.counts[0, $this.blockCount)
+ * </pre>
+ * @correspondence <pre>
+ * this = [strings encoded in $this.blocks[0, $this.blockCount)]
+ * </pre>
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set7 extends SetSecondary<String> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Maximum number of strings in a block.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Initial capacity of the block arrays.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Low 7 bits of a byte, which carry data in a variable-length integer.
+     */
+    private static final int VARINT_DATA = 0x7F;
+
+    /**
+     * High bit of a byte, set when more bytes of a variable-length integer
+     * follow.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Number of data bits per byte of a variable-length integer.
+     */
+    private static final int VARINT_SHIFT = 7;
+
+    /**
+     * Largest number of bytes in the encoding of one {@code char}.
+     */
+    private static final int MAX_CHAR_BYTES = 3;
+
+    /**
+     * Largest {@code char} encoded in one byte; the zero {@code char} takes
+     * two.
+     */
+    private static final int ONE_BYTE_MAX = 0x7F;
+
+    /**
+     * Largest {@code char} encoded in two bytes.
+     */
+    private static final int TWO_BYTE_MAX = 0x7FF;
+
+    /**
+     * High bits of the first byte of a two-byte encoding.
+     */
+    private static final int TWO_BYTE_LEAD = 0xC0;
+
+    /**
+     * Data bits of the first byte of a two-byte encoding.
+     */
+    private static final int TWO_BYTE_DATA = 0x1F;
+
+    /**
+     * High bits of the first byte of a three-byte encoding.
+     */
+    private static final int THREE_BYTE_LEAD = 0xE0;
+
+    /**
+     * Data bits of the first byte of a three-byte encoding.
+     */
+    private static final int THREE_BYTE_DATA = 0x0F;
+
+    /**
+     * High bits of every byte of an encoding but the first.
+     */
+    private static final int CONTINUATION_LEAD = 0x80;
+
+    /**
+     * Data bits of every byte of an encoding but the first.
+     */
+    private static final int CONTINUATION_DATA = 0x3F;
+
+    /**
+     * Number of data bits in every byte of an encoding but the first.
+     */
+    private static final int CONTINUATION_SHIFT = 6;
+
+    /**
+     * Mask of the bits of an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Returns the modified UTF-8 encoding of {@code x}.
+     *
+     * @param x
+     *            the string
+     * @return the bytes of x
+     * @ensures decode(encode, |encode|) = x
+     */
+    private static byte[] encode(String x) {
+        byte[] out = new byte[MAX_CHAR_BYTES * x.length()];
+        int n = 0;
+        for (int i = 0; i < x.length(); i++) {
+            char c = x.charAt(i);
+            if (c != 0 && c <= ONE_BYTE_MAX) {
+                out[n] = (byte) c;
+                n++;
+            } else if (c <= TWO_BYTE_MAX) {
+                out[n] = (byte) (TWO_BYTE_LEAD | c >> CONTINUATION_SHIFT);
+                out[n + 1] = (byte) (CONTINUATION_LEAD
+                        | c & CONTINUATION_DATA);
+                n += 2;
+            } else {
+                out[n] = (byte) (THREE_BYTE_LEAD
+                        | c >> (2 * CONTINUATION_SHIFT));
+                out[n + 1] = (byte) (CONTINUATION_LEAD
+                        | c >> CONTINUATION_SHIFT & CONTINUATION_DATA);
+                out[n + 2] = (byte) (CONTINUATION_LEAD
+                        | c & CONTINUATION_DATA);
+                n += MAX_CHAR_BYTES;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Returns the string whose modified UTF-8 encoding is
+     * {@code bytes[0, length)}.
+     *
+     * @param bytes
+     *            the encoded string
+     * @param length
+     *            the number of bytes in the encoding
+     * @return the string
+     * @requires [bytes[0, length) = encode(x) for some string x]
+     * @ensures encode(decode) = bytes[0, length)
+     */
+    private static String decode(byte[] bytes, int length) {
+        StringBuilder b = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            int c = bytes[i] & BYTE_MASK;
+            if (c < CONTINUATION_LEAD) {
+                b.append((char) c);
+                i++;
+            } else if (c < THREE_BYTE_LEAD) {
+                b.append((char) ((c & TWO_BYTE_DATA) << CONTINUATION_SHIFT
+                        | bytes[i + 1] & CONTINUATION_DATA));
+                i += 2;
+            } else {
+                int high = c & THREE_BYTE_DATA;
+                int middle = bytes[i + 1] & CONTINUATION_DATA;
+                int low = bytes[i + 2] & CONTINUATION_DATA;
+                b.append((char) ((high << CONTINUATION_SHIFT | middle)
+                        << CONTINUATION_SHIFT | low));
+                i += MAX_CHAR_BYTES;
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * Decoder of the strings of one block, in order.
+     */
+    private static final class BlockReader {
+
+        /**
+         * Encoded block.
+         */
+        private final byte[] data;
+
+        /**
+         * Position of the next byte to decode.
+         */
+        private int position;
+
+        /**
+         * Number of strings not decoded yet.
+         */
+        private int remaining;
+
+        /**
+         * Encoded bytes of the last decoded string, in [0, length).
+         */
+        private byte[] word;
+
+        /**
+         * Length of the last decoded string, in bytes.
+         */
+        private int length;
+
+        /**
+         * Constructor.
+         *
+         * @param data
+         *            the encoded block
+         * @param count
+         *            the number of strings in the block
+         */
+        BlockReader(byte[] data, int count) {
+            this.data = data;
+            this.position = 0;
+            this.remaining = count;
+            this.word = new byte[INITIAL_CAPACITY];
+            this.length = 0;
+        }
+
+        /**
+         * Reads a variable-length integer.
+         *
+         * @return the integer
+         */
+        private int readInt() {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = this.data[this.position];
+                this.position++;
+                result |= (b & VARINT_DATA) << shift;
+                shift += VARINT_SHIFT;
+            } while ((b & VARINT_MORE) != 0);
+            return result;
+        }
+
+        /**
+         * Reports whether there is another string to decode.
+         *
+         * @return true iff there is another string
+         */
+        boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        /**
+         * Decodes the next string into {@code word} without building a
+         * {@code String}.
+         */
+        void advance() {
+            int shared = 0;
+            if (this.position > 0) {
+                shared = this.readInt();
+            }
+            int suffix = this.readInt();
+            this.length = shared + suffix;
+            if (this.length > this.word.length) {
+                this.word = Arrays.copyOf(this.word,
+                        Math.max(this.length, 2 * this.word.length));
+            }
+            System.arraycopy(this.data, this.position, this.word, shared,
+                    suffix);
+            this.position += suffix;
+            this.remaining--;
+        }
+
+        /**
+         * Decodes and returns the next string.
+         *
+         * @return the string
+         */
+        String next() {
+            this.advance();
+            return decode(this.word, this.length);
+        }
+
+        /**
+         * Reports whether the last decoded string is equal to the string
+         * whose encoded bytes are {@code x}.
+         *
+         * @param x
+         *            the bytes to compare with
+         * @return true iff the bytes are equal
+         */
+        boolean matches(byte[] x) {
+            return Arrays.equals(this.word, 0, this.length, x, 0, x.length);
+        }
+
+    }
+
+    /**
+     * Encoded blocks.
+     */
+    private byte[][] blocks;
+
+    /**
+     * Number of strings in each block.
+     */
+    private int[] counts;
+
+    /**
+     * First string of each block, the index searched by {@code contains}.
+     */
+    private String[] firstWords;
+
+    /**
+     * Number of blocks in use.
+     */
+    private int blockCount;
+
+    /**
+     * Number of elements in {@code this}.
+     */
+    private int size;
+
+    /**
+     * Writes {@code n} to {@code out} as a variable-length integer.
+     *
+     * @param out
+     *            the output
+     * @param n
+     *            the integer
+     * @requires n >= 0
+     */
+    private static void writeInt(ByteArrayOutputStream out, int n) {
+        int rest = n;
+        while (rest > VARINT_DATA) {
+            out.write((rest & VARINT_DATA) | VARINT_MORE);
+            rest >>>= VARINT_SHIFT;
+        }
+        out.write(rest);
+    }
+
+    /**
+     * Returns the front-coded encoding of {@code words[from, to)}.
+     *
+     * @param words
+     *            the strings, in increasing order
+     * @param from
+     *            index of the first string to encode
+     * @param to
+     *            index one past the last string to encode
+     * @return the encoded block
+     * @requires 0 <= from < to <= |words|
+     */
+    private static byte[] encodeBlock(String[] words, int from, int to) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] previous = new byte[0];
+        for (int i = from; i < to; i++) {
+            byte[] current = encode(words[i]);
+            if (i > from) {
+                int shared = Arrays.mismatch(previous, current);
+                if (shared < 0) {
+                    shared = current.length;
+                }
+                writeInt(out, shared);
+                writeInt(out, current.length - shared);
+                out.write(current, shared, current.length - shared);
+            } else {
+                writeInt(out, current.length);
+                out.write(current, 0, current.length);
+            }
+            previous = current;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the strings of block {@code b}.
+     *
+     * @param b
+     *            the block index
+     * @return the decoded strings, in increasing order
+     * @requires 0 <= b < this.blockCount
+     */
+    private String[] decodeBlock(int b) {
+        BlockReader reader = new BlockReader(this.blocks[b], this.counts[b]);
+        String[] words = new String[this.counts[b]];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = reader.next();
+        }
+        return words;
+    }
+
+    /**
+     * Returns the index of the last block whose first string is {@code <= x},
+     * or 0 if there is none.
+     *
+     * @param x
+     *            the string to search for
+     * @return the block that would hold x
+     */
+    private int findBlock(String x) {
+        int lo = 0;
+        int hi = this.blockCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x.compareTo(this.firstWords[mid]) < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return Math.max(lo - 1, 0);
+    }
+
+    /**
+     * Stores {@code words[from, to)} as block {@code b}.
+     *
+     * @param b
+     *            the block index
+     * @param words
+     *            the strings, in increasing order
+     * @param from
+     *            index of the first string
+     * @param to
+     *            index one past the last string
+     * @requires 0 <= b < this.blockCount and 0 < to - from <= BLOCK_SIZE
+     */
+    private void setBlock(int b, String[] words, int from, int to) {
+        this.blocks[b] = encodeBlock(words, from, to);
+        this.counts[b] = to - from;
+        this.firstWords[b] = words[from];
+    }
+
+    /**
+     * Makes room for a new block at index {@code b}, shifting the later blocks
+     * up by one.
+     *
+     * @param b
+     *            the index of the new block
+     * @requires 0 <= b <= this.blockCount
+     */
+    private void insertBlock(int b) {
+        if (this.blockCount == this.blocks.length) {
+            int capacity = 2 * this.blockCount;
+            this.blocks = Arrays.copyOf(this.blocks, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.firstWords = Arrays.copyOf(this.firstWords, capacity);
+        }
+        System.arraycopy(this.blocks, b, this.blocks, b + 1,
+                this.blockCount - b);
+        System.arraycopy(this.counts, b, this.counts, b + 1,
+                this.blockCount - b);
+        System.arraycopy(this.firstWords, b, this.firstWords, b + 1,
+                this.blockCount - b);
+        this.blockCount++;
+    }
+
+    /**
+     * Removes block {@code b}, shifting the later blocks down by one.
+     *
+     * @param b
+     *            the index of the block
+     * @requires 0 <= b < this.blockCount
+     */
+    private void removeBlock(int b) {
+        System.arraycopy(this.blocks, b + 1, this.blocks, b,
+                this.blockCount - b - 1);
+        System.arraycopy(this.counts, b + 1, this.counts, b,
+                this.blockCount - b - 1);
+        System.arraycopy(this.firstWords, b + 1, this.firstWords, b,
+                this.blockCount - b - 1);
+        this.blockCount--;
+        this.blocks[this.blockCount] = null;
+        this.firstWords[this.blockCount] = null;
+    }
+
+    /**
+     * Creator of initial representation.
+     *
+     * @param capacity
+     *            the initial number of block slots
+     * @requires capacity > 0
+     */
+    private void createNewRep(int capacity) {
+        this.blocks = new byte[capacity][];
+        this.counts = new int[capacity];
+        this.firstWords = new String[capacity];
+        this.blockCount = 0;
+        this.size = 0;
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Set7() {
+
+        //create empty rep
+        this.createNewRep(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor from an array of strings, which are sorted first unless
+     * they are already in increasing order and then packed into full blocks.
+     *
+     * @param words
+     *            the strings to initialize from
+     * @requires [words has no null entries and no duplicate entries]
+     * @ensures this = [entries of words]
+     */
+    public Set7(String[] words) {
+        assert words != null : "Violation of: words is not null";
+
+        //only pay for the sort when the input is not already in order
+        String[] sorted = words;
+        int i = 1;
+        while (i < sorted.length && sorted[i - 1].compareTo(sorted[i]) < 0) {
+            i++;
+        }
+        if (i < sorted.length) {
+            //sort a copy so the caller's array is left unchanged
+            sorted = Arrays.copyOf(words, words.length);
+            Arrays.sort(sorted);
+            for (int j = 1; j < sorted.length; j++) {
+                assert !sorted[j - 1].equals(sorted[j]) : ""
+                        + "Violation of: words has no duplicate entries";
+            }
+        }
+        int n = (sorted.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.createNewRep(Math.max(n, INITIAL_CAPACITY));
+        this.blockCount = n;
+        for (int b = 0; b < n; b++) {
+            int from = b * BLOCK_SIZE;
+            this.setBlock(b, sorted, from,
+                    Math.min(from + BLOCK_SIZE, sorted.length));
+        }
+        this.size = sorted.length;
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Set<String> newInstance() {
+        try {
+            return this.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + this.getClass());
+        }
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public final void transferFrom(Set<String> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Set7 : ""
+                + "Violation of: source is of dynamic type Set7";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case.
+         */
+        Set7 localSource = (Set7) source;
+        this.blocks = localSource.blocks;
+        this.counts = localSource.counts;
+        this.firstWords = localSource.firstWords;
+        this.blockCount = localSource.blockCount;
+        this.size = localSource.size;
+        localSource.createNewRep(INITIAL_CAPACITY);
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String x) {
+        assert x != null : "Violation of: x is not null";
+        assert !this.contains(x) : "Violation of: x is not in this";
+
+        if (this.blockCount == 0) {
+            this.insertBlock(0);
+            this.setBlock(0, new String[] { x }, 0, 1);
+        } else {
+            //decode the block x belongs in, insert x, and encode it again
+            int b = this.findBlock(x);
+            String[] old = this.decodeBlock(b);
+            String[] words = new String[old.length + 1];
+            int i = 0;
+            while (i < old.length && old[i].compareTo(x) < 0) {
+                words[i] = old[i];
+                i++;
+            }
+            words[i] = x;
+            System.arraycopy(old, i, words, i + 1, old.length - i);
+            if (words.length <= BLOCK_SIZE) {
+                this.setBlock(b, words, 0, words.length);
+            } else {
+                //a full block splits into two half-full ones
+                int half = words.length / 2;
+                this.insertBlock(b + 1);
+                this.setBlock(b, words, 0, half);
+                this.setBlock(b + 1, words, half, words.length);
+            }
+        }
+        this.size++;
+    }
+
+    @Override
+    public final String remove(String x) {
+        assert x != null : "Violation of: x is not null";
+        assert this.contains(x) : "Violation of: x is in this";
+
+        int b = this.findBlock(x);
+        String[] old = this.decodeBlock(b);
+        if (old.length == 1) {
+            this.removeBlock(b);
+        } else {
+            String[] words = new String[old.length - 1];
+            int j = 0;
+            for (String w : old) {
+                if (!w.equals(x)) {
+                    words[j] = w;
+                    j++;
+                }
+            }
+            this.setBlock(b, words, 0, words.length);
+        }
+        this.size--;
+        return x;
+    }
+
+    @Override
+    public final String removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        //the first string of the first block is the smallest
+        return this.remove(this.firstWords[0]);
+    }
+
+    @Override
+    public final boolean contains(String x) {
+        assert x != null : "Violation of: x is not null";
+
+        boolean found = false;
+        if (this.blockCount > 0) {
+            //one binary search in the index, then a scan of one block
+            int b = this.findBlock(x);
+            byte[] bytes = encode(x);
+            BlockReader reader = new BlockReader(this.blocks[b],
+                    this.counts[b]);
+            while (!found && reader.hasNext()) {
+                reader.advance();
+                found = reader.matches(bytes);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public final int size() {
+        return this.size;
+    }
+
+    @Override
+    public final Iterator<String> iterator() {
+        return new Set7Iterator("");
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns an iterator over the elements of {@code this} that start with
+     * {@code prefix}, in increasing order. Only the blocks that may hold such
+     * elements are decoded.
+     *
+     * @param prefix
+     *            the prefix
+     * @return the iterator
+     * @ensures <pre>
+     * [prefixIterator returns, in increasing order, the elements x of this
+     *  such that prefix is a prefix of x]
+     * </pre>
+     */
+    public final Iterator<String> prefixIterator(String prefix) {
+        assert prefix != null : "Violation of: prefix is not null";
+
+        return new Set7Iterator(prefix);
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code Set7}, which
+     * decodes one block at a time and returns the elements starting with a
+     * given prefix (all elements, for the empty prefix).
+     */
+    private final class Set7Iterator implements Iterator<String> {
+
+        /**
+         * Prefix of every element returned.
+         */
+        private final String prefix;
+
+        /**
+         * Index of the block being decoded.
+         */
+        private int block;
+
+        /**
+         * Decoder of that block, or null when there are no more blocks.
+         */
+        private BlockReader reader;
+
+        /**
+         * Next element to return, or null if there is none.
+         */
+        private String next;
+
+        /**
+         * Constructor from the prefix.
+         *
+         * @param prefix
+         *            the prefix of every element returned
+         */
+        Set7Iterator(String prefix) {
+            this.prefix = prefix;
+            this.block = -1;
+            this.reader = null;
+            if (Set7.this.blockCount > 0) {
+                //elements with the prefix are the first ones >= prefix, so
+                //start from the block that would hold the prefix itself
+                this.block = Set7.this.findBlock(prefix);
+                this.reader = new BlockReader(Set7.this.blocks[this.block],
+                        Set7.this.counts[this.block]);
+            }
+            this.next = this.decodeNext();
+            while (this.next != null && this.next.compareTo(prefix) < 0) {
+                this.next = this.decodeNext();
+            }
+            if (this.next != null && !this.next.startsWith(prefix)) {
+                this.next = null;
+            }
+        }
+
+        /**
+         * Decodes and returns the element after the last one decoded, moving
+         * to the next block when needed.
+         *
+         * @return the element, or null if there are no more
+         */
+        private String decodeNext() {
+            String result = null;
+            if (this.reader != null && !this.reader.hasNext()) {
+                this.block++;
+                this.reader = null;
+                if (this.block < Set7.this.blockCount) {
+                    this.reader = new BlockReader(Set7.this.blocks[this.block],
+                            Set7.this.counts[this.block]);
+                }
+            }
+            if (this.reader != null) {
+                result = this.reader.next();
+            }
+            return result;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public String next() {
+            assert this.hasNext() : "Violation of: ~this.unseen /= <>";
+            if (!this.hasNext()) {
+                /*
+                 * Exception is supposed to be thrown in this case, but with
+                 * assertion-checking enabled it cannot happen because of assert
+                 * above.
+                 */
+                throw new NoSuchElementException();
+            }
+            String result = this.next;
+            this.next = this.decodeNext();
+            if (this.next != null && !this.next.startsWith(this.prefix)) {
+                this.next = null;
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import components.set.Set;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Benchmark of {@code contains} on {@code Set3a} (plain BST) against
+ * {@code Set3c} (splay tree) for Zipf-distributed lookups, where the key of
+ * rank r is looked up with probability proportional to 1 / r^s.
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public final class SetBenchmark {
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SetBenchmark() {
+    }
+
+    /**
+     * Number of elements in each set.
+     */
+    private static final int SET_SIZE = 100000;
+
+    /**
+     * Number of lookups per run.
+     */
+    private static final int LOOKUPS = 2000000;
+
+    /**
+     * Zipf exponents to benchmark; 0 is a uniform workload.
+     */
+    private static final double[] EXPONENTS = { 0.0, 0.8, 1.0, 1.2 };
+
+    /**
+     * Seed of the random number generator, so that runs are repeatable.
+     */
+    private static final long SEED = 2231;
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * Returns the cumulative distribution of a Zipf law over {@code n} ranks
+     * with exponent {@code s}.
+     *
+     * @param n
+     *            the number of ranks
+     * @param s
+     *            the exponent
+     * @return cdf, where cdf[r] = P(rank <= r)
+     * @requires n > 0 and s >= 0
+     */
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int r = 0; r < n; r++) {
+            sum += 1.0 / Math.pow(r + 1, s);
+            cdf[r] = sum;
+        }
+        for (int r = 0; r < n; r++) {
+            cdf[r] /= sum;
+        }
+        return cdf;
+    }
+
+    /**
+     * Returns {@code count} keys drawn from {@code keys}, where
+     * {@code keys[r]} is drawn with the probability of rank r in {@code cdf}.
+     *
+     * @param keys
+     *            the keys, in rank order
+     * @param cdf
+     *            the cumulative distribution of ranks
+     * @param count
+     *            the number of keys to draw
+     * @param rnd
+     *            the random number generator
+     * @return the drawn keys
+     */
+    private static Integer[] draw(Integer[] keys, double[] cdf, int count,
+            Random rnd) {
+        Integer[] result = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            int r = Arrays.binarySearch(cdf, rnd.nextDouble());
+            if (r < 0) {
+                r = Math.min(-r - 1, cdf.length - 1);
+            }
+            result[i] = keys[r];
+        }
+        return result;
+    }
+
+    /**
+     * Adds {@code keys} to {@code s} in the given order, looks up every key in
+     * {@code lookups}, and returns the time the lookups took.
+     *
+     * @param s
+     *            the set to benchmark
+     * @param keys
+     *            the keys to add
+     * @param lookups
+     *            the keys to look up
+     * @return the lookup time in milliseconds
+     * @updates s
+     * @requires s = {}
+     */
+    private static long time(Set<Integer> s, Integer[] keys,
+            Integer[] lookups) {
+        for (Integer k : keys) {
+            s.add(k);
+        }
+        int hits = 0;
+        long start = System.nanoTime();
+        for (Integer k : lookups) {
+            if (s.contains(k)) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assert hits == lookups.length : "Violation of: every lookup hits";
+        return elapsed / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        Random rnd = new Random(SEED);
+        /*
+         * Keys 0..n-1 in random order; the insertion order and the rank order
+         * are shuffled independently, so hot keys are spread over the tree
+         */
+        Integer[] keys = new Integer[SET_SIZE];
+        for (int i = 0; i < SET_SIZE; i++) {
+            keys[i] = i;
+        }
+        Integer[] byRank = keys.clone();
+        for (int i = SET_SIZE - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            Integer tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+            j = rnd.nextInt(i + 1);
+            tmp = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = tmp;
+        }
+        out.println("n = " + SET_SIZE + ", " + LOOKUPS + " lookups per run");
+        out.println("exponent  Set3a (ms)  Set3c (ms)");
+        for (double s : EXPONENTS) {
+            Integer[] lookups = draw(byRank, zipfCdf(SET_SIZE, s), LOOKUPS,
+                    rnd);
+            long bst = time(new Set3a<Integer>(), keys, lookups);
+            long splay = time(new Set3c<Integer>(), keys, lookups);
+            out.println(String.format("%8.1f  %10d  %10d", s, bst, splay));
+        }
+        out.close();
+    }
+
+}
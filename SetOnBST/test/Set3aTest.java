@@ -1,3 +1,14 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
 import components.set.Set;
 import components.set.Set1L;
 
@@ -16,4 +27,199 @@ public class Set3aTest extends SetTest {
         return new Set1L<String>();
     }
 
+    /**
+     * Test for array constructor with no elements.
+     */
+    @Test
+    public final void testArrayConstructorEmpty() {
+        Set<String> s = new Set3a<String>(new String[0]);
+        Set<String> sExpected = this.constructorRef();
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for array constructor with elements in no particular order; the
+     * array passed in must not be changed.
+     */
+    @Test
+    public final void testArrayConstructorUnsorted() {
+        String[] elements = { "red", "blue", "yellow", "green" };
+        Set<String> s = new Set3a<String>(elements);
+        Set<String> sExpected = this.constructorRef();
+        sExpected.add("red");
+        sExpected.add("blue");
+        sExpected.add("yellow");
+        sExpected.add("green");
+        assertEquals(sExpected, s);
+        assertEquals("red", elements[0]);
+        assertEquals("green", elements[3]);
+    }
+
+    /**
+     * Test for array constructor with many sorted elements, followed by
+     * removes to make sure the resulting tree is a valid BST.
+     */
+    @Test
+    public final void testArrayConstructorSortedLarge() {
+        final int n = 1000;
+        String[] elements = new String[n];
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < n; i++) {
+            elements[i] = String.format("%04d", i);
+            sExpected.add(elements[i]);
+        }
+        Set<String> s = new Set3a<String>(elements);
+        assertEquals(sExpected, s);
+        assertEquals("0000", s.removeAny());
+        assertEquals("0500", s.remove("0500"));
+        sExpected.remove("0000");
+        sExpected.remove("0500");
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test for a set with a Bloom filter, growing past the initial filter size
+     * so that the filter is rebuilt, with misses and removed elements checked
+     * along the way.
+     */
+    @Test
+    public final void testBloomFilterGrowAndRemove() {
+        final int n = 1000;
+        final double rate = 0.01;
+        Set<String> s = new Set3a<String>(rate);
+        for (int i = 0; i < n; i += 2) {
+            s.add(Integer.toString(i));
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 2 == 0, s.contains(Integer.toString(i)));
+        }
+        for (int i = 0; i < n; i += 4) {
+            s.remove(Integer.toString(i));
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 4 == 2, s.contains(Integer.toString(i)));
+        }
+        Set<String> t = s.newInstance();
+        t.transferFrom(s);
+        assertEquals(0, s.size());
+        assertEquals(false, s.contains("2"));
+        assertEquals(true, t.contains("2"));
+    }
+
+    /**
+     * Test that the filter never rules out an element that is in the set, so
+     * contains agrees with a set with no filter, and that a definite miss in
+     * the filter costs no comparisons.
+     */
+    @Test
+    public final void testBloomFilterMissesSkipTree() {
+        final int n = 500;
+        final double rate = 0.01;
+        final int maxFalsePositives = n / 10;
+        Set3a<String> s = new Set3a<String>(rate);
+        Set3a<String> plain = new Set3a<String>();
+        for (int i = 0; i < n; i++) {
+            s.add("in" + i);
+            plain.add("in" + i);
+        }
+        s.resetComparisonCount();
+        for (int i = 0; i < n; i++) {
+            assertEquals(true, s.contains("in" + i));
+        }
+        long hits = s.comparisonCount();
+        s.resetComparisonCount();
+        plain.resetComparisonCount();
+        for (int i = 0; i < n; i++) {
+            assertEquals(plain.contains("out" + i), s.contains("out" + i));
+        }
+        //only the false positives of the filter reach the tree
+        assertEquals(true, hits > 0);
+        assertEquals(true, s.comparisonCount() * n <= plain.comparisonCount()
+                * maxFalsePositives);
+    }
+
+    /**
+     * Test that contains makes exactly one comparison per node it visits.
+     */
+    @Test
+    public final void testComparisonCount() {
+        Set3a<String> s = new Set3a<String>(
+                new String[] { "b", "d", "f", "a", "c", "e", "g" });
+        s.resetComparisonCount();
+        //balanced tree: d at the root, then b and f, then the leaves
+        s.contains("d");
+        assertEquals(1, s.comparisonCount());
+        s.contains("g");
+        assertEquals(1 + 3, s.comparisonCount());
+        s.contains("h");
+        assertEquals(1 + 3 + 3, s.comparisonCount());
+        s.resetComparisonCount();
+        assertEquals(0, s.comparisonCount());
+    }
+
+    /**
+     * Test that the iterator visits the elements in order and can be stopped
+     * early.
+     */
+    @Test
+    public final void testIteratorInOrderEarlyStop() {
+        Set3a<String> s = new Set3a<String>(
+                new String[] { "e", "b", "g", "a", "c", "f", "d" });
+        Iterator<String> it = s.iterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        assertEquals(true, it.hasNext());
+        List<String> rest = new ArrayList<String>();
+        for (String x : s) {
+            rest.add(x);
+        }
+        assertEquals("[a, b, c, d, e, f, g]", rest.toString());
+        assertEquals(7, s.size());
+    }
+
+    /**
+     * Test that splitting the spliterator covers every element exactly once
+     * and in order.
+     */
+    @Test
+    public final void testSpliteratorSplits() {
+        final int n = 1000;
+        Set3a<Integer> s = new Set3a<Integer>();
+        for (int i = 0; i < n; i++) {
+            s.add((i * 7919) % n);
+        }
+        Spliterator<Integer> right = s.spliterator();
+        assertEquals(n, right.getExactSizeIfKnown());
+        Spliterator<Integer> left = right.trySplit();
+        List<Integer> seen = new ArrayList<Integer>();
+        left.forEachRemaining(seen::add);
+        right.forEachRemaining(seen::add);
+        assertEquals(n, seen.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(Integer.valueOf(i), seen.get(i));
+        }
+        assertEquals(true, left.hasCharacteristics(Spliterator.SORTED));
+    }
+
+    /**
+     * Test a parallel stream over the set.
+     */
+    @Test
+    public final void testParallelStream() {
+        final int n = 5000;
+        Set3a<Integer> s = new Set3a<Integer>();
+        for (int i = n - 1; i >= 0; i--) {
+            s.add(i);
+        }
+        List<Integer> all = StreamSupport.stream(s.spliterator(), true)
+                .collect(Collectors.toList());
+        assertEquals(n, all.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(Integer.valueOf(i), all.get(i));
+        }
+        long sum = StreamSupport.stream(s.spliterator(), true)
+                .mapToLong(Integer::longValue).sum();
+        assertEquals((long) n * (n - 1) / 2, sum);
+    }
+
 }
@@ -0,0 +1,148 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3b}.
+ */
+public class Set3bTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3b<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test that a snapshot does not see updates made after it was taken.
+     */
+    @Test
+    public final void testSnapshotUnchangedByUpdates() {
+        Set3b<String> s = new Set3b<String>();
+        s.add("red");
+        s.add("blue");
+        Set3b<String> snap = s.snapshot();
+        s.add("yellow");
+        s.remove("red");
+        Set<String> snapExpected = this.constructorRef();
+        snapExpected.add("red");
+        snapExpected.add("blue");
+        Set<String> sExpected = this.constructorRef();
+        sExpected.add("blue");
+        sExpected.add("yellow");
+        assertEquals(snapExpected, snap);
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test that an iterator keeps walking the tree it started on, in order,
+     * while the set is updated.
+     */
+    @Test
+    public final void testIteratorUnchangedByUpdates() {
+        final int n = 200;
+        Set3b<String> s = new Set3b<String>();
+        for (int i = 0; i < n; i++) {
+            s.add(String.format("%03d", i));
+        }
+        Iterator<String> it = s.iterator();
+        for (int i = 0; i < n; i++) {
+            s.remove(String.format("%03d", i));
+            assertEquals(String.format("%03d", i), it.next());
+        }
+        assertEquals(0, s.size());
+    }
+
+
+    /**
+     * Test that remove returns the label stored in the set, not the argument.
+     */
+    @Test
+    public final void testRemoveReturnsStoredLabel() {
+        Set3b<String> s = new Set3b<String>();
+        String stored = new String("green");
+        s.add(stored);
+        s.add("blue");
+        assertSame(stored, s.remove(new String("green")));
+        assertEquals(1, s.size());
+    }
+
+    /**
+     * Test that writers on several threads at once lose no updates.
+     *
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting for the writers
+     */
+    @Test
+    public final void testConcurrentWriters() throws InterruptedException {
+        final int writers = 4;
+        final int n = 500;
+        final Set3b<String> s = new Set3b<String>();
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            final int id = w;
+            threads[w] = new Thread(() -> {
+                for (int i = 0; i < n; i++) {
+                    s.add(id + "-" + i);
+                }
+                for (int i = 0; i < n; i += 2) {
+                    s.remove(id + "-" + i);
+                }
+            });
+            threads[w].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(writers * n / 2, s.size());
+        for (int w = 0; w < writers; w++) {
+            for (int i = 0; i < n; i++) {
+                assertEquals(i % 2 == 1, s.contains(w + "-" + i));
+            }
+        }
+    }
+
+    /**
+     * Test that no add is lost when another thread keeps moving the elements
+     * out with transferFrom and clear at the same time.
+     *
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting for the writer
+     */
+    @Test
+    public final void testTransferWhileWriting() throws InterruptedException {
+        final int n = 20000;
+        final Set3b<String> s = new Set3b<String>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                s.add("x" + i);
+            }
+        });
+        writer.start();
+        Set<String> all = this.constructorRef();
+        Set<String> moved = new Set3b<String>();
+        boolean done = false;
+        while (!done) {
+            done = !writer.isAlive();
+            moved.transferFrom(s);
+            for (String x : moved) {
+                all.add(x);
+            }
+            moved.clear();
+        }
+        writer.join();
+        assertEquals(n, all.size());
+        assertEquals(0, s.size());
+    }
+
+}
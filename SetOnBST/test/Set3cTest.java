@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set3c}.
+ */
+public class Set3cTest extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set3c<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test that repeated lookups of the same few elements, which reshape the
+     * tree, do not change the set or its iteration order.
+     */
+    @Test
+    public final void testRepeatedLookups() {
+        final int n = 300;
+        final int hot = 7;
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < n; i++) {
+            String x = String.format("%03d", i);
+            s.add(x);
+            sExpected.add(x);
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals(true, s.contains(String.format("%03d", i % hot)));
+            assertEquals(false, s.contains("missing" + i));
+        }
+        assertEquals(sExpected, s);
+        Iterator<String> it = s.iterator();
+        for (int i = 0; i < n; i++) {
+            assertEquals(String.format("%03d", i), it.next());
+        }
+        for (int i = 0; i < n; i += 2) {
+            s.remove(String.format("%03d", i));
+            sExpected.remove(String.format("%03d", i));
+        }
+        assertEquals(sExpected, s);
+    }
+
+    /**
+     * Test that calls to contains, which reshape the tree, inside a for-each
+     * loop over the set do not change what the loop sees.
+     */
+    @Test
+    public final void testContainsWhileIterating() {
+        final int n = 20;
+        Set<String> s = this.constructorTest();
+        for (int i = 0; i < n; i++) {
+            s.add(String.format("%02d", i));
+        }
+        int i = 0;
+        for (String x : s) {
+            assertEquals(String.format("%02d", i), x);
+            assertEquals(true, s.contains(String.format("%02d", n - 1 - i)));
+            assertEquals(false, s.contains("missing" + i));
+            i++;
+        }
+        assertEquals(n, i);
+    }
+
+}
@@ -0,0 +1,64 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set4} using non-default constructor
+ * and fanout 4, so that even small sets split and merge nodes.
+ */
+public class Set4Test4 extends SetTest {
+
+    /**
+     * Fanout to be used in tests.
+     */
+    private static final int TEST_FANOUT = 4;
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set4<String>(TEST_FANOUT);
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test adding and removing enough elements to grow and shrink the tree by
+     * several levels, checking the iteration order along the way.
+     */
+    @Test
+    public final void testAddRemoveMany() {
+        final int n = 500;
+        final int step = 7;
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        for (int i = 0; i < n; i++) {
+            String x = String.format("%03d", (i * step) % n);
+            s.add(x);
+            sExpected.add(x);
+        }
+        assertEquals(sExpected, s);
+        Iterator<String> it = s.iterator();
+        for (int i = 0; i < n; i++) {
+            assertEquals(String.format("%03d", i), it.next());
+        }
+        for (int i = 0; i < n; i += 2) {
+            String x = String.format("%03d", (i * step) % n);
+            assertEquals(x, s.remove(x));
+            sExpected.remove(x);
+        }
+        assertEquals(sExpected, s);
+        while (s.size() > 0) {
+            String x = s.removeAny();
+            sExpected.remove(x);
+        }
+        assertEquals(sExpected, s);
+    }
+
+}
@@ -0,0 +1,75 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set5}.
+ */
+public class Set5Test extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set5<String>();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Test for rangeIterator, which should return only the elements in the
+     * range, in increasing order.
+     */
+    @Test
+    public final void testRangeIterator() {
+        Set5<String> s = new Set5<String>();
+        s.add("red");
+        s.add("blue");
+        s.add("yellow");
+        s.add("green");
+        Iterator<String> it = s.rangeIterator("c", "s");
+        assertEquals("green", it.next());
+        assertEquals("red", it.next());
+        assertEquals(false, it.hasNext());
+    }
+
+    /**
+     * Test that threads adding and removing disjoint elements at the same time
+     * leave the set with exactly the expected elements.
+     */
+    @Test
+    public final void testConcurrentAddRemove() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 1000;
+        final Set5<String> s = new Set5<String>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    s.add(id + "-" + i);
+                }
+                for (int i = 0; i < perThread; i += 2) {
+                    s.remove(id + "-" + i);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(threads * perThread / 2, s.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertEquals(i % 2 == 1, s.contains(t + "-" + i));
+            }
+        }
+    }
+
+}
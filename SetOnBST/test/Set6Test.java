@@ -0,0 +1,229 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * JUnit test fixture for {@code Set6}, which only holds {@code Integer}s and
+ * so cannot reuse {@code SetTest}.
+ *
+ * @author Shafin Alam & Yanqing Xu
+ *
+ */
+public class Set6Test {
+
+    /**
+     * Creates and returns a {@code Set6} with the integers in [lo, hi) that
+     * are multiples of {@code step}, along with the same set in
+     * {@code expected}.
+     *
+     * @param lo
+     *            the lower bound
+     * @param hi
+     *            the upper bound
+     * @param step
+     *            the distance between elements
+     * @param expected
+     *            the reference set to fill
+     * @return the constructed set
+     * @updates expected
+     */
+    private static Set6 createRange(int lo, int hi, int step,
+            Set<Integer> expected) {
+        Set6 s = new Set6();
+        for (int i = lo; i < hi; i += step) {
+            s.add(i);
+            expected.add(i);
+        }
+        return s;
+    }
+
+    /**
+     * Test for constructor.
+     */
+    @Test
+    public final void testConstructor() {
+        Set6 s = new Set6();
+        assertEquals(new Set1L<Integer>(), s);
+        assertEquals(0, s.size());
+    }
+
+    /**
+     * Test add, contains and remove on a sparse set with negative values.
+     */
+    @Test
+    public final void testSparseWithNegatives() {
+        Set<Integer> expected = new Set1L<Integer>();
+        Set6 s = createRange(-100000, 100000, 997, expected);
+        assertEquals(expected, s);
+        assertEquals(true, s.contains(-100000));
+        assertEquals(false, s.contains(-99999));
+        assertEquals(Integer.valueOf(-300), s.remove(-300));
+        expected.remove(-300);
+        assertEquals(expected, s);
+    }
+
+    /**
+     * Test a dense range, which switches containers from arrays to bitmaps and
+     * back as it grows and shrinks.
+     */
+    @Test
+    public final void testDenseGrowAndShrink() {
+        final int n = 20000;
+        Set<Integer> expected = new Set1L<Integer>();
+        Set6 s = createRange(0, n, 1, expected);
+        assertEquals(n, s.size());
+        assertEquals(expected, s);
+        for (int i = 0; i < n; i += 3) {
+            s.remove(i);
+            expected.remove(i);
+        }
+        assertEquals(expected, s);
+        while (s.size() > 0) {
+            expected.remove(s.removeAny());
+        }
+        assertEquals(expected, s);
+    }
+
+    /**
+     * Test that iteration is in increasing (signed) order.
+     */
+    @Test
+    public final void testIteratorOrder() {
+        Set6 s = new Set6();
+        int[] values = { 70000, -5, Integer.MIN_VALUE, 3, Integer.MAX_VALUE,
+            -70000 };
+        for (int x : values) {
+            s.add(x);
+        }
+        Iterator<Integer> it = s.iterator();
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), it.next());
+        assertEquals(Integer.valueOf(-70000), it.next());
+        assertEquals(Integer.valueOf(-5), it.next());
+        assertEquals(Integer.valueOf(3), it.next());
+        assertEquals(Integer.valueOf(70000), it.next());
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), it.next());
+        assertEquals(false, it.hasNext());
+    }
+
+    /**
+     * Test unionWith and intersectWith on overlapping sets.
+     */
+    @Test
+    public final void testUnionAndIntersection() {
+        final int n = 30000;
+        Set<Integer> evens = new Set1L<Integer>();
+        Set<Integer> threes = new Set1L<Integer>();
+        Set6 a = createRange(0, n, 2, evens);
+        Set6 b = createRange(0, 2 * n, 3, threes);
+        Set6 union = createRange(0, 0, 1, new Set1L<Integer>());
+        union.unionWith(a);
+        union.unionWith(b);
+        Set6 intersection = createRange(0, n, 2, new Set1L<Integer>());
+        intersection.intersectWith(b);
+        for (int i = 0; i < 2 * n; i++) {
+            boolean inA = evens.contains(i);
+            boolean inB = threes.contains(i);
+            assertEquals(inA || inB, union.contains(i));
+            assertEquals(inA && inB, intersection.contains(i));
+        }
+        assertEquals(n / 2 + 2 * n / 3 - n / 6, union.size());
+        assertEquals(n / 6, intersection.size());
+        assertEquals(evens, a);
+    }
+
+    /**
+     * Test that runOptimize does not change the value, and that the set can
+     * still be updated afterwards.
+     */
+    @Test
+    public final void testRunOptimize() {
+        Set<Integer> expected = new Set1L<Integer>();
+        Set6 s = createRange(0, 100000, 1, expected);
+        s.remove(500);
+        expected.remove(500);
+        s.runOptimize();
+        assertEquals(expected, s);
+        s.add(500);
+        expected.add(500);
+        s.remove(99999);
+        expected.remove(99999);
+        assertEquals(expected, s);
+    }
+
+
+    /**
+     * Test that runOptimize on containers already in run form changes
+     * nothing, and that the set can still be updated afterwards.
+     */
+    @Test
+    public final void testRunOptimizeTwice() {
+        final int n = 1000;
+        Set<Integer> expected = new Set1L<Integer>();
+        Set6 s = createRange(0, n, 1, expected);
+        s.runOptimize();
+        s.runOptimize();
+        assertEquals(expected, s);
+        s.add(n);
+        expected.add(n);
+        s.remove(0);
+        expected.remove(0);
+        assertEquals(true, s.contains(n));
+        assertEquals(false, s.contains(0));
+        assertEquals(expected, s);
+    }
+
+    /**
+     * Test unionWith and intersectWith between containers of every pair of
+     * forms: sparse arrays, runs and bitmaps.
+     */
+    @Test
+    public final void testUnionAndIntersectionMixedForms() {
+        final int span = 65536;
+        final int combinations = 4;
+        final int[][] shapes = { { 0, 50, 997 }, { 100, 30000, 1 },
+            { 0, span, 2 }, { 40000, 45000, 1 } };
+        for (int[] p : shapes) {
+            for (int[] q : shapes) {
+                for (int optimize = 0; optimize < combinations; optimize++) {
+                    Set<Integer> ea = new Set1L<Integer>();
+                    Set<Integer> eb = new Set1L<Integer>();
+                    Set6 a = createRange(p[0], p[1], p[2], ea);
+                    Set6 b = createRange(q[0], q[1], q[2], eb);
+                    if (optimize % 2 == 1) {
+                        a.runOptimize();
+                    }
+                    if (optimize / 2 == 1) {
+                        b.runOptimize();
+                    }
+                    Set6 union = createRange(p[0], p[1], p[2],
+                            new Set1L<Integer>());
+                    union.unionWith(b);
+                    a.intersectWith(b);
+                    int unionSize = 0;
+                    int intersectionSize = 0;
+                    for (int x = 0; x < span; x++) {
+                        boolean inA = ea.contains(x);
+                        boolean inB = eb.contains(x);
+                        assertEquals(inA || inB, union.contains(x));
+                        assertEquals(inA && inB, a.contains(x));
+                        if (inA || inB) {
+                            unionSize++;
+                        }
+                        if (inA && inB) {
+                            intersectionSize++;
+                        }
+                    }
+                    assertEquals(unionSize, union.size());
+                    assertEquals(intersectionSize, a.size());
+                    assertEquals(eb, b);
+                }
+            }
+        }
+    }
+
+}
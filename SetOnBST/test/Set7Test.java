@@ -0,0 +1,137 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Customized JUnit test fixture for {@code Set7}.
+ */
+public class Set7Test extends SetTest {
+
+    @Override
+    protected final Set<String> constructorTest() {
+        return new Set7();
+    }
+
+    @Override
+    protected final Set<String> constructorRef() {
+        return new Set1L<String>();
+    }
+
+    /**
+     * Returns the words "w000" through "w(n-1)", with n padded to three
+     * digits.
+     *
+     * @param n
+     *            the number of words
+     * @return the words, in increasing order
+     */
+    private static String[] words(int n) {
+        String[] words = new String[n];
+        for (int i = 0; i < n; i++) {
+            words[i] = String.format("w%03d", i);
+        }
+        return words;
+    }
+
+    /**
+     * Test for array constructor with many words, followed by adds and
+     * removes that split and empty blocks.
+     */
+    @Test
+    public final void testArrayConstructorThenUpdate() {
+        final int n = 500;
+        String[] words = words(n);
+        Set<String> s = new Set7(words);
+        Set<String> sExpected = this.constructorRef();
+        for (String w : words) {
+            sExpected.add(w);
+        }
+        assertEquals(sExpected, s);
+        for (int i = 0; i < n; i += 3) {
+            s.add(words[i] + "x");
+            sExpected.add(words[i] + "x");
+        }
+        for (int i = 0; i < n; i += 2) {
+            s.remove(words[i]);
+            sExpected.remove(words[i]);
+        }
+        assertEquals(sExpected, s);
+        assertEquals(false, s.contains("w"));
+        assertEquals(false, s.contains("w000"));
+        assertEquals(true, s.contains("w000x"));
+    }
+
+    /**
+     * Test that iteration returns the words in increasing order, including
+     * words with non-ASCII characters.
+     */
+    @Test
+    public final void testIteratorOrder() {
+        String[] words = { "zebra", "\u00e9clair", "apple", "applesauce",
+            "app", "" };
+        Set<String> s = new Set7(words);
+        Iterator<String> it = s.iterator();
+        assertEquals("", it.next());
+        assertEquals("app", it.next());
+        assertEquals("apple", it.next());
+        assertEquals("applesauce", it.next());
+        assertEquals("zebra", it.next());
+        assertEquals("\u00e9clair", it.next());
+        assertEquals(false, it.hasNext());
+    }
+
+    /**
+     * Test for prefixIterator on a range that spans several blocks.
+     */
+    @Test
+    public final void testPrefixIterator() {
+        final int n = 200;
+        Set7 s = new Set7(words(n));
+        Iterator<String> it = s.prefixIterator("w12");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(String.format("w12%d", i), it.next());
+        }
+        assertEquals(false, it.hasNext());
+        assertEquals(false, s.prefixIterator("w3").hasNext());
+        assertEquals(false, s.prefixIterator("a").hasNext());
+    }
+
+    /**
+     * Test that strings that are not well-formed UTF-16, or that hold the
+     * zero {@code char}, come back unchanged and are not confused with one
+     * another.
+     */
+    @Test
+    public final void testUnpairedSurrogates() {
+        String[] words = { "a\u0000b", "x\uD800", "x\uD800\uDC00",
+            "x\uDC00", "\uD800", "\uD83D\uDE00", "\uDBFF" };
+        Set<String> s = this.constructorTest();
+        Set<String> sExpected = this.constructorRef();
+        for (String x : words) {
+            s.add(x);
+            sExpected.add(x);
+        }
+        assertEquals(sExpected, s);
+        assertEquals(false, s.contains("?"));
+        assertEquals(false, s.contains("x?"));
+        assertEquals(false, s.contains("ab"));
+        Arrays.sort(words);
+        Iterator<String> it = s.iterator();
+        for (String x : words) {
+            assertEquals(x, it.next());
+            assertEquals(true, s.contains(x));
+        }
+        assertEquals(false, it.hasNext());
+        Iterator<String> prefixed = new Set7(words).prefixIterator("x\uD800");
+        assertEquals("x\uD800", prefixed.next());
+        assertEquals("x\uD800\uDC00", prefixed.next());
+        assertEquals(false, prefixed.hasNext());
+    }
+
+}